@@ -0,0 +1,119 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.events.TelegramRecipientsChangedEvent;
+import com.example.vmserver.notification.StatusChange;
+import com.example.vmserver.notification.SubscriptionIndex;
+import com.example.vmserver.notification.SubscriptionRule;
+import com.example.vmserver.repository.UserTelegramChatRepository;
+import com.example.vmserver.repository.projection.ChatSubscriptionView;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемый список чатов администраторов с активной регистрацией в боте
+ * и скомпилированный индекс их подписок (SubscriptionIndex).
+ * Строится одним запросом при старте и после изменений регистраций, подписок и пользователей
+ * (событие TelegramRecipientsChangedEvent после коммита), периодически сверяется с БД.
+ * Получение получателей для уведомления не обращается к БД.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdminRecipientRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminRecipientRegistry.class);
+
+    private final UserTelegramChatRepository userTelegramChatRepository;
+
+    private record Recipients(List<Long> chatIds, List<String> subscriptions, SubscriptionIndex index) {
+    }
+
+    private volatile Recipients recipients = new Recipients(List.of(), List.of(), SubscriptionIndex.empty());
+
+    /**
+     * Начальное построение списка получателей
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        rebuild();
+        logger.info("Получатели уведомлений Telegram инициализированы: {} чатов администраторов",
+                recipients.chatIds().size());
+    }
+
+    /**
+     * Перестроение после изменения регистраций или пользователей
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRecipientsChanged(TelegramRecipientsChangedEvent event) {
+        logger.debug("Перестроение получателей уведомлений Telegram: {}", event.reason());
+        rebuild();
+    }
+
+    /**
+     * Сверка с БД: учитывает изменения в обход сервисов
+     */
+    @Scheduled(fixedDelayString = "${telegram.bot.recipients-reconcile-interval-ms:300000}",
+               initialDelayString = "${telegram.bot.recipients-reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Recipients previous = recipients;
+        rebuild();
+        if (!previous.chatIds().equals(recipients.chatIds())
+                || !previous.subscriptions().equals(recipients.subscriptions())) {
+            logger.warn("Список получателей уведомлений Telegram расходился с БД, исправлено");
+        }
+    }
+
+    /**
+     * Чаты администраторов с активной регистрацией
+     */
+    public List<Long> getChatIds() {
+        return recipients.chatIds();
+    }
+
+    /**
+     * Чаты администраторов, подписанных на изменение
+     */
+    public List<Long> getChatIds(StatusChange change) {
+        return recipients.index().match(change);
+    }
+
+    private synchronized void rebuild() {
+        try {
+            List<ChatSubscriptionView> rows = userTelegramChatRepository.findActiveAdminSubscriptions();
+            List<Long> chatIds = new ArrayList<>(rows.size());
+            List<String> subscriptions = new ArrayList<>(rows.size());
+            List<SubscriptionRule> rules = new ArrayList<>(rows.size());
+            for (ChatSubscriptionView row : rows) {
+                chatIds.add(row.getTelegramChatId());
+                subscriptions.add(row.getSubscription());
+                rules.add(parseRule(row));
+            }
+            recipients = new Recipients(List.copyOf(chatIds), subscriptions, new SubscriptionIndex(chatIds, rules));
+        } catch (Exception e) {
+            // Остаётся предыдущий список: уведомления продолжают уходить известным получателям
+            logger.error("Ошибка при построении списка получателей уведомлений Telegram: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Неразборчивое правило (например, записанное в обход бота) не должно лишать чат уведомлений
+     */
+    private static SubscriptionRule parseRule(ChatSubscriptionView row) {
+        try {
+            return SubscriptionRule.parse(row.getSubscription());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Неверные правила подписки чата {} ({}), отправляются все изменения: {}",
+                    row.getTelegramChatId(), row.getSubscription(), e.getMessage());
+            return SubscriptionRule.ALL;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.dto.ReportDTO;
+import com.example.vmserver.events.StationStateChangedEvent;
+import com.example.vmserver.service.ReportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Хранилище последнего снимка системного отчёта (DTO и текст).
+ * Снимок помечается устаревшим по событиям изменения станций и очереди
+ * и пересобирается по расписанию; без событий - не реже, чем раз в max-age
+ * (так учитываются изменения пользователей и ролей).
+ */
+@Component
+public class ReportSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportSnapshotStore.class);
+
+    private final ReportService reportService;
+    private final Duration maxAge;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final Object refreshLock = new Object();
+
+    private volatile ReportSnapshot snapshot;
+    private long version;
+
+    public ReportSnapshotStore(ReportService reportService,
+                               @Value("${reports.snapshot.max-age-ms:300000}") long maxAgeMs) {
+        this.reportService = reportService;
+        this.maxAge = Duration.ofMillis(maxAgeMs);
+    }
+
+    /**
+     * Снимок отчёта с версией для ETag и временем формирования для Last-Modified
+     */
+    public record ReportSnapshot(long version, ReportDTO report, String text, Instant generatedAt) {
+
+        public String eTag(String format) {
+            // Время формирования в ETag исключает совпадение версий после перезапуска
+            return "\"report-" + Long.toHexString(generatedAt.toEpochMilli()) + "-" + version + "-" + format + "\"";
+        }
+    }
+
+    /**
+     * Первичное построение снимка после старта приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Не удалось построить снимок отчёта при старте: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Изменение станции или очереди делает снимок устаревшим
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStationStateChanged(StationStateChangedEvent event) {
+        dirty.set(true);
+    }
+
+    /**
+     * Пересборка снимка, если он устарел по событиям или по возрасту
+     */
+    @Scheduled(fixedDelayString = "${reports.snapshot.refresh-interval-ms:5000}",
+               initialDelayString = "${reports.snapshot.refresh-interval-ms:5000}")
+    public void refreshIfStale() {
+        ReportSnapshot current = snapshot;
+        boolean expired = current == null
+                || Duration.between(current.generatedAt(), Instant.now()).compareTo(maxAge) >= 0;
+        if (dirty.get() || expired) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                logger.error("Ошибка при обновлении снимка отчёта: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Текущий снимок; строится синхронно, только если его ещё нет
+     */
+    public ReportSnapshot current() {
+        ReportSnapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Пересобирает снимок отчёта
+     */
+    public ReportSnapshot refresh() {
+        synchronized (refreshLock) {
+            // Сбрасываем флаг до чтения БД: событие во время сборки вызовет следующую пересборку
+            dirty.set(false);
+            try {
+                long startTime = System.currentTimeMillis();
+                ReportDTO report = reportService.generateSystemReport();
+                String text = reportService.renderTextReport(report);
+
+                ReportSnapshot updated = new ReportSnapshot(++version, report, text, Instant.now());
+                snapshot = updated;
+                logger.info("Снимок отчёта v{} обновлён за {} мс", updated.version(),
+                        System.currentTimeMillis() - startTime);
+                return updated;
+            } catch (RuntimeException e) {
+                dirty.set(true);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.StationDetailView;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Снимок станций в памяти: ID, IP, состояние и текущий пользователь.
+ * Заполняется одним запросом при старте, меняется по событиям StationStateChangedEvent
+ * (после коммита транзакции) и периодически сверяется с БД (например, смена IP без смены состояния).
+ * Используется для ответов, которые не должны нагружать БД (команды бота /fleet, /station).
+ * Станции, изменённые событиями во время сверки, сохраняют состояние из событий
+ * (как в {@link StationStateCounters}): событие не старше прочитанного из БД.
+ */
+@Component
+@RequiredArgsConstructor
+public class StationSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationSnapshotCache.class);
+
+    /**
+     * Состояние станции
+     * @param id ID станции
+     * @param ip IP-адрес
+     * @param state текущее состояние
+     * @param occupant пользователь, занимающий станцию (null - свободна)
+     * @param since время перехода в текущее состояние (null - неизвестно, станция не менялась с запуска)
+     */
+    public record StationSnapshot(Long id, String ip, VMState state, String occupant, LocalDateTime since) {
+    }
+
+    private final VMStationRepository stationRepository;
+
+    // Чтение без блокировок; снимки и changedDuringRebuild меняются только под монитором this
+    private volatile Map<Long, StationSnapshot> byId = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> idByIp = new ConcurrentHashMap<>();
+
+    // Станции, изменённые событиями во время чтения БД (null - сверка не идёт)
+    private Set<Long> changedDuringRebuild;
+
+    // Сверки не пересекаются между собой
+    private final Object rebuildLock = new Object();
+
+    /**
+     * Начальное заполнение из БД
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        rebuild();
+        logger.info("Снимок станций инициализирован: {} станций", byId.size());
+    }
+
+    /**
+     * Сверка с БД
+     */
+    @Scheduled(fixedDelayString = "${stations.snapshot.reconcile-interval-ms:300000}",
+               initialDelayString = "${stations.snapshot.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    /**
+     * Учесть изменение станции
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStationStateChanged(StationStateChangedEvent event) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(event.stationId());
+        }
+        Map<Long, StationSnapshot> stations = byId;
+        Map<String, Long> ips = idByIp;
+        StationSnapshot previous = event.newState() == null
+                ? stations.remove(event.stationId())
+                : stations.put(event.stationId(), new StationSnapshot(event.stationId(), event.stationIp(),
+                        event.newState(), event.newState() == VMState.WORK ? event.occupant() : null,
+                        event.changedAt()));
+        if (previous != null && previous.ip() != null && !previous.ip().equals(event.stationIp())) {
+            ips.remove(previous.ip(), event.stationId());
+        }
+        if (event.newState() == null) {
+            if (event.stationIp() != null) {
+                ips.remove(event.stationIp(), event.stationId());
+            }
+        } else if (event.stationIp() != null) {
+            ips.put(event.stationIp(), event.stationId());
+        }
+        logger.trace("Снимок станции {}: {} -> {}", event.stationId(), event.oldState(), event.newState());
+    }
+
+    public StationSnapshot get(Long stationId) {
+        return byId.get(stationId);
+    }
+
+    public StationSnapshot getByIp(String ip) {
+        Long stationId = idByIp.get(ip);
+        return stationId != null ? byId.get(stationId) : null;
+    }
+
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            long startTime = System.currentTimeMillis();
+            synchronized (this) {
+                changedDuringRebuild = new HashSet<>();
+            }
+            List<StationDetailView> rows;
+            try {
+                rows = stationRepository.findStationDetails();
+            } catch (Exception e) {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                // Остаётся предыдущий снимок
+                logger.error("Ошибка при построении снимка станций: {}", e.getMessage(), e);
+                return;
+            }
+            synchronized (this) {
+                Map<Long, StationSnapshot> previous = byId;
+                Map<Long, StationSnapshot> stations = new ConcurrentHashMap<>();
+                for (StationDetailView row : rows) {
+                    StationSnapshot known = previous.get(row.getId());
+                    // Время перехода из БД известно только для занятых станций; иначе сохраняется известное
+                    LocalDateTime since = row.getAssignedAt() != null ? row.getAssignedAt()
+                            : known != null && known.state() == row.getState() ? known.since() : null;
+                    stations.put(row.getId(), new StationSnapshot(row.getId(), row.getIp(), row.getState(),
+                            row.getCurrentUser(), since));
+                }
+                for (Long stationId : changedDuringRebuild) {
+                    StationSnapshot live = previous.get(stationId);
+                    if (live != null) {
+                        stations.put(stationId, live);
+                    } else {
+                        stations.remove(stationId);
+                    }
+                }
+                changedDuringRebuild = null;
+                Map<String, Long> ips = new ConcurrentHashMap<>();
+                stations.values().forEach(station -> {
+                    if (station.ip() != null) {
+                        ips.put(station.ip(), station.id());
+                    }
+                });
+                byId = stations;
+                idByIp = ips;
+                logger.debug("Снимок станций сверен с БД: {} станций за {} мс",
+                        stations.size(), System.currentTimeMillis() - startTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.StationStateView;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики станций по состояниям в памяти.
+ * Заполняются из БД при старте, меняются по событиям StationStateChangedEvent
+ * (после коммита транзакции) и периодически сверяются с БД.
+ * Вместе со счетчиками хранится состояние каждой станции: событие задаёт состояние
+ * станции, а не прибавляет переход, поэтому повторное событие не учитывается дважды.
+ * Станции, изменённые во время сверки, сохраняют состояние из событий: событие
+ * могло прийти до или после чтения БД, но не старше прочитанного.
+ */
+@Component
+@RequiredArgsConstructor
+public class StationStateCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationStateCounters.class);
+
+    private final VMStationRepository stationRepository;
+
+    private final EnumMap<VMState, LongAdder> counters = createCounters();
+
+    // Состояния станций; счетчики, состояния и changedDuringReconcile меняются только под монитором this
+    private final Map<Long, VMState> stateById = new HashMap<>();
+
+    // Станции, изменённые событиями во время чтения БД (null - сверка не идёт)
+    private Set<Long> changedDuringReconcile;
+
+    // Сверки не пересекаются между собой
+    private final Object reconcileLock = new Object();
+
+    private volatile boolean seeded;
+
+    private static EnumMap<VMState, LongAdder> createCounters() {
+        EnumMap<VMState, LongAdder> map = new EnumMap<>(VMState.class);
+        for (VMState state : VMState.values()) {
+            map.put(state, new LongAdder());
+        }
+        return map;
+    }
+
+    /**
+     * Начальное заполнение счетчиков из БД
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+        seeded = true;
+        logger.info("Счетчики состояний станций инициализированы: {}", snapshot());
+    }
+
+    /**
+     * Сверка счетчиков с БД: исправляет расхождения, накопленные, например,
+     * из-за изменений в обход сервиса
+     */
+    @Scheduled(fixedDelayString = "${stations.counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${stations.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            synchronized (this) {
+                changedDuringReconcile = new HashSet<>();
+            }
+            List<StationStateView> rows;
+            try {
+                rows = stationRepository.findAllStates();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringReconcile = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                Map<Long, VMState> actual = new HashMap<>();
+                for (StationStateView row : rows) {
+                    actual.put(row.getId(), row.getState());
+                }
+                for (Long stationId : changedDuringReconcile) {
+                    VMState live = stateById.get(stationId);
+                    if (live != null) {
+                        actual.put(stationId, live);
+                    } else {
+                        actual.remove(stationId);
+                    }
+                }
+                changedDuringReconcile = null;
+                stateById.clear();
+                stateById.putAll(actual);
+                correctCounters();
+            }
+        }
+    }
+
+    /**
+     * Учесть переход станции из одного состояния в другое
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStationStateChanged(StationStateChangedEvent event) {
+        if (changedDuringReconcile != null) {
+            changedDuringReconcile.add(event.stationId());
+        }
+        VMState previous = event.newState() == null
+                ? stateById.remove(event.stationId())
+                : stateById.put(event.stationId(), event.newState());
+        if (previous != event.newState()) {
+            apply(previous, event.newState());
+        }
+    }
+
+    private void apply(VMState oldState, VMState newState) {
+        if (oldState != null) {
+            counters.get(oldState).decrement();
+        }
+        if (newState != null) {
+            counters.get(newState).increment();
+        }
+        logger.trace("Счетчики станций: {} -> {}", oldState, newState);
+    }
+
+    /**
+     * Приводит счетчики к состояниям станций (вызывается под монитором this)
+     */
+    private void correctCounters() {
+        EnumMap<VMState, Long> actual = new EnumMap<>(VMState.class);
+        for (VMState state : VMState.values()) {
+            actual.put(state, 0L);
+        }
+        stateById.values().forEach(state -> actual.merge(state, 1L, Long::sum));
+        for (VMState state : VMState.values()) {
+            LongAdder counter = counters.get(state);
+            long drift = actual.get(state) - counter.sum();
+            if (drift != 0) {
+                counter.add(drift);
+                if (seeded) {
+                    logger.warn("Счетчик станций {} расходился с БД на {}, исправлено", state, drift);
+                }
+            }
+        }
+    }
+
+    /**
+     * Текущее количество станций в состоянии
+     */
+    public long get(VMState state) {
+        return counters.get(state).sum();
+    }
+
+    /**
+     * Общее количество станций
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder counter : counters.values()) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Снимок всех счетчиков
+     */
+    public EnumMap<VMState, Long> snapshot() {
+        EnumMap<VMState, Long> snapshot = new EnumMap<>(VMState.class);
+        counters.forEach((state, counter) -> snapshot.put(state, counter.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.vmserver.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Однократная миграция: уникальный частичный индекс uq_vmqueue_active_station
+ * (у станции не больше одной активной записи очереди). LEFT JOIN станций с активной
+ * очередью в отчете опирается на него и не размножает строки.
+ * Если индекса ещё нет, лишние активные записи станции закрываются (остаётся самая новая),
+ * каждая закрытая запись записывается в журнал, свободные станции с оставшейся активной
+ * записью переводятся в WORK, затем создаётся индекс - всё в одной транзакции.
+ * Когда индекс создан, миграция больше ничего не делает: новые дубликаты запрещает индекс.
+ * Ошибка прерывает запуск.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveQueueUniqueIndexMigration implements SmartInitializingSingleton {
+
+    static final String INDEX = "uq_vmqueue_active_station";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (indexExists()) {
+            log.debug("Индекс {} уже создан, миграция не требуется", INDEX);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> migrate());
+    }
+
+    boolean indexExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = ?)", Boolean.class, INDEX));
+    }
+
+    private void migrate() {
+        long startTime = System.currentTimeMillis();
+        // Новые активные записи не появляются, пока дубликаты закрываются и строится индекс
+        jdbcTemplate.execute("LOCK TABLE vmqueue IN SHARE ROW EXCLUSIVE MODE");
+
+        List<Map<String, Object>> closed = jdbcTemplate.queryForList(
+                "UPDATE vmqueue q SET active = false, released_at = COALESCE(q.released_at, now()) " +
+                "WHERE q.active AND EXISTS (" +
+                "SELECT 1 FROM vmqueue n WHERE n.active AND n.vm_station_id = q.vm_station_id AND n.id > q.id) " +
+                "RETURNING q.id, q.vm_station_id, q.current_user_id, q.created_at");
+        Set<Long> stationIds = new TreeSet<>();
+        for (Map<String, Object> row : closed) {
+            stationIds.add(((Number) row.get("vm_station_id")).longValue());
+            log.warn("Закрыта лишняя активная запись очереди {}: станция {}, пользователь {}, создана {}",
+                    row.get("id"), row.get("vm_station_id"), row.get("current_user_id"), row.get("created_at"));
+        }
+
+        if (!stationIds.isEmpty()) {
+            // У станции осталась самая новая активная запись - станция занята
+            int occupied = new NamedParameterJdbcTemplate(jdbcTemplate).update(
+                    "UPDATE vm_stations SET state = 'WORK' WHERE state = 'FREE' AND id IN (:ids) " +
+                    "AND EXISTS (SELECT 1 FROM vmqueue q WHERE q.active AND q.vm_station_id = vm_stations.id)",
+                    Map.of("ids", stationIds));
+            log.warn("Закрыто {} лишних активных записей очереди на станциях {}; переведено в WORK {} станций",
+                    closed.size(), stationIds, occupied);
+        }
+
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX + " ON vmqueue (vm_station_id) WHERE active");
+        log.info("Индекс {} создан за {} мс", INDEX, System.currentTimeMillis() - startTime);
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.regex.Pattern;
+
 /**
  * Конфигурация Telegram бота
  */
@@ -14,6 +16,9 @@ import org.springframework.context.annotation.Configuration;
 @Setter
 public class BotConfig {
     
+    // Допустимый секрет webhook по правилам Telegram (setWebhook, secret_token)
+    private static final Pattern WEBHOOK_SECRET = Pattern.compile("^[A-Za-z0-9_-]{1,256}$");
+    
     /**
      * Токен бота полученный от @BotFather
      */
@@ -33,4 +38,93 @@ public class BotConfig {
      * Отправлять уведомления только администраторам
      */
     private boolean notifyAdminsOnly = true;
-}
\ No newline at end of file
+    
+    /**
+     * Потоков для параллельной рассылки сообщений
+     */
+    private int senderThreads = 8;
+    
+    /**
+     * Общий лимит отправки сообщений в секунду (ограничение Telegram - около 30)
+     */
+    private int messagesPerSecond = 30;
+    
+    /**
+     * Минимальный интервал между сообщениями в один чат, мс
+     */
+    private long perChatIntervalMs = 1000;
+    
+    /**
+     * Попыток отправки одного сообщения
+     */
+    private int maxSendAttempts = 3;
+    
+    /**
+     * Начальная задержка повтора при ошибке отправки, мс (удваивается с каждой попыткой)
+     */
+    private long retryBaseMs = 500;
+    
+    /**
+     * Максимальное время рассылки одного сообщения всем получателям, мс
+     */
+    private long broadcastTimeoutMs = 60000;
+    
+    /**
+     * Адрес Bot API (до токена); в тестах можно указать локальную заглушку
+     */
+    private String apiUrl = "https://api.telegram.org/bot";
+    
+    /**
+     * Получать обновления через webhook вместо long polling
+     */
+    private boolean webhookEnabled = false;
+    
+    /**
+     * Публичный адрес endpoint'а webhook (.../api/telegram-bot/webhook)
+     */
+    private String webhookUrl;
+    
+    /**
+     * Секрет, который Telegram передаёт в заголовке X-Telegram-Bot-Api-Secret-Token.
+     * Обязателен в режиме webhook: без него webhook не регистрируется, а обновления отклоняются
+     */
+    private String webhookSecret;
+    
+    /**
+     * Полос (потоков) обработки входящих обновлений; обновления одного чата - в одной полосе
+     */
+    private int updateThreads = 8;
+    
+    /**
+     * Общая ёмкость очередей обновлений; при переполнении webhook отвечает 503 (Telegram повторит доставку),
+     * а поток long polling ждёт места (см. updateSubmitTimeoutMs)
+     */
+    private int updateQueueCapacity = 1000;
+    
+    /**
+     * Сколько поток long polling ждёт места в переполненной очереди, мс; затем обновление отбрасывается
+     */
+    private long updateSubmitTimeoutMs = 30000;
+    
+    /**
+     * Ошибок недоступности Telegram подряд (сеть, 5xx), после которых отправки отклоняются сразу
+     */
+    private int circuitFailureThreshold = 5;
+    
+    /**
+     * Сколько держать отправки отклонёнными до пробного запроса, мс
+     */
+    private long circuitOpenMs = 30000;
+    
+    /**
+     * Сообщений, которые хранятся на время недоступности Telegram и досылаются после неё
+     */
+    private int outageBufferSize = 500;
+    
+    /**
+     * Секрет webhook задан и допустим для Telegram: 1-256 символов A-Z, a-z, 0-9, _ и -
+     */
+    public static boolean isValidWebhookSecret(String secret) {
+        return secret != null && WEBHOOK_SECRET.matcher(secret).matches();
+    }
+}
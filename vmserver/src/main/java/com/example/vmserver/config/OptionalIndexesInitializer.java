@@ -0,0 +1,88 @@
+package com.example.vmserver.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Создаёт необязательные индексы (db/indexes.sql) после инициализации схемы JPA и обязательных
+ * скриптов spring.sql.init. Индексы - оптимизация: ошибка оператора (например, строка, которая
+ * не приводится к inet) записывается в журнал с текстом оператора, остальные операторы выполняются.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OptionalIndexesInitializer implements SmartInitializingSingleton {
+
+    static final String SCRIPT = "db/indexes.sql";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long startTime = System.currentTimeMillis();
+        List<String> statements = readStatements(new ClassPathResource(SCRIPT));
+        int failed = 0;
+
+        for (String statement : statements) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                failed++;
+                log.warn("Необязательный оператор {} не выполнен: {}\n{}",
+                        SCRIPT, e.getMostSpecificCause().getMessage(), statement);
+            }
+        }
+
+        if (failed > 0) {
+            log.warn("Необязательные индексы: не выполнено {} из {} операторов", failed, statements.size());
+        } else {
+            log.info("Необязательные индексы проверены: {} операторов за {} мс",
+                    statements.size(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Операторы скрипта: строки-комментарии пропускаются, оператор заканчивается точкой с запятой в конце строки
+     */
+    static List<String> readStatements(Resource resource) {
+        String script;
+        try {
+            script = resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + resource.getDescription(), e);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (!current.isEmpty()) {
+                current.append('\n');
+            }
+            current.append(trimmed);
+            if (trimmed.endsWith(";")) {
+                statements.add(current.substring(0, current.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            statements.add(current.toString());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.vmserver.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Регистрирует в Hibernate функции PostgreSQL, которых нет в диалекте.
+ * Подключается через META-INF/services/org.hibernate.boot.model.FunctionContributor
+ */
+public class PostgresFunctionContributor implements FunctionContributor {
+
+    /**
+     * inet_contained_by(ip, cidr) - адрес входит в подсеть (оператор {@code <<=}).
+     * Рендерится оператором, а не вызовом функции, чтобы планировщик мог
+     * использовать GiST индекс idx_vm_stations_station_inet. Адрес приводится
+     * через vm_station_inet (db/constraints.sql): имя хоста не входит в подсеть
+     * и не ломает запрос
+     */
+    public static final String INET_CONTAINED_BY = "inet_contained_by";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(INET_CONTAINED_BY, "(vm_station_inet(?1) <<= (?2)::inet)")
+                .setExactArgumentCount(2)
+                .setInvariantType(functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
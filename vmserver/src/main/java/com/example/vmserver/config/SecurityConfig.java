@@ -2,6 +2,7 @@ package com.example.vmserver.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -43,6 +44,8 @@ public class SecurityConfig {
         http.csrf(AbstractHttpConfigurer::disable);
         http.authorizeHttpRequests(auth -> { auth.requestMatchers(ALLOWED_URLS).permitAll();
         auth.requestMatchers("/api/auth/login", "/api/auth/refresh", "/api/auth/register").permitAll();
+        // Обновления Telegram в режиме webhook: проверяется секрет в заголовке, а не JWT
+        auth.requestMatchers(HttpMethod.POST, "/api/telegram-bot/webhook").permitAll();
         auth.anyRequest().authenticated();});
         http.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
         http.exceptionHandling(ex -> ex.authenticationEntryPoint(jwtAuthEntryPoint));
@@ -7,6 +7,7 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
@@ -25,6 +26,11 @@ public class TelegramBotInitializer {
             return;
         }
         
+        if (botConfig.isWebhookEnabled()) {
+            initWebhook();
+            return;
+        }
+        
         try {
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
             botsApi.registerBot(telegramBotService);
@@ -34,4 +40,32 @@ public class TelegramBotInitializer {
             log.error("Ошибка инициализации Telegram бота", e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Режим webhook: Telegram присылает обновления POST-запросами, поток long polling не запускается
+     */
+    private void initWebhook() {
+        if (botConfig.getWebhookUrl() == null || botConfig.getWebhookUrl().isEmpty()) {
+            log.error("Режим webhook включен, но telegram.bot.webhook-url не задан");
+            return;
+        }
+        // Без секрета любой, кто знает адрес, может присылать боту поддельные обновления
+        if (!BotConfig.isValidWebhookSecret(botConfig.getWebhookSecret())) {
+            log.error("Режим webhook включен, но telegram.bot.webhook-secret не задан или некорректен "
+                    + "(1-256 символов A-Z, a-z, 0-9, _ и -): webhook не зарегистрирован");
+            return;
+        }
+        
+        try {
+            SetWebhook setWebhook = new SetWebhook(botConfig.getWebhookUrl());
+            setWebhook.setMaxConnections(Math.max(1, botConfig.getUpdateThreads()));
+            setWebhook.setSecretToken(botConfig.getWebhookSecret());
+            telegramBotService.execute(setWebhook);
+            log.info("Telegram бот @{} инициализирован в режиме webhook: {}", 
+                    botConfig.getUsername(), botConfig.getWebhookUrl());
+        }
+        catch (TelegramApiException e) {
+            log.error("Ошибка регистрации webhook Telegram бота", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.vmserver.controller;
+
+import com.example.vmserver.model.NotificationOutbox;
+import com.example.vmserver.notification.NotificationChannelStats;
+import com.example.vmserver.notification.NotificationChannels;
+import com.example.vmserver.service.NotificationOutboxService;
+import com.example.vmserver.service.TelegramFanOut;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Каналы уведомлений", description = "API для наблюдения за каналами уведомлений об изменении статусов станций")
+public class NotificationController {
+
+    private final NotificationChannels notificationChannels;
+    private final TelegramFanOut telegramFanOut;
+    private final NotificationOutboxService notificationOutboxService;
+
+    @GetMapping("/channels")
+    @PreAuthorize("hasAuthority('TGBOT:GETREGISTR')")
+    @Operation(summary = "Метрики каналов уведомлений",
+               description = "Возвращает для каждого канала: включён ли он, размер очереди, количество доставленных, "
+                           + "недоставленных и отклонённых изменений и 99-й перцентиль задержки доставки")
+    public ResponseEntity<List<NotificationChannelStats>> getChannelStats() {
+        return ResponseEntity.ok(notificationChannels.getStats());
+    }
+
+    @GetMapping("/telegram")
+    @PreAuthorize("hasAuthority('TGBOT:GETREGISTR')")
+    @Operation(summary = "Доступность Telegram",
+               description = "Возвращает состояние предохранителя клиента Telegram (CLOSED, OPEN, HALF_OPEN), "
+                           + "число ошибок подряд и глубину буфера сообщений, ожидающих досылки")
+    public ResponseEntity<TelegramFanOut.OutageStats> getTelegramStats() {
+        return ResponseEntity.ok(telegramFanOut.getOutageStats());
+    }
+
+    @GetMapping("/failed")
+    @PreAuthorize("hasAuthority('TGBOT:GETREGISTR')")
+    @Operation(summary = "Недоставленные уведомления",
+               description = "Возвращает уведомления outbox, исчерпавшие попытки доставки (от последних к первым), "
+                           + "с текстом последней ошибки; они хранятся столько же, сколько доставленные")
+    public ResponseEntity<List<NotificationOutbox>> getFailedNotifications(
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(notificationOutboxService.getFailed(limit));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.vmserver.controller;
+
+import com.example.vmserver.dto.UtilizationReportDTO;
+import com.example.vmserver.enums.UtilizationBucket;
+import com.example.vmserver.service.UtilizationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+@Tag(name = "Аналитические отчёты", description = "API для аналитики по истории использования станций")
+public class ReportController {
+
+    private final UtilizationService utilizationService;
+
+    @GetMapping("/utilization")
+    @PreAuthorize("hasAuthority('STATION:REPORT')")
+    @Operation(summary = "Использование станций за период",
+               description = "Возвращает занятость станций и парка, пик одновременных сессий и перцентили "
+                           + "длительности сессий за период с разбивкой по часам или дням. "
+                           + "По умолчанию - последние 7 дней")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Отчёт успешно сформирован"),
+        @ApiResponse(responseCode = "400", description = "Некорректный период или интервал разбивки")
+    })
+    public ResponseEntity<?> getUtilization(
+            @Parameter(description = "Начало периода (ISO), по умолчанию to минус 7 дней", example = "2024-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода (ISO), по умолчанию текущий момент", example = "2024-01-08T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Интервал разбивки: hour или day", example = "hour")
+            @RequestParam(defaultValue = "hour") String bucket) {
+
+        LocalDateTime periodEnd = to != null ? to : LocalDateTime.now();
+        LocalDateTime periodStart = from != null ? from : periodEnd.minusDays(7);
+
+        try {
+            UtilizationReportDTO report = utilizationService.getUtilization(
+                    periodStart, periodEnd, UtilizationBucket.fromParam(bucket));
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
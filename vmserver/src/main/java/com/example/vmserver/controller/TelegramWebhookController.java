@@ -0,0 +1,82 @@
+package com.example.vmserver.controller;
+
+import com.example.vmserver.config.BotConfig;
+import com.example.vmserver.service.TelegramUpdateDispatcher;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Приём обновлений Telegram в режиме webhook (telegram.bot.webhook-enabled=true).
+ * Принимаются только обновления с заголовком секрета, совпадающим с telegram.bot.webhook-secret;
+ * без настроенного секрета endpoint отвечает 404. Обновление ставится в очередь обработки,
+ * ответ возвращается сразу.
+ */
+@Hidden
+@Slf4j
+@RestController
+@RequestMapping("/api/telegram-bot")
+@RequiredArgsConstructor
+public class TelegramWebhookController {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    // Классы Telegram API размечены аннотациями Jackson 2, поэтому разбор - его ObjectMapper
+    private static final ObjectMapper UPDATE_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final BotConfig botConfig;
+    private final TelegramUpdateDispatcher updateDispatcher;
+
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> receiveUpdate(
+            @RequestHeader(value = SECRET_HEADER, required = false) String secret,
+            @RequestBody byte[] body) {
+        if (!botConfig.isEnabled() || !botConfig.isWebhookEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!BotConfig.isValidWebhookSecret(botConfig.getWebhookSecret())) {
+            // Webhook без секрета не регистрируется (TelegramBotInitializer), endpoint закрыт
+            log.warn("Обновление Telegram отклонено: telegram.bot.webhook-secret не задан");
+            return ResponseEntity.notFound().build();
+        }
+        if (!isValidSecret(secret)) {
+            log.warn("Обновление Telegram с неверным секретом отклонено");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Update update;
+        try {
+            update = UPDATE_READER.readValue(body, Update.class);
+        } catch (IOException e) {
+            log.warn("Не удалось разобрать обновление Telegram: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (!updateDispatcher.submit(update)) {
+            // Telegram повторит доставку позже
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isValidSecret(String secret) {
+        String expected = botConfig.getWebhookSecret();
+        return secret != null && !secret.isEmpty() && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.vmserver.controller;
 
 import com.example.vmserver.dto.AssignStationRequest;
+import com.example.vmserver.dto.QueueCursor;
 import com.example.vmserver.dto.ReleaseStationRequest;
 import com.example.vmserver.dto.VMQueueDTO;
 import com.example.vmserver.service.VMQueueService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,7 +30,12 @@ import java.util.List;
 @Tag(name = "Управление очередью станций", description = "API для управления очередью виртуальных машин")
 public class VMQueueController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     private final VMQueueService queueService;
+    private final JsonMapper jsonMapper;
     
     @PostMapping("/assign")
     @PreAuthorize("hasAuthority('QUEUE:ASSING')")
@@ -41,11 +57,90 @@ public class VMQueueController {
     
     @GetMapping("/inactive")
     @PreAuthorize("hasAuthority('QUEUE:GETINACTIVE')")
-    @Operation(summary = "Получить все неактивные записи", 
-               description = "Возвращает список всех записей в очереди со статусом Active = false")
-    public ResponseEntity<List<VMQueueDTO>> getAllInactiveRecords() {
-        List<VMQueueDTO> inactiveRecords = queueService.getAllInactiveRecords();
-        return ResponseEntity.ok(inactiveRecords);
+    @Operation(summary = "Получить неактивные записи", 
+               description = "Возвращает записи очереди со статусом Active = false (новые сначала). "
+                           + "Без limit и cursor - все записи периода (JSON-массив, выдаётся потоком). "
+                           + "С limit или cursor - страница; если она заполнена, заголовок X-Next-Cursor "
+                           + "содержит курсор следующей страницы. "
+                           + "С format=ndjson возвращает все записи периода потоком, по одной JSON-строке на запись")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Записи успешно получены"),
+        @ApiResponse(responseCode = "400", description = "Некорректный курсор или формат")
+    })
+    public ResponseEntity<?> getInactiveRecords(
+            @Parameter(description = "Начало периода освобождения (ISO, включительно)", example = "2024-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода освобождения (ISO, не включительно)", example = "2024-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не более 1000 (с cursor без limit - 100)")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Формат ответа: json (страница) или ndjson (поток всех записей периода)")
+            @RequestParam(defaultValue = "json") String format) {
+
+        if ("ndjson".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = outputStream -> queueService.streamInactiveRecords(from, to, record -> {
+                try {
+                    outputStream.write(jsonMapper.writeValueAsBytes(record));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(body);
+        }
+        if (!"json".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body("Неподдерживаемый формат: " + format);
+        }
+
+        if (limit == null && cursor == null) {
+            // Прежний ответ - все записи одним массивом; собирается потоком, а не списком в памяти
+            StreamingResponseBody body = outputStream -> {
+                outputStream.write('[');
+                boolean[] first = {true};
+                queueService.streamInactiveRecords(from, to, record -> {
+                    try {
+                        if (!first[0]) {
+                            outputStream.write(',');
+                        }
+                        first[0] = false;
+                        outputStream.write(jsonMapper.writeValueAsBytes(record));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                outputStream.write(']');
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body);
+        }
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        try {
+            List<VMQueueDTO> inactiveRecords = queueService.getInactiveRecords(
+                    from, to, cursor != null ? QueueCursor.decode(cursor) : null, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (!inactiveRecords.isEmpty() && inactiveRecords.size() >= Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE))) {
+                response.header(NEXT_CURSOR_HEADER,
+                        QueueCursor.of(inactiveRecords.get(inactiveRecords.size() - 1)).encode());
+            }
+            return response.body(inactiveRecords);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/recent")
+    @PreAuthorize("hasAuthority('QUEUE:GETINACTIVE')")
+    @Operation(summary = "Получить последние записи очереди", 
+               description = "Возвращает N последних записей очереди (новые сначала), не более 500")
+    public ResponseEntity<List<VMQueueDTO>> getRecentRecords(@RequestParam(defaultValue = "10") int limit) {
+        List<VMQueueDTO> recentRecords = queueService.getRecentRecords(limit);
+        return ResponseEntity.ok(recentRecords);
     }
     
     @GetMapping("/user/{username}/active")
@@ -0,0 +1,32 @@
+package com.example.vmserver.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Курсор постраничного чтения истории очереди: позиция последней выданной записи
+ * в порядке (releasedAt DESC, id DESC). Передаётся клиенту в непрозрачном виде.
+ */
+public record QueueCursor(LocalDateTime releasedAt, Long id) {
+
+    public static QueueCursor of(VMQueueDTO record) {
+        return new QueueCursor(record.getReleasedAt(), record.getId());
+    }
+
+    public String encode() {
+        String raw = releasedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static QueueCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new QueueCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + value);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.vmserver.dto;
+
+import java.util.Set;
+
+import com.example.vmserver.enums.LoginMatchMode;
+import com.example.vmserver.enums.VMState;
+
+/**
+ * Параметры фильтрации станций
+ * @param login логин станции
+ * @param loginMatch режим сравнения логина
+ * @param min минимальный порт
+ * @param max максимальный порт
+ * @param states допустимые состояния (пусто - любые)
+ * @param ip префикс IP ("10.0.1.") или подсеть в нотации CIDR ("10.0.0.0/16")
+ * @param occupant логин пользователя, который сейчас занимает станцию
+ * @param occupied только занятые (true) или только свободные от пользователей (false) станции
+ */
+public record StationFilterDTO(
+    String login,
+    LoginMatchMode loginMatch,
+    Integer min,
+    Integer max,
+    Set<VMState> states,
+    String ip,
+    String occupant,
+    Boolean occupied
+) {}
@@ -0,0 +1,143 @@
+package com.example.vmserver.dto;
+
+import com.example.vmserver.enums.UtilizationBucket;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO отчёта об использовании станций за период")
+public class UtilizationReportDTO {
+
+    @Schema(description = "Начало периода (включительно, выровнено до часа)")
+    private LocalDateTime from;
+
+    @Schema(description = "Конец периода (не включительно, выровнен до часа)")
+    private LocalDateTime to;
+
+    @Schema(description = "Размер интервала разбивки")
+    private UtilizationBucket bucket;
+
+    @Schema(description = "Показатели по всему парку станций")
+    private FleetUtilization fleet;
+
+    @Schema(description = "Показатели по станциям (по убыванию занятости)")
+    private List<StationUtilization> stations;
+
+    @Schema(description = "Показатели по интервалам периода")
+    private List<BucketUtilization> buckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Показатели по всему парку станций")
+    public static class FleetUtilization {
+        @Schema(description = "Количество станций в парке")
+        private Long stationCount;
+
+        @Schema(description = "Количество сессий, начатых в периоде")
+        private Long sessionCount;
+
+        @Schema(description = "Количество разных пользователей за период")
+        private Long distinctUsers;
+
+        @Schema(description = "Суммарное время занятости станций в периоде, секунды")
+        private Long busySeconds;
+
+        @Schema(description = "Доля занятости парка (0..1)")
+        private Double utilization;
+
+        @Schema(description = "Максимальное число одновременных сессий в периоде, выровненном до часа")
+        private Integer peakConcurrentSessions;
+
+        @Schema(description = "Момент достижения максимума одновременных сессий")
+        private LocalDateTime peakAt;
+
+        @Schema(description = "Распределение длительности завершённых сессий, начатых в периоде")
+        private DurationStatistics sessionDuration;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Распределение длительности сессий: количество, среднее и максимум точные, перцентили - оценка по гистограмме")
+    public static class DurationStatistics {
+        @Schema(description = "Количество завершённых сессий")
+        private Long count;
+
+        @Schema(description = "Средняя длительность, секунды")
+        private Long avgSeconds;
+
+        @Schema(description = "Медиана (оценка по гистограмме), секунды")
+        private Long p50Seconds;
+
+        @Schema(description = "90-й перцентиль (оценка по гистограмме), секунды")
+        private Long p90Seconds;
+
+        @Schema(description = "95-й перцентиль (оценка по гистограмме), секунды")
+        private Long p95Seconds;
+
+        @Schema(description = "99-й перцентиль (оценка по гистограмме), секунды")
+        private Long p99Seconds;
+
+        @Schema(description = "Максимальная длительность, секунды")
+        private Long maxSeconds;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Показатели станции за период")
+    public static class StationUtilization {
+        @Schema(description = "ID станции")
+        private Long stationId;
+
+        @Schema(description = "IP станции")
+        private String stationIp;
+
+        @Schema(description = "Количество сессий, начатых в периоде")
+        private Long sessionCount;
+
+        @Schema(description = "Количество разных пользователей станции за период")
+        private Long distinctUsers;
+
+        @Schema(description = "Время занятости в периоде, секунды")
+        private Long busySeconds;
+
+        @Schema(description = "Доля занятости станции (0..1)")
+        private Double utilization;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Показатели интервала")
+    public static class BucketUtilization {
+        @Schema(description = "Начало интервала")
+        private LocalDateTime start;
+
+        @Schema(description = "Количество сессий, начатых в интервале")
+        private Long sessionsStarted;
+
+        @Schema(description = "Время занятости станций в интервале, секунды")
+        private Long busySeconds;
+
+        @Schema(description = "Максимальное число одновременных сессий в интервале")
+        private Integer peakConcurrentSessions;
+
+        @Schema(description = "Доля занятости парка в интервале (0..1)")
+        private Double utilization;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.vmserver.enums;
+
+public enum LoginMatchMode {
+    EXACT, //Точное совпадение (без учета регистра)
+    PREFIX, //Логин начинается с подстроки
+    CONTAINS //Логин содержит подстроку
+}
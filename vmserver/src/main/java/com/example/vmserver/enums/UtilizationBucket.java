@@ -0,0 +1,45 @@
+package com.example.vmserver.enums;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Размер интервала в отчёте об использовании станций
+ */
+public enum UtilizationBucket {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    UtilizationBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Разбор значения параметра запроса (hour|day) без учёта регистра
+     */
+    public static UtilizationBucket fromParam(String value) {
+        for (UtilizationBucket bucket : values()) {
+            if (bucket.name().equalsIgnoreCase(value)) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный интервал: " + value + ". Допустимо: hour, day");
+    }
+
+    /**
+     * Начало интервала, в который попадает момент времени
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Длительность одного интервала
+     */
+    public Duration duration() {
+        return unit.getDuration();
+    }
+}
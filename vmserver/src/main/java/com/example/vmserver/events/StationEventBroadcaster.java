@@ -0,0 +1,158 @@
+package com.example.vmserver.events;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений состояния станций подписчикам SSE.
+ * Публикация не блокируется: событие кладется в ограниченный буфер каждого
+ * подписчика (при переполнении вытесняется самое старое), а отправка идет
+ * на отдельном пуле потоков.
+ */
+@Component
+public class StationEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationEventBroadcaster.class);
+
+    private static final String EVENT_NAME = "station-state";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private final ExecutorService sender;
+    private final int bufferSize;
+
+    public StationEventBroadcaster(
+            @Value("${stations.events.sender-threads:4}") int senderThreads,
+            @Value("${stations.events.buffer-size:256}") int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "station-events-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Новый подписчик на поток событий
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+        logger.debug("Новый подписчик на события станций, всего: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Событие рассылается только после коммита транзакции, в которой оно произошло
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStationStateChanged(StationStateChangedEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().name(EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Периодический комментарий держит соединение открытым и выявляет отключившихся клиентов
+     */
+    @Scheduled(fixedDelayString = "${stations.events.heartbeat-ms:20000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        sender.shutdownNow();
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            logger.debug("Подписчик на события станций отключен, осталось: {}", subscribers.size());
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayDeque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private long dropped;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped++;
+                    if (dropped % bufferSize == 1) {
+                        logger.warn("Подписчик не успевает получать события станций, отброшено: {}", dropped);
+                    }
+                }
+                buffer.addLast(event);
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    SseEmitter.SseEventBuilder event;
+                    synchronized (buffer) {
+                        event = buffer.pollFirst();
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Ошибка отправки события подписчику: {}", e.getMessage());
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            // Событие могло прийти между опустошением буфера и сбросом флага
+            boolean pending;
+            synchronized (buffer) {
+                pending = !buffer.isEmpty();
+            }
+            if (pending && subscribers.contains(this) && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+    }
+}
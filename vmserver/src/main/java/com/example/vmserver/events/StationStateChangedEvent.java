@@ -0,0 +1,31 @@
+package com.example.vmserver.events;
+
+import java.time.LocalDateTime;
+
+import com.example.vmserver.enums.VMState;
+
+/**
+ * Изменение состояния станции.
+ * oldState == null - станция создана, newState == null - станция удалена.
+ * @param stationId ID станции
+ * @param stationIp IP станции
+ * @param oldState состояние до изменения
+ * @param newState состояние после изменения
+ * @param occupant пользователь, который занимает станцию после изменения
+ * @param changedBy пользователь, выполнивший изменение
+ * @param changedAt время изменения
+ */
+public record StationStateChangedEvent(
+    Long stationId,
+    String stationIp,
+    VMState oldState,
+    VMState newState,
+    String occupant,
+    String changedBy,
+    LocalDateTime changedAt
+) {
+    public StationStateChangedEvent(Long stationId, String stationIp, VMState oldState, VMState newState,
+                                    String occupant, String changedBy) {
+        this(stationId, stationIp, oldState, newState, occupant, changedBy, LocalDateTime.now());
+    }
+}
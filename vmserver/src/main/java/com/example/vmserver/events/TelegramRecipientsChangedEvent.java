@@ -0,0 +1,9 @@
+package com.example.vmserver.events;
+
+/**
+ * Изменение, влияющее на список получателей уведомлений Telegram:
+ * регистрация или отмена регистрации чата, смена роли или логина пользователя, удаление пользователя.
+ * @param reason причина (для журнала)
+ */
+public record TelegramRecipientsChangedEvent(String reason) {
+}
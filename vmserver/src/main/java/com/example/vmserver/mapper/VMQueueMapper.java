@@ -2,6 +2,7 @@ package com.example.vmserver.mapper;
 
 import com.example.vmserver.dto.VMQueueDTO;
 import com.example.vmserver.model.VMQueue;
+import com.example.vmserver.repository.projection.QueueHistoryView;
 import lombok.experimental.UtilityClass;
 
 @UtilityClass
@@ -23,4 +24,21 @@ public class VMQueueMapper {
                 .releasedAt(queue.getReleasedAt())
                 .build();
     }
-}
\ No newline at end of file
+    
+    public static VMQueueDTO historyToQueueDTO(QueueHistoryView history) {
+        if (history == null) {
+            return null;
+        }
+        
+        return VMQueueDTO.builder()
+                .id(history.getId())
+                .userId(history.getUserId())
+                .username(history.getUsername())
+                .stationId(history.getStationId())
+                .stationIp(history.getStationIp())
+                .active(history.getActive())
+                .createdAt(history.getCreatedAt())
+                .releasedAt(history.getReleasedAt())
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.vmserver.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+@Entity
+@Table(name = "notification_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Уведомление об изменении статуса станции, ожидающее доставки в Telegram")
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Уникальный идентификатор уведомления", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long id;
+
+    @Column(name = "station_id", nullable = false)
+    @Schema(description = "ID станции", example = "1")
+    private Long stationId;
+
+    @Column(name = "station_ip", length = 64)
+    @Schema(description = "IP-адрес станции на момент изменения", example = "192.168.1.100")
+    private String stationIp;
+
+    @Column(name = "old_status", length = 32)
+    @Schema(description = "Статус до изменения", example = "FREE")
+    private String oldStatus;
+
+    @Column(name = "new_status", length = 32)
+    @Schema(description = "Статус после изменения", example = "WORK")
+    private String newStatus;
+
+    @Column(name = "changed_by")
+    @Schema(description = "Пользователь, изменивший статус", example = "admin")
+    private String changedBy;
+
+    @Column(name = "changed_at", nullable = false)
+    @Schema(description = "Время изменения статуса")
+    private LocalDateTime changedAt;
+
+    @Column(nullable = false)
+    @Schema(description = "Количество выполненных попыток доставки", example = "0")
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    @Schema(description = "Время следующей попытки (null - доставлено или попытки исчерпаны)")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "sent_at")
+    @Schema(description = "Время успешной доставки")
+    private LocalDateTime sentAt;
+
+    @Column(name = "waiting_since")
+    @Schema(description = "С какого момента уведомление ждёт восстановления недоступного канала (попытки не расходуются)")
+    private LocalDateTime waitingSince;
+
+    @Column(name = "failed_at")
+    @Schema(description = "Время отказа от доставки: попытки исчерпаны, повторов больше не будет")
+    private LocalDateTime failedAt;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "sent_channels")
+    @Schema(description = "Каналы, уже доставившие уведомление (повтор идёт только в остальные)", example = "[\"memory\"]")
+    private String[] sentChannels;
+
+    @Column(name = "last_error", length = 1000)
+    @Schema(description = "Текст последней ошибки доставки")
+    private String lastError;
+
+    public NotificationOutbox(Long stationId, String stationIp, String oldStatus, String newStatus, String changedBy,
+                              LocalDateTime changedAt) {
+        this.stationId = stationId;
+        this.stationIp = stationIp;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.changedBy = changedBy;
+        this.changedAt = changedAt;
+        this.nextAttemptAt = changedAt;
+    }
+
+    /**
+     * Доставлено ли уведомление в канал
+     */
+    public boolean isSentTo(String channel) {
+        return sentChannels != null && Arrays.asList(sentChannels).contains(channel);
+    }
+
+    /**
+     * Отметить доставку в канал
+     */
+    public void markSentTo(String channel) {
+        if (isSentTo(channel)) {
+            return;
+        }
+        String[] current = sentChannels != null ? sentChannels : new String[0];
+        String[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = channel;
+        sentChannels = updated;
+    }
+}
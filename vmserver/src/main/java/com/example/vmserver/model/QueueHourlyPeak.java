@@ -0,0 +1,33 @@
+package com.example.vmserver.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "queue_hourly_peak")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Пик одновременных завершённых сессий всего парка за час")
+public class QueueHourlyPeak {
+
+    @Id
+    @Column(name = "hour_start")
+    @Schema(description = "Начало часа", example = "2024-01-15T10:00:00")
+    private LocalDateTime hourStart;
+
+    @Column(name = "peak_sessions", nullable = false)
+    @Schema(description = "Максимум одновременных сессий в этот час", example = "12")
+    private Integer peakSessions;
+
+    @Column(name = "peak_at", nullable = false)
+    @Schema(description = "Момент достижения максимума", example = "2024-01-15T10:25:00")
+    private LocalDateTime peakAt;
+}
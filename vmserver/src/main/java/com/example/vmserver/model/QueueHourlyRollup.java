@@ -0,0 +1,73 @@
+package com.example.vmserver.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "queue_hourly_rollup",
+       uniqueConstraints = @UniqueConstraint(name = "uq_queue_hourly_rollup_station_hour",
+                                             columnNames = {"station_id", "hour_start"}),
+       indexes = @Index(name = "idx_queue_hourly_rollup_hour", columnList = "hour_start"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Почасовой агрегат завершённых сессий очереди по станции")
+public class QueueHourlyRollup {
+
+    /**
+     * Границы интервалов гистограммы длительностей, секунды: интервал i - [DURATION_BOUNDS_SECONDS[i - 1],
+     * DURATION_BOUNDS_SECONDS[i]), последний - от 24 часов. Должны совпадать с DURATION_BOUNDS_SQL.
+     */
+    public static final long[] DURATION_BOUNDS_SECONDS = {
+            60, 120, 300, 600, 900, 1200, 1800, 2700, 3600, 5400, 7200, 10800, 14400, 21600, 28800, 43200, 86400};
+
+    public static final String DURATION_BOUNDS_SQL =
+            "CAST(ARRAY[60, 120, 300, 600, 900, 1200, 1800, 2700, 3600, 5400, 7200, 10800, 14400, 21600, 28800, 43200, 86400] AS bigint[])";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Уникальный идентификатор агрегата", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long id;
+
+    @Column(name = "station_id", nullable = false)
+    @Schema(description = "ID станции (без внешнего ключа: история переживает удаление станции)", example = "1")
+    private Long stationId;
+
+    @Column(name = "hour_start", nullable = false)
+    @Schema(description = "Начало часа", example = "2024-01-15T10:00:00")
+    private LocalDateTime hourStart;
+
+    @Column(name = "session_count", nullable = false)
+    @Schema(description = "Количество сессий, начатых в этот час", example = "3")
+    private Long sessionCount;
+
+    @Column(name = "busy_seconds", nullable = false)
+    @Schema(description = "Время занятости станции в этот час, секунды", example = "2700")
+    private Long busySeconds;
+
+    @Column(name = "distinct_users", nullable = false)
+    @Schema(description = "Количество разных пользователей станции в этот час", example = "2")
+    private Integer distinctUsers;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "duration_histogram")
+    @Schema(description = "Количество сессий, начатых в этот час, по интервалам длительности DURATION_BOUNDS_SECONDS")
+    private long[] durationHistogram;
+
+    @Column(name = "duration_seconds")
+    @Schema(description = "Суммарная длительность сессий, начатых в этот час, секунды", example = "5400")
+    private Long durationSeconds;
+
+    @Column(name = "max_duration_seconds")
+    @Schema(description = "Максимальная длительность сессии, начатой в этот час, секунды", example = "3600")
+    private Long maxDurationSeconds;
+}
@@ -0,0 +1,40 @@
+package com.example.vmserver.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "queue_rollup_users",
+       uniqueConstraints = @UniqueConstraint(name = "uq_queue_rollup_users_station_hour_user",
+                                             columnNames = {"station_id", "hour_start", "user_id"}),
+       indexes = @Index(name = "idx_queue_rollup_users_hour_user", columnList = "hour_start, user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Пользователь, работавший на станции в течение часа (для точного подсчёта уникальных пользователей)")
+public class QueueRollupUser {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Уникальный идентификатор записи", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long id;
+
+    @Column(name = "station_id", nullable = false)
+    @Schema(description = "ID станции", example = "1")
+    private Long stationId;
+
+    @Column(name = "hour_start", nullable = false)
+    @Schema(description = "Начало часа", example = "2024-01-15T10:00:00")
+    private LocalDateTime hourStart;
+
+    @Column(name = "user_id", nullable = false)
+    @Schema(description = "ID пользователя", example = "5")
+    private Long userId;
+}
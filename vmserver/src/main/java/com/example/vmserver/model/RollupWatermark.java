@@ -0,0 +1,32 @@
+package com.example.vmserver.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "rollup_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Отметка прогресса инкрементальной агрегации")
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 64)
+    @Schema(description = "Имя агрегации", example = "queue_hourly")
+    private String name;
+
+    @Column(nullable = false)
+    @Schema(description = "Все сессии, освобождённые не позже этого момента, уже учтены")
+    private LocalDateTime watermark;
+
+    @Schema(description = "Дата и время последнего продвижения отметки")
+    private LocalDateTime updatedAt;
+}
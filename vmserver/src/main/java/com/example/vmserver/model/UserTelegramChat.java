@@ -16,6 +16,11 @@ import lombok.Setter;
 @Schema(description = "Модель для привязки пользователя к Telegram чату")
 public class UserTelegramChat {
     
+    /**
+     * Максимальная длина нормализованных правил подписки (размер колонки subscription)
+     */
+    public static final int SUBSCRIPTION_MAX_LENGTH = 500;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Schema(
@@ -55,6 +60,14 @@ public class UserTelegramChat {
     )
     private Boolean active = true;
     
+    @Column(name = "subscription", length = SUBSCRIPTION_MAX_LENGTH)
+    @Schema(
+        description = "Правила подписки на изменения статусов (null - все изменения): "
+                    + "id=<диапазоны ID>; ip=<префиксы IP>; from=<статусы>; to=<статусы>",
+        example = "id=1-50,75; to=REPAIR,DISCONNECT"
+    )
+    private String subscription;
+    
     @Schema(
         description = "Дата и время регистрации привязки",
         example = "2024-01-15T10:30:00"
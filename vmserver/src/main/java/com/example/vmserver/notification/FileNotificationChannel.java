@@ -0,0 +1,54 @@
+package com.example.vmserver.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Уведомления в файл: изменения дописываются в конец, по одной JSON-строке на изменение.
+ * Для локальных установок без Telegram и для офлайн-замеров пропускной способности
+ */
+@Component
+public class FileNotificationChannel implements NotificationChannel {
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final Path path;
+
+    public FileNotificationChannel(JsonMapper jsonMapper,
+                                   @Value("${notifications.channels.file.enabled:false}") boolean enabled,
+                                   @Value("${notifications.channels.file.path:notifications.ndjson}") String path) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void deliver(List<StatusChange> changes) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))) {
+            for (StatusChange change : changes) {
+                out.write(jsonMapper.writeValueAsBytes(change));
+                out.write('\n');
+            }
+        }
+    }
+}
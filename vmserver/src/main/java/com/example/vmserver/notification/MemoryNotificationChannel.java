@@ -0,0 +1,52 @@
+package com.example.vmserver.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Уведомления в памяти: последние изменения хранятся в ограниченном буфере.
+ * Для нагрузочных тестов пути изменения статусов без обращения к Telegram
+ */
+@Component
+public class MemoryNotificationChannel implements NotificationChannel {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final ArrayDeque<StatusChange> recent = new ArrayDeque<>();
+
+    public MemoryNotificationChannel(@Value("${notifications.channels.memory.enabled:false}") boolean enabled,
+                                     @Value("${notifications.channels.memory.capacity:10000}") int capacity) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void deliver(List<StatusChange> changes) {
+        for (StatusChange change : changes) {
+            if (recent.size() >= capacity) {
+                recent.pollFirst();
+            }
+            recent.addLast(change);
+        }
+    }
+
+    /**
+     * Последние доставленные изменения (старые сначала)
+     */
+    public synchronized List<StatusChange> getRecent() {
+        return List.copyOf(recent);
+    }
+}
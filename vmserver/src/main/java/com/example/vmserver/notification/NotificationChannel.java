@@ -0,0 +1,35 @@
+package com.example.vmserver.notification;
+
+import java.util.List;
+
+/**
+ * Канал доставки уведомлений об изменении статусов станций (Telegram, память, файл).
+ * Реализации - Spring-компоненты; каждый включённый канал получает свою очередь,
+ * поток доставки, пакетирование и метрики (см. NotificationChannels).
+ */
+public interface NotificationChannel {
+
+    /**
+     * Имя канала в метриках и журнале
+     */
+    String getName();
+
+    /**
+     * Включён ли канал (выключенный канал не получает уведомлений)
+     */
+    boolean isEnabled();
+
+    /**
+     * Доступен ли канал сейчас. Пока внешняя система канала недоступна, outbox не передаёт
+     * ему уведомления и не расходует на них попытки, а после восстановления доставляет сразу
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Доставить пачку изменений. Вызывается из потока доставки канала, по одной пачке за раз
+     * @throws Exception если пачка не доставлена (outbox повторит доставку)
+     */
+    void deliver(List<StatusChange> changes) throws Exception;
+}
@@ -0,0 +1,29 @@
+package com.example.vmserver.notification;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Метрики канала уведомлений с момента запуска приложения
+ */
+@Schema(description = "Метрики канала уведомлений")
+public record NotificationChannelStats(
+    @Schema(description = "Имя канала", example = "telegram")
+    String name,
+    @Schema(description = "Канал включён")
+    boolean enabled,
+    @Schema(description = "Пачек в очереди канала сейчас", example = "0")
+    int queued,
+    @Schema(description = "Изменений доставлено", example = "120")
+    long sent,
+    @Schema(description = "Изменений не доставлено из-за ошибки канала", example = "0")
+    long failed,
+    @Schema(description = "Изменений отклонено из-за переполнения очереди", example = "0")
+    long dropped,
+    @Schema(description = "Изменений пропущено: доставку отменили по таймауту до того, как канал её начал", example = "0")
+    long cancelled,
+    @Schema(description = "Вызовов канала (после пакетирования)", example = "15")
+    long batches,
+    @Schema(description = "99-й перцентиль задержки от постановки в очередь до доставки, мс", example = "850")
+    Long p99LatencyMs
+) {
+}
@@ -0,0 +1,213 @@
+package com.example.vmserver.notification;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Рассылка изменений статусов по всем включённым каналам уведомлений.
+ * У каждого канала своя ограниченная очередь и поток доставки: медленный канал
+ * не задерживает остальные. Поток забирает из очереди сразу несколько пачек и
+ * доставляет их одним вызовом канала. Пачки, результат которых уже отменён
+ * (вызывающий не дождался доставки и повторит её сам), пропускаются.
+ */
+@Component
+public class NotificationChannels {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationChannels.class);
+
+    // Сколько последних задержек доставки хранить для перцентиля
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final List<ChannelWorker> workers;
+
+    public NotificationChannels(List<NotificationChannel> channels,
+                                @Value("${notifications.channels.queue-capacity:1000}") int queueCapacity,
+                                @Value("${notifications.channels.batch-size:100}") int batchSize) {
+        List<ChannelWorker> created = new ArrayList<>();
+        for (NotificationChannel channel : channels) {
+            ChannelWorker worker = new ChannelWorker(channel, Math.max(1, queueCapacity), Math.max(1, batchSize));
+            if (channel.isEnabled()) {
+                worker.start();
+            }
+            created.add(worker);
+            logger.info("Канал уведомлений {}: {}", channel.getName(), channel.isEnabled() ? "включён" : "выключен");
+        }
+        this.workers = List.copyOf(created);
+    }
+
+    /**
+     * Имена включённых каналов
+     */
+    public List<String> getEnabledChannels() {
+        return workers.stream()
+                .filter(worker -> worker.channel.isEnabled())
+                .map(worker -> worker.channel.getName())
+                .toList();
+    }
+
+    /**
+     * Доступен ли включённый канал (см. NotificationChannel.isAvailable)
+     */
+    public boolean isAvailable(String channelName) {
+        return workers.stream()
+                .anyMatch(worker -> worker.channel.isEnabled() && worker.channel.getName().equals(channelName)
+                        && worker.channel.isAvailable());
+    }
+
+    /**
+     * Передать изменения одному каналу
+     * @return завершается, когда канал доставил изменения; с ошибкой, если не доставил или канал не найден.
+     *         Отмена до начала доставки убирает изменения из очереди канала
+     */
+    public CompletableFuture<Void> deliver(String channelName, List<StatusChange> changes) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return workers.stream()
+                .filter(worker -> worker.channel.isEnabled() && worker.channel.getName().equals(channelName))
+                .findFirst()
+                .map(worker -> worker.offer(changes))
+                .orElseGet(() -> CompletableFuture.failedFuture(new IllegalArgumentException(
+                        "Канал уведомлений " + channelName + " не найден или выключен")));
+    }
+
+    /**
+     * Метрики всех каналов
+     */
+    public List<NotificationChannelStats> getStats() {
+        return workers.stream().map(ChannelWorker::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(ChannelWorker::stop);
+    }
+
+    private record Delivery(List<StatusChange> changes, CompletableFuture<Void> result, long enqueuedAt) {
+    }
+
+    private static final class ChannelWorker implements Runnable {
+        private final NotificationChannel channel;
+        private final BlockingQueue<Delivery> queue;
+        private final int batchSize;
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int latencyNext;
+        private volatile Thread thread;
+
+        private ChannelWorker(NotificationChannel channel, int queueCapacity, int batchSize) {
+            this.channel = channel;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.batchSize = batchSize;
+        }
+
+        private void start() {
+            Thread worker = new Thread(this, "notification-" + channel.getName());
+            worker.setDaemon(true);
+            thread = worker;
+            worker.start();
+        }
+
+        private void stop() {
+            Thread worker = thread;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        private CompletableFuture<Void> offer(List<StatusChange> changes) {
+            Delivery delivery = new Delivery(changes, new CompletableFuture<>(), System.nanoTime());
+            if (thread == null || !queue.offer(delivery)) {
+                dropped.add(changes.size());
+                delivery.result().completeExceptionally(new RejectedExecutionException(
+                        "Очередь канала уведомлений " + channel.getName() + " переполнена"));
+            }
+            return delivery.result();
+        }
+
+        @Override
+        public void run() {
+            List<Delivery> pending = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    pending.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                queue.drainTo(pending, batchSize - 1);
+                deliver(pending);
+                pending.clear();
+            }
+        }
+
+        private void deliver(List<Delivery> pending) {
+            pending.removeIf(delivery -> {
+                if (delivery.result().isCancelled()) {
+                    cancelled.add(delivery.changes().size());
+                    return true;
+                }
+                return false;
+            });
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<StatusChange> changes = new ArrayList<>();
+            pending.forEach(delivery -> changes.addAll(delivery.changes()));
+            batches.increment();
+            try {
+                channel.deliver(changes);
+                sent.add(changes.size());
+                long now = System.nanoTime();
+                for (Delivery delivery : pending) {
+                    recordLatency(now - delivery.enqueuedAt());
+                    delivery.result().complete(null);
+                }
+            } catch (Exception e) {
+                failed.add(changes.size());
+                logger.warn("Канал уведомлений {} не доставил {} изменений: {}",
+                        channel.getName(), changes.size(), e.getMessage());
+                pending.forEach(delivery -> delivery.result().completeExceptionally(e));
+            }
+        }
+
+        private synchronized void recordLatency(long nanos) {
+            latencies[latencyNext] = nanos;
+            latencyNext = (latencyNext + 1) % latencies.length;
+            latencyCount = Math.min(latencyCount + 1, latencies.length);
+        }
+
+        private synchronized Long p99LatencyMs() {
+            if (latencyCount == 0) {
+                return null;
+            }
+            long[] samples = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(samples);
+            int rank = (int) Math.ceil(0.99 * samples.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(samples[Math.max(0, rank)]);
+        }
+
+        private NotificationChannelStats stats() {
+            return new NotificationChannelStats(channel.getName(), channel.isEnabled(), queue.size(),
+                    sent.sum(), failed.sum(), dropped.sum(), cancelled.sum(), batches.sum(), p99LatencyMs());
+        }
+    }
+}
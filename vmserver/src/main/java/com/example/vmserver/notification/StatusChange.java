@@ -0,0 +1,22 @@
+package com.example.vmserver.notification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Изменение статуса станции, доставляемое каналами уведомлений
+ * @param stationId ID станции
+ * @param stationIp IP-адрес станции на момент изменения
+ * @param oldStatus статус до изменения
+ * @param newStatus статус после изменения
+ * @param changedBy пользователь, изменивший статус
+ * @param changedAt время изменения
+ */
+public record StatusChange(
+    Long stationId,
+    String stationIp,
+    String oldStatus,
+    String newStatus,
+    String changedBy,
+    LocalDateTime changedAt
+) {
+}
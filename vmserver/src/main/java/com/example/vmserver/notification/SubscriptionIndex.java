@@ -0,0 +1,192 @@
+package com.example.vmserver.notification;
+
+import com.example.vmserver.enums.VMState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Неизменяемый индекс подписок для маршрутизации изменений статусов по чатам.
+ * Каждое условие правил скомпилировано в битовые множества подписчиков:
+ * <ul>
+ *   <li>переход статусов - таблица (старый, новый) -> множество, поиск за O(1);</li>
+ *   <li>ID станции - отрезки между границами диапазонов, поиск отрезка двоичным поиском;</li>
+ *   <li>IP станции - префиксное дерево, поиск за длину адреса.</li>
+ * </ul>
+ * Получатели изменения - пересечение трёх множеств; перебора всех подписок нет.
+ */
+public final class SubscriptionIndex {
+
+    // Ячейка 0 - статус неизвестен (null или не из VMState)
+    private static final int STATE_SLOTS = VMState.values().length + 1;
+
+    private static final SubscriptionIndex EMPTY = new SubscriptionIndex(List.of(), List.of());
+
+    private final long[] chatIds;
+    private final BitSet[][] byTransition = new BitSet[STATE_SLOTS][STATE_SLOTS];
+    private final long[] idBounds;
+    private final BitSet[] byIdSegment;
+    private final BitSet anyIp = new BitSet();
+    private final IpNode ipRoot = new IpNode();
+
+    private static final class IpNode {
+        private final Map<Character, IpNode> children = new HashMap<>();
+        private final BitSet subscribers = new BitSet();
+    }
+
+    /**
+     * @param chatIds ID чатов
+     * @param rules правила подписки чатов (в том же порядке)
+     */
+    public SubscriptionIndex(List<Long> chatIds, List<SubscriptionRule> rules) {
+        int count = chatIds.size();
+        this.chatIds = chatIds.stream().mapToLong(Long::longValue).toArray();
+
+        // Переходы статусов
+        for (BitSet[] row : byTransition) {
+            for (int to = 0; to < STATE_SLOTS; to++) {
+                row[to] = new BitSet(count);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            SubscriptionRule rule = rules.get(i);
+            for (int from = 0; from < STATE_SLOTS; from++) {
+                if (!matchesState(rule.fromStates().isEmpty(), rule.fromStates().contains(stateOf(from)))) {
+                    continue;
+                }
+                for (int to = 0; to < STATE_SLOTS; to++) {
+                    if (matchesState(rule.toStates().isEmpty(), rule.toStates().contains(stateOf(to)))) {
+                        byTransition[from][to].set(i);
+                    }
+                }
+            }
+        }
+
+        // Отрезки ID станций: границы - начала диапазонов и числа после их концов
+        TreeSet<Long> bounds = new TreeSet<>();
+        for (SubscriptionRule rule : rules) {
+            for (long[] range : rule.stationIds()) {
+                bounds.add(range[0]);
+                if (range[1] < Long.MAX_VALUE) {
+                    bounds.add(range[1] + 1);
+                }
+            }
+        }
+        this.idBounds = bounds.stream().mapToLong(Long::longValue).toArray();
+        // Отрезок k содержит ID из [idBounds[k-1], idBounds[k]); отрезок 0 - меньше всех границ
+        this.byIdSegment = new BitSet[idBounds.length + 1];
+        for (int segment = 0; segment < byIdSegment.length; segment++) {
+            BitSet subscribers = new BitSet(count);
+            long segmentStart = segment == 0 ? Long.MIN_VALUE : idBounds[segment - 1];
+            for (int i = 0; i < count; i++) {
+                List<long[]> ranges = rules.get(i).stationIds();
+                if (ranges.isEmpty() || (segment > 0 && covers(ranges, segmentStart))) {
+                    subscribers.set(i);
+                }
+            }
+            byIdSegment[segment] = subscribers;
+        }
+
+        // Префиксы IP
+        for (int i = 0; i < count; i++) {
+            List<String> prefixes = rules.get(i).ipPrefixes();
+            if (prefixes.isEmpty()) {
+                anyIp.set(i);
+                continue;
+            }
+            for (String prefix : prefixes) {
+                IpNode node = ipRoot;
+                for (int c = 0; c < prefix.length(); c++) {
+                    node = node.children.computeIfAbsent(prefix.charAt(c), key -> new IpNode());
+                }
+                node.subscribers.set(i);
+            }
+        }
+    }
+
+    public static SubscriptionIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Чаты, подписанные на изменение (в порядке построения индекса)
+     */
+    public List<Long> match(StatusChange change) {
+        BitSet matched = (BitSet) byTransition[slotOf(change.oldStatus())][slotOf(change.newStatus())].clone();
+        if (matched.isEmpty()) {
+            return List.of();
+        }
+        matched.and(byIdSegment[segmentOf(change.stationId())]);
+        if (matched.isEmpty()) {
+            return List.of();
+        }
+        matched.and(ipSubscribers(change.stationIp()));
+
+        List<Long> result = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(chatIds[i]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return chatIds.length;
+    }
+
+    private BitSet ipSubscribers(String ip) {
+        BitSet subscribers = (BitSet) anyIp.clone();
+        if (ip == null) {
+            return subscribers;
+        }
+        IpNode node = ipRoot;
+        for (int c = 0; c < ip.length() && node != null; c++) {
+            node = node.children.get(ip.charAt(c));
+            if (node != null) {
+                subscribers.or(node.subscribers);
+            }
+        }
+        return subscribers;
+    }
+
+    private int segmentOf(Long stationId) {
+        if (stationId == null) {
+            return 0;
+        }
+        int position = Arrays.binarySearch(idBounds, stationId);
+        // Точное попадание на границу - начало отрезка position + 1
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static boolean covers(List<long[]> ranges, long id) {
+        for (long[] range : ranges) {
+            if (range[0] <= id && id <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesState(boolean unrestricted, boolean listed) {
+        return unrestricted || listed;
+    }
+
+    private static VMState stateOf(int slot) {
+        return slot == 0 ? null : VMState.values()[slot - 1];
+    }
+
+    private static int slotOf(String status) {
+        if (status == null) {
+            return 0;
+        }
+        try {
+            return VMState.valueOf(status).ordinal() + 1;
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+}
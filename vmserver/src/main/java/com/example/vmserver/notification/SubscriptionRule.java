@@ -0,0 +1,129 @@
+package com.example.vmserver.notification;
+
+import com.example.vmserver.enums.VMState;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Правила подписки чата на изменения статусов станций.
+ * Формат: условия через ";", значения условия через ",":
+ * {@code id=1-50,75; ip=10.0.1.,192.168.; from=WORK; to=REPAIR,DISCONNECT}.
+ * Значения одного условия объединяются по ИЛИ, условия - по И; отсутствующее условие не ограничивает.
+ * @param stationIds диапазоны ID станций [from, to] (пусто - любые станции)
+ * @param ipPrefixes префиксы IP-адреса станции (пусто - любые адреса)
+ * @param fromStates статусы до изменения (пусто - любые)
+ * @param toStates статусы после изменения (пусто - любые)
+ */
+public record SubscriptionRule(
+    List<long[]> stationIds,
+    List<String> ipPrefixes,
+    Set<VMState> fromStates,
+    Set<VMState> toStates
+) {
+
+    /**
+     * Правило без ограничений - все изменения
+     */
+    public static final SubscriptionRule ALL = new SubscriptionRule(List.of(), List.of(),
+            EnumSet.noneOf(VMState.class), EnumSet.noneOf(VMState.class));
+
+    /**
+     * Разбор текста правил
+     * @param text текст правил; null, пустая строка или "all" - все изменения
+     * @throws IllegalArgumentException если правило записано неверно
+     */
+    public static SubscriptionRule parse(String text) {
+        if (text == null || text.isBlank() || text.trim().equalsIgnoreCase("all")) {
+            return ALL;
+        }
+
+        List<long[]> stationIds = new ArrayList<>();
+        List<String> ipPrefixes = new ArrayList<>();
+        Set<VMState> fromStates = EnumSet.noneOf(VMState.class);
+        Set<VMState> toStates = EnumSet.noneOf(VMState.class);
+
+        for (String condition : text.split(";")) {
+            if (condition.isBlank()) {
+                continue;
+            }
+            int separator = condition.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Условие без '=': " + condition.trim());
+            }
+            String key = condition.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+            for (String value : condition.substring(separator + 1).split(",")) {
+                value = value.trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                switch (key) {
+                    case "id" -> stationIds.add(parseRange(value));
+                    case "ip" -> ipPrefixes.add(value);
+                    case "from" -> fromStates.add(parseState(value));
+                    case "to" -> toStates.add(parseState(value));
+                    default -> throw new IllegalArgumentException("Неизвестное условие: " + key);
+                }
+            }
+        }
+        return new SubscriptionRule(List.copyOf(stationIds), List.copyOf(ipPrefixes), fromStates, toStates);
+    }
+
+    /**
+     * Правило без ограничений
+     */
+    public boolean isAll() {
+        return stationIds.isEmpty() && ipPrefixes.isEmpty() && fromStates.isEmpty() && toStates.isEmpty();
+    }
+
+    /**
+     * Текст правил в нормализованном виде (null - все изменения)
+     */
+    public String format() {
+        if (isAll()) {
+            return null;
+        }
+        List<String> conditions = new ArrayList<>();
+        if (!stationIds.isEmpty()) {
+            conditions.add("id=" + stationIds.stream()
+                    .map(range -> range[0] == range[1] ? String.valueOf(range[0]) : range[0] + "-" + range[1])
+                    .collect(Collectors.joining(",")));
+        }
+        if (!ipPrefixes.isEmpty()) {
+            conditions.add("ip=" + String.join(",", ipPrefixes));
+        }
+        if (!fromStates.isEmpty()) {
+            conditions.add("from=" + fromStates.stream().map(Enum::name).collect(Collectors.joining(",")));
+        }
+        if (!toStates.isEmpty()) {
+            conditions.add("to=" + toStates.stream().map(Enum::name).collect(Collectors.joining(",")));
+        }
+        return String.join("; ", conditions);
+    }
+
+    private static long[] parseRange(String value) {
+        try {
+            int dash = value.indexOf('-', 1);
+            long from = Long.parseLong(dash < 0 ? value : value.substring(0, dash).trim());
+            long to = dash < 0 ? from : Long.parseLong(value.substring(dash + 1).trim());
+            if (from > to) {
+                throw new IllegalArgumentException("Неверный диапазон ID станций: " + value);
+            }
+            return new long[] {from, to};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверный ID станции: " + value);
+        }
+    }
+
+    private static VMState parseState(String value) {
+        try {
+            return VMState.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный статус: " + value);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.vmserver.notification;
+
+import com.example.vmserver.config.BotConfig;
+import com.example.vmserver.service.TelegramBotService;
+import com.example.vmserver.service.TelegramFanOut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Уведомления администраторам в Telegram: одиночное изменение - подробным сообщением,
+ * несколько - сводкой; каждому - по его подписке
+ */
+@Component
+public class TelegramNotificationChannel implements NotificationChannel {
+
+    private final TelegramBotService telegramBotService;
+    private final TelegramFanOut telegramFanOut;
+    private final BotConfig botConfig;
+    private final boolean enabled;
+
+    public TelegramNotificationChannel(TelegramBotService telegramBotService,
+                                       TelegramFanOut telegramFanOut,
+                                       BotConfig botConfig,
+                                       @Value("${notifications.channels.telegram.enabled:true}") boolean enabled) {
+        this.telegramBotService = telegramBotService;
+        this.telegramFanOut = telegramFanOut;
+        this.botConfig = botConfig;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String getName() {
+        return "telegram";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled && botConfig.isEnabled();
+    }
+
+    /**
+     * Предохранитель Telegram разомкнут и пробный запрос ещё не положен
+     */
+    @Override
+    public boolean isAvailable() {
+        return telegramFanOut.isAvailable();
+    }
+
+    @Override
+    public void deliver(List<StatusChange> changes) {
+        if (changes.size() == 1) {
+            telegramBotService.sendVMStatusChangeNotification(changes.get(0));
+        } else {
+            telegramBotService.sendVMStatusDigestNotification(changes);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.vmserver.repository;
+
+import com.example.vmserver.model.NotificationOutbox;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Уведомления, готовые к доставке; строки, захваченные другим экземпляром, пропускаются
+    @Query(value = "SELECT * FROM notification_outbox " +
+                   "WHERE sent_at IS NULL AND next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<NotificationOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Есть ли что отправлять: первая попытка - только когда окно сбора изменений истекло, повторы - по расписанию
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM notification_outbox " +
+                   "WHERE sent_at IS NULL AND next_attempt_at <= :now AND (attempts > 0 OR changed_at <= :windowStart))",
+           nativeQuery = true)
+    boolean existsReady(@Param("now") LocalDateTime now, @Param("windowStart") LocalDateTime windowStart);
+
+    // Уведомления, ждавшие недоступный канал, - к доставке сейчас: канал снова доступен.
+    // Захваченные строки (аренда) не затрагиваются: захват сбрасывает waiting_since
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.nextAttemptAt = :now, n.waitingSince = null " +
+           "WHERE n.sentAt IS NULL AND n.waitingSince IS NOT NULL AND n.nextAttemptAt > :now")
+    int wakeWaiting(@Param("now") LocalDateTime now);
+
+    // Уведомления, от доставки которых отказались (попытки исчерпаны), от последних отказов к первым;
+    // у строк, отклонённых до появления failed_at, момент отказа неизвестен и берётся время изменения
+    @Query("SELECT n FROM NotificationOutbox n WHERE n.sentAt IS NULL AND n.nextAttemptAt IS NULL " +
+           "ORDER BY COALESCE(n.failedAt, n.changedAt) DESC, n.id DESC")
+    List<NotificationOutbox> findFailed(Limit limit);
+
+    // Удалить доставленные и отклонённые уведомления старше указанного момента
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox n WHERE n.sentAt < :before " +
+           "OR (n.sentAt IS NULL AND n.nextAttemptAt IS NULL AND COALESCE(n.failedAt, n.changedAt) < :before)")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,150 @@
+package com.example.vmserver.repository;
+
+import com.example.vmserver.model.QueueHourlyRollup;
+import com.example.vmserver.repository.projection.RollupDurationBucketView;
+import com.example.vmserver.repository.projection.RollupHourPeakView;
+import com.example.vmserver.repository.projection.RollupHourTotalsView;
+import com.example.vmserver.repository.projection.RollupStationTotalsView;
+import com.example.vmserver.repository.projection.StationUserCountView;
+import com.example.vmserver.repository.projection.StationUserView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface QueueHourlyRollupRepository extends JpaRepository<QueueHourlyRollup, Long> {
+
+    // Завершённые сессии, освобождённые в (from, to], развёрнутые по часам, которые они занимают
+    String CLOSED_SESSION_HOURS =
+            "FROM vmqueue q " +
+            "CROSS JOIN LATERAL generate_series(date_trunc('hour', q.created_at), q.released_at, interval '1 hour') AS h(hour_start) " +
+            "WHERE q.active = false AND q.released_at > :from AND q.released_at <= :to " +
+            "AND q.created_at IS NOT NULL AND q.vm_station_id IS NOT NULL " +
+            "AND (h.hour_start < q.released_at OR h.hour_start = date_trunc('hour', q.created_at)) ";
+
+    // Сессия начата в этом часе (длительность и количество учитываются в часе начала)
+    String STARTED_IN_HOUR = "h.hour_start = date_trunc('hour', q.created_at)";
+
+    String SESSION_SECONDS = "GREATEST(CAST(EXTRACT(EPOCH FROM q.released_at - q.created_at) AS bigint), 0)";
+
+    // Самое раннее время освобождения (начальная отметка агрегации)
+    @Query(value = "SELECT MIN(q.released_at) FROM vmqueue q WHERE q.active = false", nativeQuery = true)
+    LocalDateTime findEarliestReleasedAt();
+
+    // Пользователи станций по часам (для точного подсчёта уникальных пользователей)
+    @Modifying
+    @Query(value = "INSERT INTO queue_rollup_users (station_id, hour_start, user_id) " +
+                   "SELECT DISTINCT q.vm_station_id, h.hour_start, q.current_user_id " +
+                   CLOSED_SESSION_HOURS +
+                   "AND q.current_user_id IS NOT NULL " +
+                   "ON CONFLICT (station_id, hour_start, user_id) DO NOTHING",
+           nativeQuery = true)
+    int insertUsers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Добавление сессий, занятости и гистограммы длительностей к почасовым агрегатам
+    @Modifying
+    @Query(value = "INSERT INTO queue_hourly_rollup (station_id, hour_start, session_count, busy_seconds, distinct_users, " +
+                   "duration_histogram, duration_seconds, max_duration_seconds) " +
+                   "SELECT g.station_id, g.hour_start, g.sessions, g.busy_seconds, 0, " +
+                   "ARRAY(SELECT COUNT(d.seconds) FROM generate_series(0, cardinality(" + QueueHourlyRollup.DURATION_BOUNDS_SQL + ")) AS b(i) " +
+                   "LEFT JOIN unnest(g.durations) AS d(seconds) " +
+                   "ON width_bucket(d.seconds, " + QueueHourlyRollup.DURATION_BOUNDS_SQL + ") = b.i " +
+                   "GROUP BY b.i ORDER BY b.i), " +
+                   "g.duration_seconds, g.max_duration_seconds " +
+                   "FROM (SELECT q.vm_station_id AS station_id, h.hour_start AS hour_start, " +
+                   "COUNT(*) FILTER (WHERE " + STARTED_IN_HOUR + ") AS sessions, " +
+                   "CAST(COALESCE(SUM(GREATEST(EXTRACT(EPOCH FROM " +
+                   "LEAST(q.released_at, h.hour_start + interval '1 hour') - GREATEST(q.created_at, h.hour_start)), 0)), 0) AS bigint) AS busy_seconds, " +
+                   "array_agg(" + SESSION_SECONDS + ") FILTER (WHERE " + STARTED_IN_HOUR + ") AS durations, " +
+                   "CAST(COALESCE(SUM(" + SESSION_SECONDS + ") FILTER (WHERE " + STARTED_IN_HOUR + "), 0) AS bigint) AS duration_seconds, " +
+                   "COALESCE(MAX(" + SESSION_SECONDS + ") FILTER (WHERE " + STARTED_IN_HOUR + "), 0) AS max_duration_seconds " +
+                   CLOSED_SESSION_HOURS +
+                   "GROUP BY q.vm_station_id, h.hour_start) g " +
+                   "ON CONFLICT (station_id, hour_start) DO UPDATE SET " +
+                   "session_count = queue_hourly_rollup.session_count + EXCLUDED.session_count, " +
+                   "busy_seconds = queue_hourly_rollup.busy_seconds + EXCLUDED.busy_seconds, " +
+                   "duration_histogram = ARRAY(SELECT COALESCE(t.old_count, 0) + COALESCE(t.new_count, 0) " +
+                   "FROM unnest(queue_hourly_rollup.duration_histogram, EXCLUDED.duration_histogram) " +
+                   "WITH ORDINALITY AS t(old_count, new_count, i) ORDER BY t.i), " +
+                   "duration_seconds = COALESCE(queue_hourly_rollup.duration_seconds, 0) + EXCLUDED.duration_seconds, " +
+                   "max_duration_seconds = GREATEST(queue_hourly_rollup.max_duration_seconds, EXCLUDED.max_duration_seconds)",
+           nativeQuery = true)
+    int upsertHours(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Пересчёт пика одновременных сессий парка в часах, затронутых окном: по всем сессиям,
+    // освобождённым не позже конца окна (события начала +1 и окончания -1, окончания раньше начал)
+    @Modifying
+    @Query(value = "WITH hours AS (SELECT DISTINCT h.hour_start " + CLOSED_SESSION_HOURS + "), " +
+                   "closed AS (SELECT hr.hour_start, GREATEST(q.created_at, hr.hour_start) AS started_at, q.released_at " +
+                   "FROM hours hr JOIN vmqueue_history q ON q.active = false AND q.vm_station_id IS NOT NULL " +
+                   "AND q.created_at IS NOT NULL AND q.created_at < hr.hour_start + interval '1 hour' " +
+                   "AND q.released_at > hr.hour_start AND q.released_at <= :to), " +
+                   "events AS (SELECT hour_start, started_at AS at, 1 AS delta FROM closed " +
+                   "UNION ALL SELECT hour_start, released_at, -1 FROM closed " +
+                   "WHERE released_at < hour_start + interval '1 hour'), " +
+                   "running AS (SELECT hour_start, at, SUM(delta) OVER (PARTITION BY hour_start ORDER BY at, delta " +
+                   "ROWS UNBOUNDED PRECEDING) AS concurrent FROM events) " +
+                   "INSERT INTO queue_hourly_peak (hour_start, peak_sessions, peak_at) " +
+                   "SELECT DISTINCT ON (hour_start) hour_start, CAST(concurrent AS int), at FROM running " +
+                   "ORDER BY hour_start, concurrent DESC, at " +
+                   "ON CONFLICT (hour_start) DO UPDATE SET " +
+                   "peak_sessions = EXCLUDED.peak_sessions, peak_at = EXCLUDED.peak_at",
+           nativeQuery = true)
+    int upsertPeaks(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Пересчёт уникальных пользователей в затронутых агрегатах
+    @Modifying
+    @Query(value = "UPDATE queue_hourly_rollup r SET distinct_users = " +
+                   "(SELECT COUNT(*) FROM queue_rollup_users u WHERE u.station_id = r.station_id AND u.hour_start = r.hour_start) " +
+                   "WHERE (r.station_id, r.hour_start) IN (SELECT q.vm_station_id, h.hour_start " + CLOSED_SESSION_HOURS + ")",
+           nativeQuery = true)
+    int refreshDistinctUsers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Суммы по станциям за период [from, to)
+    @Query("SELECT r.stationId AS stationId, s.ip AS stationIp, SUM(r.sessionCount) AS sessions, " +
+           "SUM(r.busySeconds) AS busySeconds " +
+           "FROM QueueHourlyRollup r LEFT JOIN VMStation s ON s.id = r.stationId " +
+           "WHERE r.hourStart >= :from AND r.hourStart < :to GROUP BY r.stationId, s.ip")
+    List<RollupStationTotalsView> sumByStation(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Суммы по часам за период [from, to)
+    @Query("SELECT r.hourStart AS hourStart, SUM(r.sessionCount) AS sessions, SUM(r.busySeconds) AS busySeconds, " +
+           "SUM(r.durationSeconds) AS durationSeconds, MAX(r.maxDurationSeconds) AS maxDurationSeconds " +
+           "FROM QueueHourlyRollup r WHERE r.hourStart >= :from AND r.hourStart < :to GROUP BY r.hourStart")
+    List<RollupHourTotalsView> sumByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Гистограмма длительностей сессий всего парка за период [from, to)
+    @Query(value = "SELECT CAST(t.i - 1 AS int) AS \"bucket\", CAST(SUM(t.total) AS bigint) AS \"total\" " +
+                   "FROM queue_hourly_rollup r CROSS JOIN LATERAL unnest(r.duration_histogram) WITH ORDINALITY AS t(total, i) " +
+                   "WHERE r.hour_start >= :from AND r.hour_start < :to GROUP BY t.i",
+           nativeQuery = true)
+    List<RollupDurationBucketView> sumDurationHistogram(@Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to);
+
+    // Пики одновременных сессий по часам за период [from, to)
+    @Query("SELECT p.hourStart AS hourStart, p.peakSessions AS peakSessions, p.peakAt AS peakAt " +
+           "FROM QueueHourlyPeak p WHERE p.hourStart >= :from AND p.hourStart < :to")
+    List<RollupHourPeakView> findPeaks(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Уникальные пользователи по станциям за период [from, to)
+    @Query("SELECT u.stationId AS stationId, COUNT(DISTINCT u.userId) AS total FROM QueueRollupUser u " +
+           "WHERE u.hourStart >= :from AND u.hourStart < :to GROUP BY u.stationId")
+    List<StationUserCountView> countDistinctUsersByStation(@Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to);
+
+    // Уникальные пользователи всего парка за период [from, to)
+    @Query("SELECT COUNT(DISTINCT u.userId) FROM QueueRollupUser u WHERE u.hourStart >= :from AND u.hourStart < :to")
+    long countDistinctUsers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Какие из указанных пользователей уже учтены в агрегатах периода [from, to)
+    @Query("SELECT DISTINCT u.stationId AS stationId, u.userId AS userId FROM QueueRollupUser u " +
+           "WHERE u.hourStart >= :from AND u.hourStart < :to AND u.userId IN :userIds")
+    List<StationUserView> findStationUsers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                           @Param("userIds") Collection<Long> userIds);
+}
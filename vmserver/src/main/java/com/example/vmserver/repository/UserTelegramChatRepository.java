@@ -1,9 +1,12 @@
 package com.example.vmserver.repository;
 
 import com.example.vmserver.model.UserTelegramChat;
+import com.example.vmserver.repository.projection.ChatSubscriptionView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -42,4 +45,13 @@ public interface UserTelegramChatRepository extends JpaRepository<UserTelegramCh
      * @param username имя пользователя
      */
     int deleteByUsername(String username);
+    
+    /**
+     * Чаты активных регистраций пользователей с ролью ADMIN и их правила подписки (одним запросом)
+     * @return список чатов в порядке регистрации
+     */
+    @Query("SELECT c.telegramChatId AS telegramChatId, c.subscription AS subscription " +
+           "FROM UserTelegramChat c JOIN c.vmUser u JOIN u.role r " +
+           "WHERE c.active = true AND UPPER(r.name) = 'ADMIN' ORDER BY c.id")
+    List<ChatSubscriptionView> findActiveAdminSubscriptions();
 }
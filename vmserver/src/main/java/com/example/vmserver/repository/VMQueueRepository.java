@@ -1,13 +1,22 @@
 package com.example.vmserver.repository;
 
 import com.example.vmserver.model.VMQueue;
+import com.example.vmserver.repository.projection.QueueHistoryView;
+import com.example.vmserver.repository.projection.QueueRecordView;
+import com.example.vmserver.repository.projection.SessionIntervalView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VMQueueRepository extends JpaRepository<VMQueue, Long> {
@@ -15,17 +24,23 @@ public interface VMQueueRepository extends JpaRepository<VMQueue, Long> {
     // Найти активную запись по ID станции
     Optional<VMQueue> findByVmStationIdAndActiveTrue(Long stationId);
     
-    // Найти активную запись по ID пользователя
-    Optional<VMQueue> findByCurrentUserIdAndActiveTrue(Long userId);
+    // Колонки VMQueueDTO одним запросом, без загрузки сущностей пользователя и станции
+    String QUEUE_RECORD_COLUMNS =
+            "SELECT q.id AS id, u.id AS userId, u.username AS username, s.id AS stationId, s.ip AS stationIp, " +
+            "q.active AS active, q.createdAt AS createdAt, q.releasedAt AS releasedAt " +
+            "FROM VMQueue q LEFT JOIN q.currentUser u LEFT JOIN q.vmStation s ";
     
     // Найти все активные записи для пользователя
-    List<VMQueue> findByCurrentUserIdAndActiveTrueOrderByCreatedAtDesc(Long userId);
+    @Query(QUEUE_RECORD_COLUMNS + "WHERE u.id = :userId AND q.active = true ORDER BY q.createdAt DESC")
+    List<QueueHistoryView> findActiveRecordsByUserId(@Param("userId") Long userId);
     
-    // Найти все неактивные записи
-    List<VMQueue> findByActiveFalse();
+    // Последние активные записи пользователя (Limit.of(1) - текущая запись)
+    @Query(QUEUE_RECORD_COLUMNS + "WHERE u.id = :userId AND q.active = true ORDER BY q.createdAt DESC")
+    List<QueueHistoryView> findActiveRecordsByUserId(@Param("userId") Long userId, Limit limit);
     
     // Найти все активные записи
-    List<VMQueue> findByActiveTrue();
+    @Query(QUEUE_RECORD_COLUMNS + "WHERE q.active = true")
+    List<QueueHistoryView> findActiveRecords();
     
     // Проверить, есть ли активная запись для станции
     boolean existsByVmStationIdAndActiveTrue(Long stationId);
@@ -52,4 +67,90 @@ public interface VMQueueRepository extends JpaRepository<VMQueue, Long> {
     // Дополнительный метод: найти последнюю активную запись для станции
     @Query("SELECT q FROM VMQueue q WHERE q.vmStation.id = :stationId AND q.active = true ORDER BY q.createdAt DESC")
     List<VMQueue> findLastActiveByStationId(@Param("stationId") Long stationId);
+    
+    // Последние записи очереди для отчёта (только выводимые колонки)
+    @Query("SELECT q.id AS id, u.username AS username, s.ip AS stationIp, q.createdAt AS createdAt, " +
+           "q.releasedAt AS releasedAt, q.active AS active " +
+           "FROM VMQueue q LEFT JOIN q.currentUser u LEFT JOIN q.vmStation s ORDER BY q.createdAt DESC")
+    List<QueueRecordView> findRecentQueueRecords(Limit limit);
+    
+    // N последних записей очереди вместе с пользователем и станцией (индекс по created_at)
+    @Query("SELECT q FROM VMQueue q LEFT JOIN FETCH q.currentUser LEFT JOIN FETCH q.vmStation ORDER BY q.createdAt DESC")
+    List<VMQueue> findRecentWithUserAndStation(Limit limit);
+    
+    // Ещё не агрегированные сессии (активные и освобождённые после rolledUpTo), пересекающие интервал [from, to),
+    // в порядке начала; архив содержит только агрегированные сессии. Читаются курсором
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT q.vm_station_id AS \"stationId\", s.ip AS \"stationIp\", q.current_user_id AS \"userId\", " +
+                   "q.created_at AS \"startedAt\", q.released_at AS \"releasedAt\", q.active AS \"active\" " +
+                   "FROM vmqueue q LEFT JOIN vm_stations s ON s.id = q.vm_station_id " +
+                   "WHERE q.vm_station_id IS NOT NULL AND q.created_at < :to " +
+                   "AND (q.active = true OR q.released_at > :rolledUpTo) " +
+                   "AND (q.released_at IS NULL OR q.released_at > :from) " +
+                   "ORDER BY q.created_at",
+           nativeQuery = true)
+    Stream<SessionIntervalView> streamUnrolledSessions(@Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to,
+                                                       @Param("rolledUpTo") LocalDateTime rolledUpTo);
+    
+    // Все сессии истории (оперативные, архивные и активные), пересекающие интервал [from, to), в порядке начала:
+    // точный пик часов, где агрегированные и неагрегированные сессии меняются одновременно
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT q.vm_station_id AS \"stationId\", CAST(NULL AS varchar) AS \"stationIp\", " +
+                   "q.current_user_id AS \"userId\", q.created_at AS \"startedAt\", " +
+                   "q.released_at AS \"releasedAt\", q.active AS \"active\" " +
+                   "FROM vmqueue_history q " +
+                   "WHERE q.vm_station_id IS NOT NULL AND q.created_at < :to " +
+                   "AND (q.active = true OR q.released_at > :from) " +
+                   "ORDER BY q.created_at",
+           nativeQuery = true)
+    Stream<SessionIntervalView> streamSessions(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    // Завершённые записи истории (оперативные и архивные) с пользователем и станцией
+    String INACTIVE_HISTORY =
+            "SELECT h.id AS \"id\", h.current_user_id AS \"userId\", u.username AS \"username\", " +
+            "h.vm_station_id AS \"stationId\", s.ip AS \"stationIp\", h.active AS \"active\", " +
+            "h.created_at AS \"createdAt\", h.released_at AS \"releasedAt\" " +
+            "FROM vmqueue_history h LEFT JOIN vmuser u ON u.id = h.current_user_id " +
+            "LEFT JOIN vm_stations s ON s.id = h.vm_station_id " +
+            "WHERE h.active = false AND h.released_at >= :from ";
+    
+    // Страница завершённых записей по ключу (releasedAt, id) строго меньше заданного, новые сначала
+    @Query(value = INACTIVE_HISTORY +
+                   "AND (h.released_at, h.id) < (:beforeReleasedAt, :beforeId) " +
+                   "ORDER BY h.released_at DESC, h.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<QueueHistoryView> findInactivePage(@Param("from") LocalDateTime from,
+                                            @Param("beforeReleasedAt") LocalDateTime beforeReleasedAt,
+                                            @Param("beforeId") Long beforeId,
+                                            @Param("limit") int limit);
+    
+    // Все завершённые записи периода [from, to), новые сначала; читаются курсором
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = INACTIVE_HISTORY +
+                   "AND h.released_at < :to ORDER BY h.released_at DESC, h.id DESC",
+           nativeQuery = true)
+    Stream<QueueHistoryView> streamInactive(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    // Запись из архива завершённых сессий
+    @Query(value = "SELECT a.id AS \"id\", a.current_user_id AS \"userId\", u.username AS \"username\", " +
+                   "a.vm_station_id AS \"stationId\", s.ip AS \"stationIp\", a.active AS \"active\", " +
+                   "a.created_at AS \"createdAt\", a.released_at AS \"releasedAt\" " +
+                   "FROM vmqueue_archive a LEFT JOIN vmuser u ON u.id = a.current_user_id " +
+                   "LEFT JOIN vm_stations s ON s.id = a.vm_station_id WHERE a.id = :id",
+           nativeQuery = true)
+    Optional<QueueHistoryView> findArchivedById(@Param("id") Long id);
+    
+    // Количество записей в архиве
+    @Query(value = "SELECT COUNT(*) FROM vmqueue_archive", nativeQuery = true)
+    long countArchived();
 }
\ No newline at end of file
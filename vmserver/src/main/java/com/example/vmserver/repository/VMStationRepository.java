@@ -2,10 +2,21 @@ package com.example.vmserver.repository;
 
 import com.example.vmserver.enums.VMState;
 import com.example.vmserver.model.VMStation;
+import com.example.vmserver.repository.projection.StateCountView;
+import com.example.vmserver.repository.projection.StationDetailView;
+import com.example.vmserver.repository.projection.StationStateView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface VMStationRepository extends JpaRepository<VMStation, Long>, JpaSpecificationExecutor<VMStation> {
     //Получить станцию по ip
@@ -13,4 +24,45 @@ public interface VMStationRepository extends JpaRepository<VMStation, Long>, Jpa
 
     // Подсчитать количество станций по статусу
     long countByState(VMState state);
+
+    // Количество станций по каждому статусу одним запросом
+    @Query("SELECT s.state AS state, COUNT(s) AS total FROM VMStation s GROUP BY s.state")
+    List<StateCountView> countGroupedByState();
+
+    // Состояние каждой станции (сверка счетчиков состояний)
+    @Query("SELECT s.id AS id, s.state AS state FROM VMStation s")
+    List<StationStateView> findAllStates();
+
+    // Станции с текущим пользователем: LEFT JOIN к активной записи очереди
+    @Query("SELECT s.id AS id, s.ip AS ip, s.port AS port, s.state AS state, s.login AS login, " +
+           "u.username AS currentUser, q.createdAt AS assignedAt " +
+           "FROM VMStation s LEFT JOIN VMQueue q ON q.vmStation = s AND q.active = true " +
+           "LEFT JOIN q.currentUser u ORDER BY s.id")
+    List<StationDetailView> findStationDetails();
+    
+    // То же, но курсором: строки читаются порциями по мере записи отчёта (нужна открытая транзакция)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.id AS id, s.ip AS ip, s.port AS port, s.state AS state, s.login AS login, " +
+           "u.username AS currentUser, q.createdAt AS assignedAt " +
+           "FROM VMStation s LEFT JOIN VMQueue q ON q.vmStation = s AND q.active = true " +
+           "LEFT JOIN q.currentUser u ORDER BY s.id")
+    Stream<StationDetailView> streamStationDetails();
+
+    /**
+     * Количество станций по статусам (статусы без станций - с нулем)
+     * @return счетчики для всех значений VMState
+     */
+    default EnumMap<VMState, Long> countByStates() {
+        EnumMap<VMState, Long> counts = new EnumMap<>(VMState.class);
+        for (VMState state : VMState.values()) {
+            counts.put(state, 0L);
+        }
+        for (StateCountView row : countGroupedByState()) {
+            counts.put(row.getState(), row.getTotal());
+        }
+        return counts;
+    }
 }
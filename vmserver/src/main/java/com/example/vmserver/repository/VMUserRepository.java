@@ -1,16 +1,23 @@
 package com.example.vmserver.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.example.vmserver.model.Role;
 import com.example.vmserver.model.VMUser;
+import com.example.vmserver.repository.projection.RoleCountView;
 
 @Repository
 public interface VMUserRepository extends JpaRepository<VMUser, Long> {
     Optional<VMUser> findByUsername(String username);
 
     long countByRole(Role role);
+
+    // Количество пользователей по ролям одним запросом
+    @Query("SELECT upper(r.name) AS role, COUNT(u) AS total FROM VMUser u LEFT JOIN u.role r GROUP BY upper(r.name)")
+    List<RoleCountView> countGroupedByRole();
 }
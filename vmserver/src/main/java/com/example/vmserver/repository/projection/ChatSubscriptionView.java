@@ -0,0 +1,10 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Чат получателя уведомлений и его правила подписки
+ */
+public interface ChatSubscriptionView {
+    Long getTelegramChatId();
+
+    String getSubscription();
+}
@@ -0,0 +1,24 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись очереди или её архива с пользователем и станцией (колонки VMQueueDTO)
+ */
+public interface QueueHistoryView {
+    Long getId();
+
+    Long getUserId();
+
+    String getUsername();
+
+    Long getStationId();
+
+    String getStationIp();
+
+    Boolean getActive();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getReleasedAt();
+}
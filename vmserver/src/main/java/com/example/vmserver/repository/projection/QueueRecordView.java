@@ -0,0 +1,20 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись очереди для отчёта: только выводимые колонки
+ */
+public interface QueueRecordView {
+    Long getId();
+
+    String getUsername();
+
+    String getStationIp();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getReleasedAt();
+
+    Boolean getActive();
+}
@@ -0,0 +1,10 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Строка агрегата "количество пользователей по роли"
+ */
+public interface RoleCountView {
+    String getRole();
+
+    Long getTotal();
+}
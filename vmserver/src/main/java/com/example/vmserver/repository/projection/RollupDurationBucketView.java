@@ -0,0 +1,10 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Интервал гистограммы длительностей: номер интервала (с нуля) и количество сессий
+ */
+public interface RollupDurationBucketView {
+    Integer getBucket();
+
+    Long getTotal();
+}
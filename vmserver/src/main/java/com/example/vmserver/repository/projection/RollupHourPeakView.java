@@ -0,0 +1,14 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Пик одновременных агрегированных сессий за один час
+ */
+public interface RollupHourPeakView {
+    LocalDateTime getHourStart();
+
+    Integer getPeakSessions();
+
+    LocalDateTime getPeakAt();
+}
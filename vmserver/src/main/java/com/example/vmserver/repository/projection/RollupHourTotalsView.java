@@ -0,0 +1,18 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сумма агрегатов всех станций за один час
+ */
+public interface RollupHourTotalsView {
+    LocalDateTime getHourStart();
+
+    Long getSessions();
+
+    Long getBusySeconds();
+
+    Long getDurationSeconds();
+
+    Long getMaxDurationSeconds();
+}
@@ -0,0 +1,14 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Сумма почасовых агрегатов станции за период
+ */
+public interface RollupStationTotalsView {
+    Long getStationId();
+
+    String getStationIp();
+
+    Long getSessions();
+
+    Long getBusySeconds();
+}
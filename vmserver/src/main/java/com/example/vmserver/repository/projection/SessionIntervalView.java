@@ -0,0 +1,20 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сессия работы на станции: начало и окончание записи очереди
+ */
+public interface SessionIntervalView {
+    Long getStationId();
+
+    String getStationIp();
+
+    Long getUserId();
+
+    LocalDateTime getStartedAt();
+
+    LocalDateTime getReleasedAt();
+
+    Boolean getActive();
+}
@@ -0,0 +1,12 @@
+package com.example.vmserver.repository.projection;
+
+import com.example.vmserver.enums.VMState;
+
+/**
+ * Строка агрегата "количество станций по состоянию"
+ */
+public interface StateCountView {
+    VMState getState();
+
+    Long getTotal();
+}
@@ -0,0 +1,24 @@
+package com.example.vmserver.repository.projection;
+
+import java.time.LocalDateTime;
+
+import com.example.vmserver.enums.VMState;
+
+/**
+ * Станция вместе с текущим пользователем из активной записи очереди
+ */
+public interface StationDetailView {
+    Long getId();
+
+    String getIp();
+
+    Integer getPort();
+
+    VMState getState();
+
+    String getLogin();
+
+    String getCurrentUser();
+
+    LocalDateTime getAssignedAt();
+}
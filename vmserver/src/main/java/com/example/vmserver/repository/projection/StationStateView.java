@@ -0,0 +1,12 @@
+package com.example.vmserver.repository.projection;
+
+import com.example.vmserver.enums.VMState;
+
+/**
+ * Состояние одной станции
+ */
+public interface StationStateView {
+    Long getId();
+
+    VMState getState();
+}
@@ -0,0 +1,10 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Количество уникальных пользователей станции
+ */
+public interface StationUserCountView {
+    Long getStationId();
+
+    Long getTotal();
+}
@@ -0,0 +1,10 @@
+package com.example.vmserver.repository.projection;
+
+/**
+ * Пара станция - пользователь
+ */
+public interface StationUserView {
+    Long getStationId();
+
+    Long getUserId();
+}
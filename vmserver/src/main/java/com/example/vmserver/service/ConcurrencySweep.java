@@ -0,0 +1,85 @@
+package com.example.vmserver.service;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Заметающая прямая по интервалам [start, end), поступающим в порядке начала: максимум
+ * одновременных интервалов в каждом слоте фиксированной длины и момент его достижения.
+ * Число одновременных интервалов растёт только в моменты начала и на границах слотов
+ * (переходящие интервалы), поэтому максимум достаточно проверять там. Время - секунды
+ * от начала первого слота.
+ */
+final class ConcurrencySweep {
+
+    private final long slotSeconds;
+    private final int[] peak;
+    private final long[] peakAt;
+
+    // Концы открытых интервалов
+    private final PriorityQueue<Long> activeEnds = new PriorityQueue<>();
+
+    private int slot;
+
+    ConcurrencySweep(long slotSeconds, int slotCount) {
+        this.slotSeconds = slotSeconds;
+        this.peak = new int[slotCount];
+        this.peakAt = new long[slotCount];
+        Arrays.fill(peakAt, -1);
+    }
+
+    /**
+     * Учитывает интервал; начало не должно быть меньше начала предыдущего интервала
+     */
+    void add(long start, long end) {
+        int target = slotOf(start);
+        advanceTo(target);
+        while (!activeEnds.isEmpty() && activeEnds.peek() <= start) {
+            activeEnds.poll();
+        }
+        if (end > start) {
+            activeEnds.add(end);
+        }
+        record(target, activeEnds.size(), start);
+    }
+
+    /**
+     * Доводит прямую до последнего слота (интервалы, переходящие через границы)
+     */
+    void finish() {
+        advanceTo(peak.length - 1);
+    }
+
+    int peak(int slot) {
+        return peak[slot];
+    }
+
+    /**
+     * Момент достижения максимума в слоте (-1, если интервалов в слоте не было)
+     */
+    long peakAt(int slot) {
+        return peakAt[slot];
+    }
+
+    private void advanceTo(int target) {
+        while (slot < target) {
+            slot++;
+            long boundary = slot * slotSeconds;
+            while (!activeEnds.isEmpty() && activeEnds.peek() <= boundary) {
+                activeEnds.poll();
+            }
+            record(slot, activeEnds.size(), boundary);
+        }
+    }
+
+    private void record(int target, int concurrent, long at) {
+        if (concurrent > peak[target]) {
+            peak[target] = concurrent;
+            peakAt[target] = at;
+        }
+    }
+
+    private int slotOf(long offset) {
+        return (int) Math.min(Math.max(offset, 0) / slotSeconds, peak.length - 1);
+    }
+}
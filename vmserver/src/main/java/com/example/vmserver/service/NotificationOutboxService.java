@@ -0,0 +1,353 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.model.NotificationOutbox;
+import com.example.vmserver.notification.NotificationChannels;
+import com.example.vmserver.notification.StatusChange;
+import com.example.vmserver.repository.NotificationOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox уведомлений об изменении статуса станций.
+ * Изменение станции записывает строку outbox в своей транзакции и не ждёт доставки;
+ * после фиксации фоновый диспетчер передаёт изменения включённым каналам уведомлений
+ * (Telegram, память, файл) и повторяет доставку с экспоненциальной задержкой, пока
+ * все каналы её не подтвердят. Подтвердившие каналы записываются в sent_channels,
+ * и повтор идёт только в оставшиеся.
+ * Изменения собираются в течение окна (digest-window-ms) от первого из них: всплеск
+ * переходов при начале или конце занятия уходит одной сводкой вместо десятков сообщений.
+ * Строки захватываются через FOR UPDATE SKIP LOCKED с арендой, поэтому несколько
+ * экземпляров приложения не доставляют одно уведомление одновременно. Аренда длиннее
+ * таймаута доставки, а не дождавшаяся доставка отменяется: строку не захватит другой
+ * экземпляр, пока она доставляется, и повтор не продублирует доставку из очереди канала.
+ * Пока канал недоступен (например, разомкнут предохранитель Telegram), уведомления ему
+ * не передаются и попытки на них не расходуются: строка ждёт (waiting_since) не дольше
+ * retry-max-ms, а когда канал снова доступен, ждущие строки доставляются сразу.
+ * Уведомление, исчерпавшее попытки, помечается failed_at: оно больше не выбирается,
+ * доступно для разбора (getFailed) и удаляется по истечении срока хранения, как и доставленные.
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int MAX_FAILED_LIMIT = 1000;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationChannels notificationChannels;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBase;
+    private final Duration retryMax;
+    private final Duration retention;
+    private final Duration digestWindow;
+    private final Duration deliveryTimeout;
+
+    // Недоступные каналы, из-за которых уведомления отложены
+    private final Set<String> waitingChannels = ConcurrentHashMap.newKeySet();
+
+    public NotificationOutboxService(NotificationOutboxRepository outboxRepository,
+                                     NotificationChannels notificationChannels,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${notifications.outbox.batch-size:500}") int batchSize,
+                                     @Value("${notifications.outbox.max-attempts:10}") int maxAttempts,
+                                     @Value("${notifications.outbox.lease-seconds:180}") long leaseSeconds,
+                                     @Value("${notifications.outbox.retry-base-ms:5000}") long retryBaseMs,
+                                     @Value("${notifications.outbox.retry-max-ms:600000}") long retryMaxMs,
+                                     @Value("${notifications.outbox.retention-days:7}") long retentionDays,
+                                     @Value("${notifications.outbox.digest-window-ms:5000}") long digestWindowMs,
+                                     @Value("${notifications.outbox.delivery-timeout-ms:120000}") long deliveryTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.notificationChannels = notificationChannels;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retryBase = Duration.ofMillis(retryBaseMs);
+        this.retryMax = Duration.ofMillis(retryMaxMs);
+        this.retention = Duration.ofDays(retentionDays);
+        this.digestWindow = Duration.ofMillis(digestWindowMs);
+        this.deliveryTimeout = Duration.ofMillis(deliveryTimeoutMs);
+        if (lease.compareTo(deliveryTimeout) <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "notifications.outbox.lease-seconds (%d с) должен быть больше delivery-timeout-ms (%d мс)",
+                    leaseSeconds, deliveryTimeoutMs));
+        }
+    }
+
+    /**
+     * Поставить уведомление об изменении статуса станции в очередь доставки.
+     * Выполняется в транзакции вызывающего: уведомление появится только вместе с изменением станции
+     */
+    @Transactional
+    public void enqueueStatusChange(Long stationId, String stationIp, VMState oldState, VMState newState,
+                                    String changedBy) {
+        NotificationOutbox notification = outboxRepository.save(new NotificationOutbox(
+                stationId,
+                stationIp,
+                oldState != null ? oldState.toString() : null,
+                newState != null ? newState.toString() : null,
+                changedBy,
+                LocalDateTime.now()));
+        logger.debug("Уведомление {} об изменении статуса станции {} ({} -> {}) поставлено в очередь",
+                notification.getId(), stationId, oldState, newState);
+    }
+
+    /**
+     * Плановая доставка. Изменения, накопленные за окно сбора, уходят одной сводкой
+     * (одно сообщение в чат на пачку), одиночное изменение - подробным уведомлением
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval-ms:1000}",
+               initialDelayString = "${notifications.outbox.initial-delay-ms:10000}")
+    public void dispatch() {
+        LocalDateTime startTime = LocalDateTime.now();
+        int sent = 0;
+        int failed = 0;
+
+        try {
+            wakeRecoveredChannels();
+            List<NotificationOutbox> batch;
+            do {
+                if (!isReady()) {
+                    break;
+                }
+                batch = claimBatch();
+                int delivered = deliver(batch);
+                sent += delivered;
+                failed += batch.size() - delivered;
+            } while (batch.size() == batchSize);
+
+            if (sent + failed > 0) {
+                Duration duration = Duration.between(startTime, LocalDateTime.now());
+                logger.info("Outbox уведомлений: доставлено {}, с ошибками {}, за {} мс", sent, failed, duration.toMillis());
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при доставке уведомлений из outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Уведомления, от доставки которых отказались, начиная с последних
+     * @param limit максимальное количество (не больше 1000)
+     */
+    @Transactional(readOnly = true)
+    public List<NotificationOutbox> getFailed(int limit) {
+        return outboxRepository.findFailed(Limit.of(Math.min(Math.max(limit, 1), MAX_FAILED_LIMIT)));
+    }
+
+    /**
+     * Удаление давно доставленных и давно отклонённых уведомлений
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.cleanup-interval-ms:3600000}",
+               initialDelayString = "${notifications.outbox.cleanup-initial-delay-ms:300000}")
+    public void purgeFinished() {
+        try {
+            Integer deleted = transactionTemplate.execute(status ->
+                    outboxRepository.deleteFinishedBefore(LocalDateTime.now().minus(retention)));
+            if (deleted != null && deleted > 0) {
+                logger.info("Из outbox удалено {} доставленных и отклонённых уведомлений", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при очистке outbox уведомлений: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Канал, который ждали отложенные уведомления, снова доступен: они доставляются сразу,
+     * не дожидаясь конца ожидания
+     */
+    private void wakeRecoveredChannels() {
+        List<String> recovered = waitingChannels.stream().filter(notificationChannels::isAvailable).toList();
+        if (recovered.isEmpty()) {
+            return;
+        }
+        waitingChannels.removeAll(recovered);
+        LocalDateTime now = LocalDateTime.now();
+        Integer woken = transactionTemplate.execute(status -> outboxRepository.wakeWaiting(now));
+        logger.info("Каналы уведомлений {} снова доступны, отложенных уведомлений к доставке: {}", recovered, woken);
+    }
+
+    /**
+     * Захватывает пачку готовых уведомлений: отодвигает следующую попытку на время аренды,
+     * чтобы после падения экземпляра уведомление было доставлено повторно
+     */
+    private List<NotificationOutbox> claimBatch() {
+        List<NotificationOutbox> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> due = outboxRepository.lockDue(now, batchSize);
+            for (NotificationOutbox notification : due) {
+                notification.setAttempts(notification.getAttempts() + 1);
+                notification.setNextAttemptAt(now.plus(lease));
+                notification.setWaitingSince(null);
+            }
+            return due;
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    /**
+     * Окно сбора истекло для самого старого нового изменения или подошло время повтора
+     */
+    private boolean isReady() {
+        LocalDateTime now = LocalDateTime.now();
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                outboxRepository.existsReady(now, now.minus(digestWindow))));
+    }
+
+    /**
+     * Доставляет пачку вне транзакции и фиксирует результат. Каждый канал получает только
+     * уведомления, которые он ещё не подтвердил: повтор после ошибки одного канала
+     * не дублирует записи в остальных. Недоступному каналу уведомления не передаются;
+     * если доставка не удалась только в недоступные каналы, попытка не засчитывается.
+     * @return количество уведомлений, доставленных во все включённые каналы
+     */
+    private int deliver(List<NotificationOutbox> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<NotificationOutbox>> pendingByChannel = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Void>> deliveries = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        Set<String> unavailable = new LinkedHashSet<>();
+        for (String channel : notificationChannels.getEnabledChannels()) {
+            List<NotificationOutbox> pending = batch.stream()
+                    .filter(notification -> !notification.isSentTo(channel))
+                    .toList();
+            if (pending.isEmpty()) {
+                continue;
+            }
+            if (!notificationChannels.isAvailable(channel)) {
+                unavailable.add(channel);
+                errors.put(channel, "канал недоступен");
+                continue;
+            }
+            pendingByChannel.put(channel, pending);
+            deliveries.put(channel, notificationChannels.deliver(channel, toChanges(pending)));
+        }
+
+        long deadline = System.nanoTime() + deliveryTimeout.toNanos();
+        for (Map.Entry<String, CompletableFuture<Void>> delivery : deliveries.entrySet()) {
+            String channel = delivery.getKey();
+            CompletableFuture<Void> result = delivery.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                try {
+                    result.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Отменённую доставку канал пропустит, иначе она ушла бы вместе с повтором;
+                    // уже начатую отменить нельзя. Не отменилась - успела завершиться
+                    if (result.cancel(false)) {
+                        throw new TimeoutException("не доставлено за " + deliveryTimeout.toMillis() + " мс");
+                    }
+                    result.join();
+                }
+                pendingByChannel.get(channel).forEach(notification -> notification.markSentTo(channel));
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    result.cancel(false);
+                }
+                Throwable cause = (e instanceof ExecutionException || e instanceof CompletionException)
+                        && e.getCause() != null ? e.getCause() : e;
+                String error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+                errors.put(channel, error);
+            }
+        }
+
+        // Ошибка канала, ставшего недоступным (разомкнулся предохранитель), - следствие недоступности
+        errors.keySet().stream()
+                .filter(channel -> !notificationChannels.isAvailable(channel))
+                .forEach(unavailable::add);
+
+        LocalDateTime now = LocalDateTime.now();
+        int delivered = 0;
+        int waiting = 0;
+        for (NotificationOutbox notification : batch) {
+            List<String> failedChannels = errors.keySet().stream()
+                    .filter(channel -> !notification.isSentTo(channel))
+                    .toList();
+            if (failedChannels.isEmpty()) {
+                notification.setSentAt(now);
+                notification.setNextAttemptAt(null);
+                notification.setLastError(null);
+                delivered++;
+                continue;
+            }
+            String error = failedChannels.stream()
+                    .map(channel -> channel + ": " + errors.get(channel))
+                    .collect(Collectors.joining("; "));
+            notification.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (unavailable.containsAll(failedChannels)) {
+                // Попытка не засчитывается: строка ждёт восстановления канала (wakeRecoveredChannels)
+                notification.setAttempts(notification.getAttempts() - 1);
+                notification.setWaitingSince(now);
+                notification.setNextAttemptAt(now.plus(retryMax));
+                waiting++;
+            } else if (notification.getAttempts() >= maxAttempts) {
+                notification.setNextAttemptAt(null);
+                notification.setFailedAt(now);
+                logger.error("Уведомление {} о станции {} не доставлено после {} попыток: {}",
+                        notification.getId(), notification.getStationId(), notification.getAttempts(), error);
+            } else {
+                notification.setNextAttemptAt(now.plus(retryDelay(notification.getAttempts())));
+            }
+        }
+        if (waiting > 0) {
+            waitingChannels.addAll(unavailable);
+            logger.warn("Каналы уведомлений {} недоступны: {} уведомлений ждут их восстановления, попытки не расходуются",
+                    unavailable, waiting);
+        }
+        if (!errors.isEmpty()) {
+            logger.warn("Уведомления не доставлены в каналы {} ({} из {}), повтор по расписанию только в эти каналы: {}",
+                    errors.keySet(), batch.size() - delivered, batch.size(), errors.values());
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+        return delivered;
+    }
+
+    private static List<StatusChange> toChanges(List<NotificationOutbox> notifications) {
+        return notifications.stream()
+                .map(notification -> new StatusChange(
+                        notification.getStationId(),
+                        notification.getStationIp(),
+                        notification.getOldStatus(),
+                        notification.getNewStatus(),
+                        notification.getChangedBy(),
+                        notification.getChangedAt()))
+                .toList();
+    }
+
+    /**
+     * Экспоненциальная задержка: base * 2^(attempt - 1), не больше max
+     */
+    private Duration retryDelay(int attempt) {
+        int shift = Math.min(attempt - 1, 20);
+        Duration delay = retryBase.multipliedBy(1L << shift);
+        return delay.compareTo(retryMax) > 0 ? retryMax : delay;
+    }
+}
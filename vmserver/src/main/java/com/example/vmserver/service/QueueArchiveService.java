@@ -0,0 +1,137 @@
+package com.example.vmserver.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Перенос завершённых сессий из оперативной таблицы vmqueue в секционированный архив
+ * vmqueue_archive (см. db/queue-archive.sql). В vmqueue остаются активные сессии и
+ * недавняя история, поэтому запросы пути назначения работают с небольшим набором строк.
+ * Переносятся только сессии старше срока хранения и уже учтённые почасовой агрегацией.
+ */
+@Service
+public class QueueArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueArchiveService.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String MOVE_BATCH_SQL =
+            "WITH moved AS (" +
+            "DELETE FROM vmqueue WHERE id IN (" +
+            "SELECT id FROM vmqueue WHERE active = false AND released_at IS NOT NULL AND released_at <= :cutoff " +
+            "ORDER BY released_at LIMIT :batch FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, current_user_id, vm_station_id, active, created_at, released_at) " +
+            "INSERT INTO vmqueue_archive (id, current_user_id, vm_station_id, active, created_at, released_at) " +
+            "SELECT id, current_user_id, vm_station_id, active, created_at, released_at FROM moved";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final QueueRollupService rollupService;
+    private final Duration retention;
+    private final int batchSize;
+
+    // Месяцы, секции для которых уже созданы этим экземпляром приложения
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public QueueArchiveService(TransactionTemplate transactionTemplate,
+                               QueueRollupService rollupService,
+                               @Value("${queue.archive.retention-days:30}") long retentionDays,
+                               @Value("${queue.archive.batch-size:5000}") int batchSize) {
+        this.transactionTemplate = transactionTemplate;
+        this.rollupService = rollupService;
+        this.retention = Duration.ofDays(retentionDays);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Плановый перенос: пачками, по транзакции на пачку
+     */
+    @Scheduled(fixedDelayString = "${queue.archive.interval-ms:3600000}",
+               initialDelayString = "${queue.archive.initial-delay-ms:120000}")
+    public void archiveClosedSessions() {
+        LocalDateTime startTime = LocalDateTime.now();
+
+        try {
+            LocalDateTime watermark = rollupService.getWatermark();
+            if (watermark == null) {
+                logger.debug("Архивация очереди пропущена: агрегация ещё не выполнялась");
+                return;
+            }
+            LocalDateTime retentionCutoff = startTime.minus(retention);
+            LocalDateTime cutoff = watermark.isBefore(retentionCutoff) ? watermark : retentionCutoff;
+
+            ensurePartitions(cutoff);
+
+            long total = 0;
+            int moved;
+            do {
+                Integer result = transactionTemplate.execute(status -> entityManager.createNativeQuery(MOVE_BATCH_SQL)
+                        .setParameter("cutoff", cutoff)
+                        .setParameter("batch", batchSize)
+                        .executeUpdate());
+                moved = result != null ? result : 0;
+                total += moved;
+            } while (moved == batchSize);
+
+            if (total > 0) {
+                Duration duration = Duration.between(startTime, LocalDateTime.now());
+                logger.info("В архив перенесено {} завершённых записей очереди (до {}) за {} мс",
+                        total, cutoff, duration.toMillis());
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при архивации записей очереди: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Создаёт месячные секции архива для всех месяцев, строки которых будут перенесены
+     */
+    private void ensurePartitions(LocalDateTime cutoff) {
+        LocalDateTime oldest = transactionTemplate.execute(status -> (LocalDateTime) entityManager.createNativeQuery(
+                        "SELECT MIN(released_at) FROM vmqueue WHERE active = false AND released_at <= :cutoff",
+                        LocalDateTime.class)
+                .setParameter("cutoff", cutoff)
+                .getSingleResult());
+        if (oldest == null) {
+            return;
+        }
+
+        YearMonth last = YearMonth.from(cutoff);
+        for (YearMonth month = YearMonth.from(oldest); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!knownPartitions.contains(month)) {
+                createPartition(month);
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String sql = String.format(
+                "CREATE TABLE IF NOT EXISTS vmqueue_archive_p%s PARTITION OF vmqueue_archive " +
+                "FOR VALUES FROM ('%s') TO ('%s')",
+                month.format(PARTITION_SUFFIX), month.atDay(1), month.plusMonths(1).atDay(1));
+        try {
+            transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(sql).executeUpdate());
+            knownPartitions.add(month);
+            logger.debug("Секция архива очереди за {} готова", month);
+        } catch (Exception e) {
+            // Например, строки этого месяца уже лежат в секции DEFAULT: перенос продолжится туда
+            logger.warn("Не удалось создать секцию архива очереди за {}: {}", month, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.model.RollupWatermark;
+import com.example.vmserver.repository.QueueHourlyRollupRepository;
+import com.example.vmserver.repository.RollupWatermarkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Инкрементальная агрегация истории очереди в почасовые агрегаты по станциям.
+ * Отметка (watermark) хранит момент, до которого все освобождённые сессии уже учтены;
+ * каждый запуск обрабатывает только сессии, освобождённые после неё, окнами
+ * ограниченного размера - по транзакции на окно.
+ * Пик одновременных сессий - показатель всего парка, а не станции, поэтому он хранится
+ * по часам отдельно (QueueHourlyPeak) и пересчитывается для часов, затронутых окном.
+ */
+@Service
+public class QueueRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueRollupService.class);
+
+    public static final String WATERMARK_NAME = "queue_hourly";
+
+    private final QueueHourlyRollupRepository rollupRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lag;
+    private final Duration maxWindow;
+
+    public QueueRollupService(QueueHourlyRollupRepository rollupRepository,
+                              RollupWatermarkRepository watermarkRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${queue.rollup.lag-seconds:60}") long lagSeconds,
+                              @Value("${queue.rollup.max-window-hours:168}") long maxWindowHours) {
+        this.rollupRepository = rollupRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lag = Duration.ofSeconds(lagSeconds);
+        this.maxWindow = Duration.ofHours(maxWindowHours);
+    }
+
+    /**
+     * Плановый запуск: догоняет отметку до текущего момента (минус задержка)
+     */
+    @Scheduled(fixedDelayString = "${queue.rollup.interval-ms:60000}",
+               initialDelayString = "${queue.rollup.initial-delay-ms:30000}")
+    public void runIncremental() {
+        LocalDateTime startTime = LocalDateTime.now();
+        int windows = 0;
+
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> rollupNextWindow()))) {
+                windows++;
+            }
+            if (windows > 0) {
+                Duration duration = Duration.between(startTime, LocalDateTime.now());
+                logger.info("Агрегация очереди: обработано окон {}, за {} мс", windows, duration.toMillis());
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при агрегации истории очереди: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Текущая отметка агрегации (null, если агрегация ещё не выполнялась)
+     */
+    public LocalDateTime getWatermark() {
+        return watermarkRepository.findById(WATERMARK_NAME)
+                .map(RollupWatermark::getWatermark)
+                .orElse(null);
+    }
+
+    /**
+     * Обрабатывает одно окно (watermark, watermark + maxWindow], не дальше текущего момента минус задержка.
+     * Задержка защищает от сессий, освобождённых в ещё не зафиксированных транзакциях.
+     * Выполняется в транзакции вызывающего.
+     * @return true, если окно обработано и, возможно, есть следующее
+     */
+    private boolean rollupNextWindow() {
+        LocalDateTime horizon = LocalDateTime.now().minus(lag);
+
+        RollupWatermark watermark = watermarkRepository.findForUpdate(WATERMARK_NAME).orElse(null);
+        if (watermark == null) {
+            LocalDateTime earliest = rollupRepository.findEarliestReleasedAt();
+            if (earliest == null) {
+                // Завершённых сессий ещё нет
+                return false;
+            }
+            watermark = new RollupWatermark(WATERMARK_NAME, earliest.minusNanos(1000), LocalDateTime.now());
+            watermarkRepository.saveAndFlush(watermark);
+            logger.info("Начальная отметка агрегации очереди: {}", watermark.getWatermark());
+        }
+
+        LocalDateTime from = watermark.getWatermark();
+        if (!from.isBefore(horizon)) {
+            return false;
+        }
+        LocalDateTime to = from.plus(maxWindow).isBefore(horizon) ? from.plus(maxWindow) : horizon;
+
+        int users = rollupRepository.insertUsers(from, to);
+        int hours = rollupRepository.upsertHours(from, to);
+        int peaks = 0;
+        if (hours > 0) {
+            rollupRepository.refreshDistinctUsers(from, to);
+            peaks = rollupRepository.upsertPeaks(from, to);
+        }
+
+        watermark.setWatermark(to);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        logger.debug("Агрегация очереди за ({}, {}]: часов {}, пиков {}, пользователей-часов {}",
+                from, to, hours, peaks, users);
+
+        return to.isBefore(horizon);
+    }
+}
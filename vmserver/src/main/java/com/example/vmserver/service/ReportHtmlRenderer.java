@@ -0,0 +1,410 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.dto.ReportDTO;
+import com.example.vmserver.enums.VMState;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Формирует HTML-представление системного отчёта
+ */
+@Component
+public class ReportHtmlRenderer {
+
+    private static final DateTimeFormatter ROW_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    /**
+     * Пишет HTML отчёт в поток без сборки документа целиком:
+     * шапка и статистика берутся из DTO, строки станций - по одной из курсора
+     * @param report DTO со статистикой и последними записями очереди
+     * @param stations строки детальной информации по станциям
+     * @param out поток вывода
+     */
+    public void write(ReportDTO report, Stream<ReportDTO.StationDetail> stations, Writer out) throws IOException {
+        out.write(renderHeader(report));
+        // Шапка уходит клиенту сразу, до чтения станций
+        out.flush();
+        
+        StringBuilder row = new StringBuilder(256);
+        Iterator<ReportDTO.StationDetail> iterator = stations.iterator();
+        while (iterator.hasNext()) {
+            row.setLength(0);
+            appendStationRow(row, iterator.next());
+            out.append(row);
+        }
+        
+        out.write(renderFooter(report));
+        out.flush();
+    }
+
+    /**
+     * Начало документа: стили, статистика и заголовок таблицы станций
+     */
+    private String renderHeader(ReportDTO report) {
+    StringBuilder html = new StringBuilder();
+    
+    // Начало HTML документа
+    html.append("<!DOCTYPE html>");
+    html.append("<html lang='ru'>");
+    html.append("<head>");
+    html.append("<meta charset='UTF-8'>");
+    html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
+    html.append("<title>Системный отчёт виртуальных машин</title>");
+    html.append("<style>");
+    
+    // Основные стили
+    html.append("""
+        * {
+            box-sizing: border-box;
+            margin: 0;
+            padding: 0;
+        }
+        body {
+            font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
+            line-height: 1.6;
+            color: #333;
+            background-color: #f5f5f5;
+            padding: 20px;
+        }
+        .container {
+            max-width: 1200px;
+            margin: 0 auto;
+        }
+        .header {
+            background: linear-gradient(135deg, #667eea 0%, #764ba2 100%);
+            color: white;
+            padding: 30px;
+            border-radius: 10px;
+            margin-bottom: 30px;
+            box-shadow: 0 4px 20px rgba(0,0,0,0.1);
+        }
+        h1 {
+            font-size: 2.5rem;
+            margin-bottom: 10px;
+        }
+        .report-info {
+            display: flex;
+            justify-content: space-between;
+            align-items: center;
+            margin-top: 20px;
+            background: rgba(255,255,255,0.1);
+            padding: 15px;
+            border-radius: 8px;
+        }
+        .section {
+            background: white;
+            padding: 25px;
+            border-radius: 10px;
+            margin-bottom: 25px;
+            box-shadow: 0 2px 15px rgba(0,0,0,0.08);
+            border-left: 4px solid #667eea;
+        }
+        h2 {
+            color: #444;
+            margin-bottom: 20px;
+            padding-bottom: 10px;
+            border-bottom: 2px solid #f0f0f0;
+            font-size: 1.8rem;
+        }
+        .stat-grid {
+            display: grid;
+            grid-template-columns: repeat(auto-fit, minmax(250px, 1fr));
+            gap: 20px;
+            margin-bottom: 20px;
+        }
+        .stat-card {
+            background: #f8f9fa;
+            padding: 20px;
+            border-radius: 8px;
+            text-align: center;
+            transition: transform 0.3s ease;
+            border-top: 4px solid #667eea;
+        }
+        .stat-card:hover {
+            transform: translateY(-5px);
+            box-shadow: 0 5px 20px rgba(0,0,0,0.1);
+        }
+        .stat-value {
+            font-size: 2.2rem;
+            font-weight: bold;
+            color: #667eea;
+            margin: 10px 0;
+        }
+        .stat-label {
+            color: #666;
+            font-size: 0.9rem;
+            text-transform: uppercase;
+            letter-spacing: 1px;
+        }
+        table {
+            width: 100%;
+            border-collapse: collapse;
+            margin-top: 15px;
+        }
+        th {
+            background-color: #f8f9fa;
+            color: #444;
+            font-weight: 600;
+            text-align: left;
+            padding: 15px;
+            border-bottom: 2px solid #dee2e6;
+        }
+        td {
+            padding: 12px 15px;
+            border-bottom: 1px solid #eee;
+        }
+        tr:hover {
+            background-color: #f8f9fa;
+        }
+        .status {
+            padding: 5px 10px;
+            border-radius: 20px;
+            font-size: 0.85rem;
+            font-weight: 500;
+        }
+        .status-free { background: #d4edda; color: #155724; }
+        .status-work { background: #cce5ff; color: #004085; }
+        .status-on { background: #d1ecf1; color: #0c5460; }
+        .status-off { background: #f8d7da; color: #721c24; }
+        .status-repair { background: #fff3cd; color: #856404; }
+        .status-disconnect { background: #e2e3e5; color: #383d41; }
+        .badge {
+            display: inline-block;
+            padding: 3px 8px;
+            font-size: 0.75rem;
+            font-weight: 600;
+            border-radius: 12px;
+            margin-right: 5px;
+        }
+        .badge-active { background: #28a745; color: white; }
+        .badge-inactive { background: #dc3545; color: white; }
+        .footer {
+            text-align: center;
+            margin-top: 40px;
+            padding: 20px;
+            color: #666;
+            font-size: 0.9rem;
+            border-top: 1px solid #eee;
+        }
+        .print-button {
+            background: #28a745;
+            color: white;
+            border: none;
+            padding: 10px 20px;
+            border-radius: 5px;
+            cursor: pointer;
+            font-size: 1rem;
+            transition: background 0.3s;
+        }
+        .print-button:hover {
+            background: #218838;
+        }
+        @media print {
+            .header { background: white !important; color: black; }
+            .print-button { display: none; }
+            .stat-card { break-inside: avoid; }
+            body { padding: 0; }
+        }
+        """);
+    
+    html.append("</style>");
+    html.append("</head>");
+    html.append("<body>");
+    
+    // Контейнер
+    html.append("<div class='container'>");
+    
+    // Заголовок
+    html.append("<div class='header'>");
+    html.append("<h1>📊 Системный отчёт виртуальных машин</h1>");
+    html.append("<p>Детальный отчёт о состоянии системы виртуальных машин</p>");
+    html.append("<div class='report-info'>");
+    html.append("<div>");
+    html.append("<strong>Дата формирования:</strong> ");
+    html.append(report.getReportDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")));
+    html.append("</div>");
+    html.append("<button class='print-button' onclick='window.print()'>🖨️ Печать отчёта</button>");
+    html.append("</div>");
+    html.append("</div>");
+    
+    // Статистика станций
+    html.append("<div class='section'>");
+    html.append("<h2>📈 Статистика станций</h2>");
+    html.append("<div class='stat-grid'>");
+    
+    ReportDTO.StationStatistics stationStats = report.getStationStatistics();
+    html.append(createStatCardHtml("Всего станций", stationStats.getTotalStations(), "🏢"));
+    html.append(createStatCardHtml("Свободных", stationStats.getFreeStations(), "✅"));
+    html.append(createStatCardHtml("В работе", stationStats.getWorkStations(), "💼"));
+    html.append(createStatCardHtml("Включенных", stationStats.getOnStations(), "🔌"));
+    html.append(createStatCardHtml("Выключенных", stationStats.getOffStations(), "🔋"));
+    html.append(createStatCardHtml("В ремонте", stationStats.getRepairStations(), "🔧"));
+    html.append(createStatCardHtml("Отключенных", stationStats.getDisconnectStations(), "📴"));
+    
+    html.append("</div>");
+    html.append("</div>");
+    
+    // Статистика пользователей
+    html.append("<div class='section'>");
+    html.append("<h2>👥 Статистика пользователей</h2>");
+    html.append("<div class='stat-grid'>");
+    
+    ReportDTO.UserStatistics userStats = report.getUserStatistics();
+    html.append(createStatCardHtml("Всего пользователей", userStats.getTotalUsers(), "👤"));
+    html.append(createStatCardHtml("Администраторов", userStats.getAdminCount(), "👑"));
+    html.append(createStatCardHtml("Обычных пользователей", userStats.getUserCount(), "👨‍💻"));
+    
+    // Процент администраторов
+    if (userStats.getTotalUsers() > 0) {
+        double adminPercentage = (double) userStats.getAdminCount() / userStats.getTotalUsers() * 100;
+        html.append(createStatCardHtml("Администраторов", 
+                String.format("%.1f%%", adminPercentage), "📊"));
+    }
+    
+    html.append("</div>");
+    html.append("</div>");
+    
+    // Детали по станциям
+    html.append("<div class='section'>");
+    html.append("<h2>🖥️ Детальная информация по станциям</h2>");
+    html.append("<table>");
+    html.append("<thead>");
+    html.append("<tr>");
+    html.append("<th>ID</th>");
+    html.append("<th>IP адрес</th>");
+    html.append("<th>Порт</th>");
+    html.append("<th>Состояние</th>");
+    html.append("<th>Логин</th>");
+    html.append("<th>Текущий пользователь</th>");
+    html.append("<th>Назначена</th>");
+    html.append("</tr>");
+    html.append("</thead>");
+    html.append("<tbody>");
+    
+    return html.toString();
+    }
+
+    /**
+     * Строка таблицы станций
+     */
+    private void appendStationRow(StringBuilder html, ReportDTO.StationDetail station) {
+        String statusClass = getStatusClass(station.getState());
+        
+        html.append("<tr>");
+        html.append("<td><strong>").append(station.getId()).append("</strong></td>");
+        html.append("<td><code>").append(station.getIp()).append("</code></td>");
+        html.append("<td>").append(station.getPort()).append("</td>");
+        html.append("<td><span class='status ").append(statusClass).append("'>")
+            .append(station.getState()).append("</span></td>");
+        html.append("<td>").append(station.getLogin()).append("</td>");
+        html.append("<td>").append(station.getCurrentUser() != null ? 
+                "<strong>" + station.getCurrentUser() + "</strong>" : "-").append("</td>");
+        html.append("<td>").append(station.getAssignedAt() != null ? 
+                station.getAssignedAt().format(ROW_DATE_FORMAT) : 
+                "-").append("</td>");
+        html.append("</tr>");
+    }
+
+    /**
+     * Конец таблицы станций, последние записи очереди и подвал
+     */
+    private String renderFooter(ReportDTO report) {
+    StringBuilder html = new StringBuilder();
+    
+    html.append("</tbody>");
+    html.append("</table>");
+    html.append("</div>");
+    
+    // Последние записи в очереди
+    html.append("<div class='section'>");
+    html.append("<h2>📋 Последние записи в очереди</h2>");
+    
+    if (report.getLastQueueRecords().isEmpty()) {
+        html.append("<p style='text-align: center; color: #666; padding: 20px;'>Нет записей в очереди</p>");
+        } else {
+            html.append("<table>");
+            html.append("<thead>");
+            html.append("<tr>");
+            html.append("<th>ID</th>");
+            html.append("<th>Пользователь</th>");
+            html.append("<th>Станция</th>");
+            html.append("<th>Создано</th>");
+            html.append("<th>Освобождено</th>");
+            html.append("<th>Статус</th>");
+            html.append("</tr>");
+            html.append("</thead>");
+            html.append("<tbody>");
+            
+            for (ReportDTO.QueueRecord queue : report.getLastQueueRecords()) {
+                html.append("<tr>");
+                html.append("<td>").append(queue.getId()).append("</td>");
+                html.append("<td><strong>").append(queue.getUsername() != null ? queue.getUsername() : "-").append("</strong></td>");
+                html.append("<td><code>").append(queue.getStationIp() != null ? queue.getStationIp() : "-").append("</code></td>");
+                html.append("<td>").append(queue.getCreatedAt() != null ? 
+                        queue.getCreatedAt().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) : 
+                        "-").append("</td>");
+                html.append("<td>").append(queue.getReleasedAt() != null ? 
+                        queue.getReleasedAt().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) : 
+                        "-").append("</td>");
+                html.append("<td>");
+                if (queue.getActive()) {
+                    html.append("<span class='badge badge-active'>Активна</span>");
+                } else {
+                    html.append("<span class='badge badge-inactive'>Завершена</span>");
+                }
+                html.append("</td>");
+                html.append("</tr>");
+            }
+            
+            html.append("</tbody>");
+            html.append("</table>");
+        }
+        html.append("</div>");
+        
+        // Подвал
+        html.append("<div class='footer'>");
+        html.append("<p>Отчёт сгенерирован автоматически системой управления виртуальными машинами</p>");
+        html.append("<p>© ").append(LocalDateTime.now().getYear()).append(" VM Management System</p>");
+        html.append("</div>");
+        
+        html.append("</div>"); // закрываем container
+        html.append("</body>");
+        html.append("</html>");
+        
+        return html.toString();
+    }
+
+    /**
+     * Создаёт HTML карточку для статистики
+     */
+    private String createStatCardHtml(String label, Object value, String icon) {
+        return String.format("""
+            <div class='stat-card'>
+                <div style='font-size: 1.5rem; margin-bottom: 10px;'>%s</div>
+                <div class='stat-value'>%s</div>
+                <div class='stat-label'>%s</div>
+            </div>
+            """, icon, value, label);
+    }
+
+    /**
+     * Возвращает CSS класс для статуса станции
+     */
+    private String getStatusClass(VMState state) {
+        switch (state) {
+            case FREE: return "status-free";
+            case WORK: return "status-work";
+            case ON: return "status-on";
+            case OFF: return "status-off";
+            case REPAIR: return "status-repair";
+            case DISCONNECT: return "status-disconnect";
+            default: return "";
+        }
+    }
+}
@@ -2,25 +2,28 @@ package com.example.vmserver.service;
 
 import com.example.vmserver.dto.ReportDTO;
 import com.example.vmserver.enums.VMState;
-import com.example.vmserver.model.Role;
-import com.example.vmserver.model.VMQueue;
-import com.example.vmserver.model.VMStation;
-import com.example.vmserver.model.VMUser;
-import com.example.vmserver.repository.RoleRepository;
 import com.example.vmserver.repository.VMQueueRepository;
 import com.example.vmserver.repository.VMStationRepository;
 import com.example.vmserver.repository.VMUserRepository;
+import com.example.vmserver.repository.projection.QueueRecordView;
+import com.example.vmserver.repository.projection.RoleCountView;
+import com.example.vmserver.repository.projection.StationDetailView;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,10 +32,12 @@ public class ReportService {
     
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
     
+    private static final int LAST_QUEUE_RECORDS = 10;
+    
     private final VMStationRepository stationRepository;
     private final VMUserRepository userRepository;
     private final VMQueueRepository queueRepository;
-    private final RoleRepository roleRepository;
+    private final ReportHtmlRenderer htmlRenderer;
     
     /**
      * Генерирует системный отчёт
@@ -43,20 +48,7 @@ public class ReportService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            ReportDTO report = new ReportDTO();
-            report.setReportDate(LocalDateTime.now());
-            
-            // Собираем статистику по станциям
-            logger.debug("Сбор статистики по станциям");
-            report.setStationStatistics(generateStationStatistics());
-            
-            // Собираем статистику по пользователям
-            logger.debug("Сбор статистики по пользователям");
-            report.setUserStatistics(generateUserStatistics());
-            
-            // Собираем последние записи в очереди
-            logger.debug("Сбор последних записей очереди");
-            report.setLastQueueRecords(generateLastQueueRecords());
+            ReportDTO report = generateReportSummary();
             
             // Собираем детальную информацию по станциям
             logger.debug("Сбор детальной информации по станциям");
@@ -77,6 +69,27 @@ public class ReportService {
         }
     }
     
+    /**
+     * Отчёт без детальной информации по станциям: статистика и последние записи очереди
+     */
+    private ReportDTO generateReportSummary() {
+        ReportDTO report = new ReportDTO();
+        report.setReportDate(LocalDateTime.now());
+        
+        // Собираем статистику по станциям
+        logger.debug("Сбор статистики по станциям");
+        report.setStationStatistics(generateStationStatistics());
+        
+        // Собираем статистику по пользователям
+        logger.debug("Сбор статистики по пользователям");
+        report.setUserStatistics(generateUserStatistics());
+        
+        // Собираем последние записи в очереди
+        logger.debug("Сбор последних записей очереди");
+        report.setLastQueueRecords(generateLastQueueRecords());
+        return report;
+    }
+    
     /**
      * Генерирует статистику по станциям
      */
@@ -84,21 +97,22 @@ public class ReportService {
         logger.debug("Начало генерации статистики по станциям");
         
         try {
-            List<VMStation> allStations = stationRepository.findAll();
-            logger.debug("Найдено {} станций в системе", allStations.size());
+            EnumMap<VMState, Long> counts = stationRepository.countByStates();
+            int totalStations = (int) counts.values().stream().mapToLong(Long::longValue).sum();
+            logger.debug("Найдено {} станций в системе", totalStations);
             
-            int freeStations = countStationsByState(allStations, VMState.FREE);
-            int workStations = countStationsByState(allStations, VMState.WORK);
-            int onStations = countStationsByState(allStations, VMState.ON);
-            int offStations = countStationsByState(allStations, VMState.OFF);
-            int repairStations = countStationsByState(allStations, VMState.REPAIR);
-            int disconnectStations = countStationsByState(allStations, VMState.DISCONNECT);
+            int freeStations = counts.get(VMState.FREE).intValue();
+            int workStations = counts.get(VMState.WORK).intValue();
+            int onStations = counts.get(VMState.ON).intValue();
+            int offStations = counts.get(VMState.OFF).intValue();
+            int repairStations = counts.get(VMState.REPAIR).intValue();
+            int disconnectStations = counts.get(VMState.DISCONNECT).intValue();
             
             logger.debug("Статистика станций: Свободных={}, В работе={}, Включенных={}, Выключенных={}, В ремонте={}, Отключенных={}",
                     freeStations, workStations, onStations, offStations, repairStations, disconnectStations);
             
             return ReportDTO.StationStatistics.builder()
-                    .totalStations(allStations.size())
+                    .totalStations(totalStations)
                     .freeStations(freeStations)
                     .workStations(workStations)
                     .onStations(onStations)
@@ -112,17 +126,6 @@ public class ReportService {
         }
     }
     
-    /**
-     * Подсчитывает станции по состоянию
-     */
-    private int countStationsByState(List<VMStation> stations, VMState state) {
-        int count = (int) stations.stream()
-                .filter(station -> station.getState() == state)
-                .count();
-        logger.trace("Станций со статусом {}: {}", state, count);
-        return count;
-    }
-    
     /**
      * Генерирует статистику по пользователям
      */
@@ -130,30 +133,25 @@ public class ReportService {
         logger.debug("Начало генерации статистики по пользователям");
         
         try {
-            List<VMUser> allUsers = userRepository.findAll();
-            logger.debug("Найдено {} пользователей в системе", allUsers.size());
-            
-            // Предполагаем, что роль администратора называется "ADMIN" или "ROLE_ADMIN"
-            Role adminRole = roleRepository.findByName("ADMIN")
-                    .orElse(roleRepository.findByName("ROLE_ADMIN")
-                            .orElse(null));
+            List<RoleCountView> roleCounts = userRepository.countGroupedByRole();
             
+            int totalUsers = 0;
             int adminCount = 0;
-            if (adminRole != null) {
-                adminCount = (int) allUsers.stream()
-                        .filter(user -> adminRole.equals(user.getRole()))
-                        .count();
-                logger.debug("Найдено {} администраторов", adminCount);
-            } else {
-                logger.warn("Роль администратора не найдена в базе данных");
+            for (RoleCountView roleCount : roleCounts) {
+                totalUsers += roleCount.getTotal().intValue();
+                // Роль администратора называется "ADMIN" или "ROLE_ADMIN"
+                if ("ADMIN".equals(roleCount.getRole()) || "ROLE_ADMIN".equals(roleCount.getRole())) {
+                    adminCount += roleCount.getTotal().intValue();
+                }
             }
+            logger.debug("Найдено {} пользователей в системе, из них {} администраторов", totalUsers, adminCount);
             
-            int userCount = allUsers.size() - adminCount;
+            int userCount = totalUsers - adminCount;
             logger.debug("Статистика пользователей: Всего={}, Администраторов={}, Обычных={}", 
-                    allUsers.size(), adminCount, userCount);
+                    totalUsers, adminCount, userCount);
             
             return ReportDTO.UserStatistics.builder()
-                    .totalUsers(allUsers.size())
+                    .totalUsers(totalUsers)
                     .adminCount(adminCount)
                     .userCount(userCount)
                     .build();
@@ -170,13 +168,9 @@ public class ReportService {
         logger.debug("Начало генерации последних записей очереди");
         
         try {
-            // Получаем все записи и сортируем по дате создания (новые сначала)
-            List<VMQueue> allQueues = queueRepository.findAll();
-            logger.debug("Найдено {} записей в очереди", allQueues.size());
-            
-            List<ReportDTO.QueueRecord> records = allQueues.stream()
-                    .sorted(Comparator.comparing(VMQueue::getCreatedAt).reversed())
-                    .limit(10) // Берем только 10 последних записей
+            // Берем только 10 последних записей (ORDER BY createdAt DESC LIMIT 10)
+            List<ReportDTO.QueueRecord> records = queueRepository.findRecentQueueRecords(Limit.of(LAST_QUEUE_RECORDS))
+                    .stream()
                     .map(this::convertToQueueRecordDTO)
                     .collect(Collectors.toList());
             
@@ -189,14 +183,14 @@ public class ReportService {
     }
     
     /**
-     * Конвертирует VMQueue в QueueRecord DTO
+     * Конвертирует проекцию записи очереди в QueueRecord DTO
      */
-    private ReportDTO.QueueRecord convertToQueueRecordDTO(VMQueue queue) {
+    private ReportDTO.QueueRecord convertToQueueRecordDTO(QueueRecordView queue) {
         logger.trace("Конвертация записи очереди ID={} в DTO", queue.getId());
         return ReportDTO.QueueRecord.builder()
                 .id(queue.getId())
-                .username(queue.getCurrentUser() != null ? queue.getCurrentUser().getUsername() : null)
-                .stationIp(queue.getVmStation() != null ? queue.getVmStation().getIp() : null)
+                .username(queue.getUsername())
+                .stationIp(queue.getStationIp())
                 .createdAt(queue.getCreatedAt())
                 .releasedAt(queue.getReleasedAt())
                 .active(queue.getActive())
@@ -210,31 +204,9 @@ public class ReportService {
         logger.debug("Начало генерации детальной информации по станциям");
         
         try {
-            List<VMStation> allStations = stationRepository.findAll();
-            List<VMQueue> activeQueues = queueRepository.findByActiveTrue();
-            
-            logger.debug("Найдено {} активных записей очереди", activeQueues.size());
-            
-            List<ReportDTO.StationDetail> stationDetails = allStations.stream()
-                    .map(station -> {
-                        // Находим активную запись для этой станции
-                        VMQueue activeQueue = activeQueues.stream()
-                                .filter(queue -> queue.getVmStation() != null && 
-                                               queue.getVmStation().getId().equals(station.getId()))
-                                .findFirst()
-                                .orElse(null);
-                        
-                        return ReportDTO.StationDetail.builder()
-                                .id(station.getId())
-                                .ip(station.getIp())
-                                .port(station.getPort())
-                                .state(station.getState())
-                                .login(station.getLogin())
-                                .currentUser(activeQueue != null && activeQueue.getCurrentUser() != null ? 
-                                        activeQueue.getCurrentUser().getUsername() : null)
-                                .assignedAt(activeQueue != null ? activeQueue.getCreatedAt() : null)
-                                .build();
-                    })
+            // Текущий пользователь приходит из LEFT JOIN к активной записи очереди
+            List<ReportDTO.StationDetail> stationDetails = stationRepository.findStationDetails().stream()
+                    .map(this::convertToStationDetailDTO)
                     .collect(Collectors.toList());
             
             logger.debug("Сгенерирована детальная информация по {} станциям", stationDetails.size());
@@ -245,17 +217,69 @@ public class ReportService {
         }
     }
     
+    /**
+     * Конвертирует проекцию станции в StationDetail DTO
+     */
+    private ReportDTO.StationDetail convertToStationDetailDTO(StationDetailView station) {
+        return ReportDTO.StationDetail.builder()
+                .id(station.getId())
+                .ip(station.getIp())
+                .port(station.getPort())
+                .state(station.getState())
+                .login(station.getLogin())
+                .currentUser(station.getCurrentUser())
+                .assignedAt(station.getAssignedAt())
+                .build();
+    }
+    
+    /**
+     * Пишет HTML отчёт в поток. Статистика, последние записи очереди и строки станций
+     * читаются в одной транзакции REPEATABLE READ, то есть из одного снимка БД: шапка
+     * отчёта не расходится со строками. Строки станций читаются курсором построчно.
+     * Статистика читается до первой записи в поток, поэтому ошибка БД на этом шаге
+     * ещё может стать ответом с ошибкой; ошибка во время чтения строк обрывает ответ.
+     * @param out поток вывода
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void writeHtmlReport(Writer out) throws IOException {
+        logger.info("Начало потоковой генерации HTML отчёта");
+        LocalDateTime startTime = LocalDateTime.now();
+        
+        ReportDTO summary = generateReportSummary();
+        try (Stream<StationDetailView> stations = stationRepository.streamStationDetails()) {
+            htmlRenderer.write(summary, stations.map(this::convertToStationDetailDTO), out);
+            
+            LocalDateTime endTime = LocalDateTime.now();
+            Duration duration = Duration.between(startTime, endTime);
+            logger.info("HTML отчёт записан в поток за {} мс", duration.toMillis());
+        } catch (IOException e) {
+            // Обычно клиент закрыл соединение, не дождавшись конца отчёта
+            logger.warn("Запись HTML отчёта прервана: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Ошибка при генерации HTML отчёта: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+    
     /**
      * Генерирует текстовый отчёт для удобства чтения
      * @return Отформатированный текстовый отчёт
      */
     public String generateTextReport() {
+        return renderTextReport(generateSystemReport());
+    }
+    
+    /**
+     * Формирует текстовое представление готового отчёта
+     * @param report DTO с данными отчёта
+     * @return Отформатированный текстовый отчёт
+     */
+    public String renderTextReport(ReportDTO report) {
         logger.info("Начало генерации текстового отчёта");
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            ReportDTO report = generateSystemReport();
-            
             StringBuilder sb = new StringBuilder();
             sb.append("=".repeat(60)).append("\n");
             sb.append("СИСТЕМНЫЙ ОТЧЁТ\n");
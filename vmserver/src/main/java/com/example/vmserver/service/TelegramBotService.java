@@ -2,6 +2,7 @@ package com.example.vmserver.service;
 
 import com.example.vmserver.model.UserTelegramChat;
 import com.example.vmserver.model.VMUser;
+import com.example.vmserver.notification.StatusChange;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -26,13 +27,22 @@ public interface TelegramBotService {
     void unregisterUser(String username);
     
     /**
-     * Отправить уведомление о изменении статуса VM
-     * @param vmId ID виртуальной машины
-     * @param oldStatus Старый статус
-     * @param newStatus Новый статус
-     * @param changedBy Пользователь, изменивший статус
+     * Отправить уведомление о изменении статуса VM администраторам.
+     * Выполняет сетевые вызовы Telegram: вызывается каналом уведомлений Telegram, а не из транзакций изменения станций
+     * Получатели - администраторы, подписанные на изменение (см. SubscriptionRule)
+     * @param change Изменение статуса
+     * @throws IllegalStateException если уведомление не доставлено ни одному получателю
      */
-    void sendVMStatusChangeNotification(Long vmId, String oldStatus, String newStatus, String changedBy);
+    void sendVMStatusChangeNotification(StatusChange change);
+    
+    /**
+     * Отправить администраторам сводку нескольких изменений статусов VM одним сообщением:
+     * количество станций по каждому переходу, список станций свёрнут.
+     * Каждый администратор получает сводку только по изменениям своей подписки
+     * @param changes Изменения статусов
+     * @throws IllegalStateException если сводка не доставлена ни одному получателю
+     */
+    void sendVMStatusDigestNotification(List<StatusChange> changes);
     
     /**
      * Отправить сообщение конкретному пользователю
@@ -1,25 +1,41 @@
 package com.example.vmserver.service;
 
+import com.example.vmserver.cache.AdminRecipientRegistry;
+import com.example.vmserver.cache.StationSnapshotCache;
+import com.example.vmserver.cache.StationStateCounters;
 import com.example.vmserver.config.BotConfig;
 import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.TelegramRecipientsChangedEvent;
 import com.example.vmserver.model.UserTelegramChat;
 import com.example.vmserver.model.VMUser;
+import com.example.vmserver.notification.StatusChange;
+import com.example.vmserver.notification.SubscriptionRule;
 import com.example.vmserver.repository.UserTelegramChatRepository;
 import com.example.vmserver.repository.VMUserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -30,9 +46,18 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
     private final BotConfig botConfig;
     private final UserTelegramChatRepository userTelegramChatRepository;
     private final VMUserRepository userRepository;
+    private final TelegramFanOut telegramFanOut;
+    private final AdminRecipientRegistry adminRecipientRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TelegramUpdateDispatcher updateDispatcher;
+    private final StationStateCounters stationStateCounters;
+    private final StationSnapshotCache stationSnapshotCache;
     
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
     
+    // Сколько ID станций перечислять в сводке для одного перехода
+    private static final int DIGEST_MAX_STATION_IDS = 15;
+    
     @Override
     public String getBotUsername() {
         log.debug("Получение имени бота: {}", botConfig.getUsername());
@@ -46,8 +71,61 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
         return botConfig.getToken();
     }
     
+    /**
+     * Адрес Bot API берётся из конфигурации (например, локальная заглушка в тестах)
+     */
+    @Override
+    public String getBaseUrl() {
+        return botConfig.getApiUrl() + getBotToken() + "/";
+    }
+    
+    /**
+     * Обновление из long polling передаётся в конвейер обработки; поток опроса не ждёт команд.
+     * Если очередь переполнена, поток опроса ждёт места (обратное давление: новые обновления
+     * не забираются), а по истечении ожидания обновление отбрасывается. Сам поток опроса
+     * обновления не обрабатывает: вызов handleUpdate отсюда шёл бы мимо прокси и транзакции
+     */
     @Override
     public void onUpdateReceived(Update update) {
+        if (!updateDispatcher.submit(update, botConfig.getUpdateSubmitTimeoutMs())) {
+            log.warn("Обновление Telegram {} отброшено: очередь обработки переполнена дольше {} мс",
+                    update.getUpdateId(), botConfig.getUpdateSubmitTimeoutMs());
+        }
+    }
+    
+    /**
+     * Команды, отвечающие из памяти (/fleet, /station): выполняются без транзакции и обращений к БД,
+     * поэтому одновременные запросы многих администраторов не нагружают пул соединений.
+     * Вызывается конвейером обработки обновлений до handleUpdate, поэтому handleUpdate эти команды не разбирает
+     * @return true, если обновление было такой командой и обработано
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean handleCachedCommand(Update update) {
+        if (!update.hasMessage() || !update.getMessage().hasText()) {
+            return false;
+        }
+        String messageText = update.getMessage().getText();
+        Long chatId = update.getMessage().getChatId();
+        
+        if (messageText.startsWith("/fleet")) {
+            log.info("Обработка команды /fleet от чата {}", chatId);
+            sendFleetStatus(chatId);
+            return true;
+        }
+        if (messageText.startsWith("/station")) {
+            log.info("Обработка команды /station от чата {}", chatId);
+            sendStationStatus(chatId, messageText);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Обработка обновления (команды бота). Вызывается конвейером обработки обновлений.
+     * Команды изменяют регистрации и подписки, поэтому транзакция не только для чтения
+     */
+    @Transactional
+    public void handleUpdate(Update update) {
         long startTime = System.currentTimeMillis();
         log.info("Получено обновление от Telegram (update_id: {})", update.getUpdateId());
         
@@ -74,6 +152,9 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
                 } else if (messageText.startsWith("/help")) {
                     log.info("Обработка команды /help от чата {}", chatId);
                     sendHelpMessage(chatId);
+                } else if (messageText.startsWith("/subscribe")) {
+                    log.info("Обработка команды /subscribe от чата {}", chatId);
+                    handleSubscription(chatId, messageText);
                 } else if (messageText.startsWith("/status")) {
                     log.info("Обработка команды /status от чата {}", chatId);
                     sendRegistrationStatus(chatId);
@@ -109,6 +190,9 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
                 /register <логин> - Зарегистрироваться в системе
                 /unregister - Отменить регистрацию
                 /status - Проверить статус регистрации
+                /subscribe - Настроить, о каких станциях получать уведомления
+                /fleet - Сколько станций в каждом статусе
+                /station <ID или IP> - Статус станции
                 /help - Показать справку
                 
                 *Пример регистрации:*
@@ -189,6 +273,7 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
             registration.setRegisteredAt(LocalDateTime.now());
             
             userTelegramChatRepository.save(registration);
+            eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("регистрация " + username));
             
             log.info("Пользователь {} успешно зарегистрирован для чата {}", username, chatId);
             
@@ -232,6 +317,7 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
             
             String username = registration.getUsername();
             userTelegramChatRepository.delete(registration);
+            eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("отмена регистрации " + username));
             
             log.info("Регистрация пользователя {} отменена для чата {}", username, chatId);
             
@@ -252,6 +338,184 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
         }
     }
     
+    /**
+     * Количество станций по статусам из счетчиков в памяти
+     */
+    private void sendFleetStatus(Long chatId) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            if (!isAdminChat(chatId)) {
+                return;
+            }
+            
+            EnumMap<VMState, Long> counts = stationStateCounters.snapshot();
+            StringBuilder message = new StringBuilder("🖥 *Станции:* ").append(stationStateCounters.total()).append("\n\n");
+            for (VMState state : VMState.values()) {
+                message.append("• ").append(state).append(" - ").append(describeState(state))
+                        .append(": *").append(counts.get(state)).append("*\n");
+            }
+            message.append("\n_Данные на ").append(LocalDateTime.now().format(formatter)).append("_");
+            
+            sendTelegramMessage(chatId, message.toString());
+            
+            long duration = System.currentTimeMillis() - startTime;
+            log.debug("Сводка по станциям отправлена в чат {} за {} мс", chatId, duration);
+        } catch (Exception e) {
+            log.error("Ошибка при отправке сводки по станциям в чат {}: {}", chatId, e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Станция по ID из снимка; ID, не помещающийся в long, - станции нет
+     */
+    private StationSnapshotCache.StationSnapshot findStationById(String id) {
+        try {
+            return stationSnapshotCache.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Статус станции по ID или IP из снимка станций в памяти
+     */
+    private void sendStationStatus(Long chatId, String messageText) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            if (!isAdminChat(chatId)) {
+                return;
+            }
+            
+            String query = messageText.substring("/station".length()).trim();
+            if (query.isEmpty()) {
+                sendTelegramMessage(chatId, "⚠️ *Неверный формат!*\nИспользуйте: /station <ID или IP>");
+                return;
+            }
+            
+            StationSnapshotCache.StationSnapshot station = query.chars().allMatch(Character::isDigit)
+                    ? findStationById(query)
+                    : stationSnapshotCache.getByIp(query);
+            if (station == null) {
+                sendTelegramMessage(chatId, "ℹ️ *Станция не найдена:* `" + query + "`");
+                return;
+            }
+            
+            String message = String.format("""
+                🖥 *Станция %d*
+                
+                *IP:* %s
+                *Статус:* %s - %s
+                *Пользователь:* %s
+                *С:* %s
+                """,
+                station.id(),
+                station.ip(),
+                station.state(),
+                describeState(station.state()),
+                station.occupant() != null ? station.occupant() : "-",
+                station.since() != null ? station.since().format(formatter) : "-"
+            );
+            
+            sendTelegramMessage(chatId, message);
+            
+            long duration = System.currentTimeMillis() - startTime;
+            log.debug("Статус станции {} отправлен в чат {} за {} мс", query, chatId, duration);
+        } catch (Exception e) {
+            log.error("Ошибка при отправке статуса станции в чат {}: {}", chatId, e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Команды состояния станций доступны только зарегистрированным администраторам (проверка без БД)
+     */
+    private boolean isAdminChat(Long chatId) {
+        if (adminRecipientRegistry.getChatIds().contains(chatId)) {
+            return true;
+        }
+        log.warn("Команда состояния станций от чата {} без регистрации администратора", chatId);
+        sendTelegramMessage(chatId, "⛔ *Команда доступна только зарегистрированным администраторам.*");
+        return false;
+    }
+    
+    private static String describeState(VMState state) {
+        return switch (state) {
+            case OFF -> "Выключена";
+            case ON -> "Включена";
+            case WORK -> "Работает пользователь";
+            case REPAIR -> "На ремонте";
+            case FREE -> "Свободна";
+            case DISCONNECT -> "Не в сети";
+        };
+    }
+    
+    private void handleSubscription(Long chatId, String messageText) {
+        log.debug("Обработка подписки для чата {}: {}", chatId, messageText);
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            UserTelegramChat registration = userTelegramChatRepository.findByTelegramChatId(chatId)
+                .orElseThrow(() -> {
+                    log.debug("Подписка запрошена для незарегистрированного чата {}", chatId);
+                    return new EntityNotFoundException("Регистрация не найдена");
+                });
+            
+            String rules = messageText.substring("/subscribe".length()).trim();
+            if (rules.isEmpty()) {
+                String current = registration.getSubscription();
+                sendTelegramMessage(chatId, "📬 *Подписка:* " + (current != null ? "`" + current + "`" : "все изменения") + "\n" +
+                    "Изменить: `/subscribe id=1-50; to=REPAIR,DISCONNECT`, все изменения: `/subscribe all`");
+                return;
+            }
+            
+            SubscriptionRule rule = SubscriptionRule.parse(rules);
+            String formatted = rule.format();
+            if (formatted != null && formatted.length() > UserTelegramChat.SUBSCRIPTION_MAX_LENGTH) {
+                throw new IllegalArgumentException("правила длиннее " + UserTelegramChat.SUBSCRIPTION_MAX_LENGTH
+                        + " символов (" + formatted.length() + "), объедините диапазоны или префиксы");
+            }
+            registration.setSubscription(formatted);
+            userTelegramChatRepository.save(registration);
+            eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("подписка " + registration.getUsername()));
+            
+            log.info("Подписка пользователя {} изменена: {}", registration.getUsername(), formatted);
+            // Подтверждение - только после фиксации: при ошибке сохранения подписка не изменится
+            sendAfterCommit(chatId, "✅ *Подписка сохранена:* " +
+                (rule.isAll() ? "все изменения" : "`" + formatted + "`"));
+            
+            long duration = System.currentTimeMillis() - startTime;
+            log.debug("Изменение подписки для чата {} завершено за {} мс", chatId, duration);
+            
+        } catch (EntityNotFoundException e) {
+            sendTelegramMessage(chatId, "ℹ️ *Вы не зарегистрированы в системе.*");
+        } catch (IllegalArgumentException e) {
+            log.debug("Неверные правила подписки от чата {}: {}", chatId, e.getMessage());
+            sendTelegramMessage(chatId, "⚠️ *Неверные правила подписки:* " + e.getMessage() + "\nСм. /help");
+        } catch (Exception e) {
+            log.error("Ошибка при изменении подписки для чата {}: {}", chatId, e.getMessage(), e);
+            sendTelegramMessage(chatId, "❌ *Ошибка изменения подписки!*");
+        }
+    }
+    
+    /**
+     * Отправка сообщения после фиксации текущей транзакции (без транзакции - сразу)
+     */
+    private void sendAfterCommit(Long chatId, String message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sendTelegramMessage(chatId, message);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sendTelegramMessage(chatId, message);
+            }
+        });
+    }
+    
     private void sendHelpMessage(Long chatId) {
         log.debug("Отправка справки в чат {}", chatId);
         long startTime = System.currentTimeMillis();
@@ -264,8 +528,18 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
                 /register <логин> - Зарегистрироваться для получения уведомлений
                 /unregister - Отменить регистрацию
                 /status - Проверить статус регистрации
+                /subscribe <правила> - Получать уведомления только по нужным станциям и статусам
+                /subscribe all - Получать все уведомления
+                /fleet - Сколько станций в каждом статусе
+                /station <ID или IP> - Статус станции
                 /help - Показать эту справку
                 
+                *Правила подписки* (условия через `;`, значения через `,`):
+                `id=1-50,75` - ID станций
+                `ip=10.0.1.` - начало IP-адреса
+                `from=WORK` - статус до изменения
+                `to=REPAIR,DISCONNECT` - статус после изменения
+                
                 *Важно:*
                 • Регистрация доступна только пользователям с ролью ADMIN
                 • Каждый пользователь может зарегистрировать только один чат
@@ -337,22 +611,39 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
         }
     }
     
-    private void sendTelegramMessage(Long chatId, String text) {
+    /**
+     * Отправляет сообщение в чат с учётом лимитов Telegram и повторами; ошибки логируются.
+     * Пока Telegram недоступен, сообщение ждёт в буфере и досылается позже
+     * @return true, если сообщение принято Telegram
+     */
+    private boolean sendTelegramMessage(Long chatId, String text) {
         log.debug("Отправка Telegram сообщения в чат {} (длина текста: {})", chatId, text.length());
         long startTime = System.currentTimeMillis();
         
+        boolean sent = telegramFanOut.send(chatId, text, id -> execute(buildMessage(id, text)));
+        if (sent) {
+            long duration = System.currentTimeMillis() - startTime;
+            log.debug("Сообщение успешно отправлено в чат {} за {} мс", chatId, duration);
+        }
+        return sent;
+    }
+    
+    /**
+     * Рассылает сообщение в несколько чатов параллельно с учётом лимитов Telegram
+     * @param bufferOnOutage досылать позже, если Telegram недоступен; уведомления о статусах
+     *                       не буферизуются - их повторно отправит outbox
+     */
+    private TelegramFanOut.Result broadcastTelegramMessage(List<Long> chatIds, String text, boolean bufferOnOutage) {
+        log.debug("Рассылка Telegram сообщения в {} чатов (длина текста: {})", chatIds.size(), text.length());
+        return telegramFanOut.broadcast(chatIds, text, id -> execute(buildMessage(id, text)), bufferOnOutage);
+    }
+    
+    private static SendMessage buildMessage(Long chatId, String text) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
         message.enableMarkdown(true);
-        
-        try {
-            execute(message);
-            long duration = System.currentTimeMillis() - startTime;
-            log.debug("Сообщение успешно отправлено в чат {} за {} мс", chatId, duration);
-        } catch (TelegramApiException e) {
-            log.error("Ошибка отправки сообщения в Telegram чат {}: {}", chatId, e.getMessage(), e);
-        }
+        return message;
     }
     
     @Override
@@ -384,6 +675,7 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
             registration.setRegisteredAt(LocalDateTime.now());
             
             UserTelegramChat savedRegistration = userTelegramChatRepository.save(registration);
+            eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("регистрация " + username));
             
             long duration = System.currentTimeMillis() - startTime;
             log.info("API регистрация пользователя {} для чата {} завершена за {} мс", username, chatId, duration);
@@ -405,6 +697,7 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
             Integer deletedCount = userTelegramChatRepository.deleteByUsername(username);
             
             if (deletedCount > 0) {
+                eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("отмена регистрации " + username));
                 log.info("API отмена регистрации пользователя {} успешна, удалено {} записей", username, deletedCount);
             } else {
                 log.warn("API отмена регистрации: пользователь {} не найден", username);
@@ -419,10 +712,10 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
     }
     
     @Override
-    @Transactional
-    public void sendVMStatusChangeNotification(Long vmId, String oldStatus, String newStatus, String changedBy) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void sendVMStatusChangeNotification(StatusChange change) {
         log.info("Отправка уведомления об изменении статуса VM: vmId={}, oldStatus={}, newStatus={}, changedBy={}", 
-                vmId, oldStatus, newStatus, changedBy);
+                change.stationId(), change.oldStatus(), change.newStatus(), change.changedBy());
         long startTime = System.currentTimeMillis();
         
         try {
@@ -436,64 +729,171 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
                 return;
             }
             
-            List<UserTelegramChat> registrations = getAllRegisteredUsers();
-            log.debug("Найдено {} зарегистрированных пользователей", registrations.size());
+            List<Long> chatIds = adminRecipientRegistry.getChatIds(change);
+            log.debug("Найдено {} чатов администраторов, подписанных на изменение", chatIds.size());
             
-            if (registrations.isEmpty()) {
-                log.info("Нет зарегистрированных пользователей для уведомления");
+            if (chatIds.isEmpty()) {
+                log.info("Нет администраторов, подписанных на изменение статуса VM {}", change.stationId());
                 return;
             }
             
-            String message = String.format("""
-                🔄 *Изменение статуса VM*
-                
-                *VM ID:* %d
-                *Старый статус:* %s
-                *Новый статус:* %s
-                *Изменено пользователем:* %s
-                *Время:* %s
-                
-                *Описание статусов:*
-                • OFF - Выключена
-                • ON - Включена
-                • WORK - Работает пользователь
-                • REPAIR - На ремонте
-                • FREE - Свободна
-                • DISCONNECT - Не в сети
-                """,
-                vmId,
-                oldStatus,
-                newStatus,
-                changedBy,
-                LocalDateTime.now().format(formatter)
-            );
+            TelegramFanOut.Result result = broadcastTelegramMessage(chatIds, buildStatusChangeMessage(change), false);
+            int sentCount = result.sent();
+            int errorCount = result.failed();
             
-            int sentCount = 0;
-            int errorCount = 0;
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Уведомление о статусе VM отправлено: {} успешно, {} с ошибками, за {} мс", 
+                    sentCount, errorCount, duration);
             
-            for (UserTelegramChat registration : registrations) {
-                if (registration.getActive() && isUserAdmin(registration.getUsername())) {
-                    try {
-                        sendTelegramMessage(registration.getTelegramChatId(), message);
-                        sentCount++;
-                        log.debug("Уведомление отправлено пользователю: {}", registration.getUsername());
-                    } catch (Exception e) {
-                        errorCount++;
-                        log.error("Ошибка отправки уведомления пользователю {}: {}", registration.getUsername(), e.getMessage(), e);
-                    }
+            // Не доставлено никому: повторная попытка имеет смысл (outbox повторит отправку)
+            if (sentCount == 0 && errorCount > 0) {
+                throw new IllegalStateException("Уведомление о статусе VM " + change.stationId()
+                        + " не доставлено ни одному получателю");
+            }
+            // Частичная рассылка не считается доставкой: чаты, до которых не дошло из-за недоступности
+            // Telegram, получат уведомление при повторе (остальные - повторно, дубликат лучше потери)
+            if (result.unavailable() > 0) {
+                throw new IllegalStateException("Уведомление о статусе VM " + change.stationId()
+                        + " не доставлено " + result.unavailable() + " получателям: Telegram недоступен");
+            }
+            
+        } catch (Exception e) {
+            log.error("Ошибка отправки уведомления об изменении статуса VM: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void sendVMStatusDigestNotification(List<StatusChange> changes) {
+        log.info("Отправка сводки изменений статусов VM: {} изменений", changes.size());
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            if (!botConfig.isEnabled()) {
+                log.warn("Бот отключен в конфигурации, сводка не отправлена");
+                return;
+            }
+            
+            if (!botConfig.isNotifyAdminsOnly()) {
+                log.warn("Уведомления для не-админов отключены в конфигурации");
+                return;
+            }
+            
+            // Каждый чат получает только изменения по своей подписке; чаты с одинаковым
+            // набором изменений получают одно и то же сообщение одной рассылкой
+            Map<Long, List<StatusChange>> changesByChat = new LinkedHashMap<>();
+            for (StatusChange change : changes) {
+                for (Long chatId : adminRecipientRegistry.getChatIds(change)) {
+                    changesByChat.computeIfAbsent(chatId, id -> new ArrayList<>()).add(change);
                 }
             }
+            if (changesByChat.isEmpty()) {
+                log.info("Нет администраторов, подписанных на изменения из сводки");
+                return;
+            }
+            Map<List<StatusChange>, List<Long>> chatsByChanges = new LinkedHashMap<>();
+            changesByChat.forEach((chatId, chatChanges) ->
+                    chatsByChanges.computeIfAbsent(chatChanges, key -> new ArrayList<>()).add(chatId));
+            
+            int sentCount = 0;
+            int errorCount = 0;
+            int unavailableCount = 0;
+            for (Map.Entry<List<StatusChange>, List<Long>> group : chatsByChanges.entrySet()) {
+                List<StatusChange> groupChanges = group.getKey();
+                String message = groupChanges.size() == 1
+                        ? buildStatusChangeMessage(groupChanges.get(0))
+                        : buildStatusDigest(groupChanges);
+                TelegramFanOut.Result result = broadcastTelegramMessage(group.getValue(), message, false);
+                sentCount += result.sent();
+                errorCount += result.failed();
+                unavailableCount += result.unavailable();
+            }
             
             long duration = System.currentTimeMillis() - startTime;
-            log.info("Уведомление о статусе VM отправлено: {} успешно, {} с ошибками, за {} мс", 
-                    sentCount, errorCount, duration);
+            log.info("Сводка изменений статусов VM отправлена ({} вариантов по подпискам): {} успешно, {} с ошибками, за {} мс", 
+                    chatsByChanges.size(), sentCount, errorCount, duration);
+            
+            if (sentCount == 0 && errorCount > 0) {
+                throw new IllegalStateException("Сводка изменений статусов VM не доставлена ни одному получателю");
+            }
+            // Частичная рассылка не считается доставкой (см. sendVMStatusChangeNotification)
+            if (unavailableCount > 0) {
+                throw new IllegalStateException("Сводка изменений статусов VM не доставлена " + unavailableCount
+                        + " получателям: Telegram недоступен");
+            }
             
         } catch (Exception e) {
-            log.error("Ошибка отправки уведомления об изменении статуса VM: {}", e.getMessage(), e);
+            log.error("Ошибка отправки сводки изменений статусов VM: {}", e.getMessage(), e);
             throw e;
         }
     }
     
+    private String buildStatusChangeMessage(StatusChange change) {
+        return String.format("""
+            🔄 *Изменение статуса VM*
+            
+            *VM ID:* %d
+            *IP:* %s
+            *Старый статус:* %s
+            *Новый статус:* %s
+            *Изменено пользователем:* %s
+            *Время:* %s
+            
+            *Описание статусов:*
+            • OFF - Выключена
+            • ON - Включена
+            • WORK - Работает пользователь
+            • REPAIR - На ремонте
+            • FREE - Свободна
+            • DISCONNECT - Не в сети
+            """,
+            change.stationId(),
+            change.stationIp() != null ? change.stationIp() : "-",
+            change.oldStatus(),
+            change.newStatus(),
+            change.changedBy(),
+            change.changedAt().format(formatter)
+        );
+    }
+    
+    /**
+     * Сводка: переходы по убыванию числа станций, у каждого - свёрнутый список ID станций
+     */
+    private String buildStatusDigest(List<StatusChange> changes) {
+        Map<String, Set<Long>> stationsByTransition = new LinkedHashMap<>();
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (StatusChange change : changes) {
+            String transition = change.oldStatus() + " → " + change.newStatus();
+            stationsByTransition.computeIfAbsent(transition, key -> new TreeSet<>()).add(change.stationId());
+            if (first == null || change.changedAt().isBefore(first)) {
+                first = change.changedAt();
+            }
+            if (last == null || change.changedAt().isAfter(last)) {
+                last = change.changedAt();
+            }
+        }
+        
+        StringBuilder message = new StringBuilder("🔄 *Изменения статусов VM*\n\n");
+        stationsByTransition.entrySet().stream()
+                .sorted((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()))
+                .forEach(entry -> {
+                    Set<Long> stations = entry.getValue();
+                    message.append("*").append(entry.getKey()).append(":* ").append(stations.size())
+                            .append(" ст. (ID: ")
+                            .append(stations.stream().limit(DIGEST_MAX_STATION_IDS)
+                                    .map(String::valueOf).collect(Collectors.joining(", ")));
+                    if (stations.size() > DIGEST_MAX_STATION_IDS) {
+                        message.append(" и ещё ").append(stations.size() - DIGEST_MAX_STATION_IDS);
+                    }
+                    message.append(")\n");
+                });
+        message.append("\n*Всего изменений:* ").append(changes.size())
+                .append("\n*Период:* ").append(first.format(formatter)).append(" - ").append(last.format(formatter));
+        return message.toString();
+    }
+    
     @Override
     @Transactional
     public void sendMessageToUser(String username, String message) {
@@ -532,23 +932,12 @@ public class TelegramBotServiceImpl extends TelegramLongPollingBot implements Te
         long startTime = System.currentTimeMillis();
         
         try {
-            List<UserTelegramChat> registrations = getAllRegisteredUsers();
-            log.debug("Найдено {} зарегистрированных пользователей", registrations.size());
+            List<Long> chatIds = adminRecipientRegistry.getChatIds();
+            log.debug("Найдено {} чатов администраторов", chatIds.size());
             
-            int sentCount = 0;
-            int errorCount = 0;
-            
-            for (UserTelegramChat registration : registrations) {
-                if (registration.getActive() && isUserAdmin(registration.getUsername())) {
-                    try {
-                        sendTelegramMessage(registration.getTelegramChatId(), message);
-                        sentCount++;
-                    } catch (Exception e) {
-                        errorCount++;
-                        log.error("Ошибка отправки сообщения пользователю {}: {}", registration.getUsername(), e.getMessage(), e);
-                    }
-                }
-            }
+            TelegramFanOut.Result result = broadcastTelegramMessage(chatIds, message, true);
+            int sentCount = result.sent();
+            int errorCount = result.failed();
             
             long duration = System.currentTimeMillis() - startTime;
             log.info("Сообщение отправлено всем админам: {} успешно, {} с ошибками, за {} мс", 
@@ -0,0 +1,111 @@
+package com.example.vmserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+
+/**
+ * Предохранитель клиента Telegram. После failureThreshold ошибок недоступности подряд
+ * размыкается (OPEN): запросы отклоняются сразу. Через openMs пропускается один пробный
+ * запрос (HALF_OPEN); успех замыкает предохранитель, ошибка снова размыкает.
+ */
+public class TelegramCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private LocalDateTime openedAt;
+    private long probeStartedAtNanos;
+
+    public TelegramCircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = Math.max(0, openMs) * 1_000_000L;
+    }
+
+    /**
+     * Можно ли выполнить запрос. В разомкнутом состоянии по истечении openMs
+     * пропускает один пробный запрос; зависший пробный запрос заменяется новым через тот же срок
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAtNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeStartedAtNanos = now;
+                logger.info("Предохранитель Telegram: пробный запрос после {} мс недоступности",
+                        (now - openedAtNanos) / 1_000_000L);
+                return true;
+            default:
+                if (now - probeStartedAtNanos < openNanos) {
+                    return false;
+                }
+                probeStartedAtNanos = now;
+                return true;
+        }
+    }
+
+    /**
+     * Telegram ответил
+     * @return true, если предохранитель был разомкнут и теперь замкнулся
+     */
+    public synchronized boolean onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.CLOSED) {
+            return false;
+        }
+        logger.info("Предохранитель Telegram замкнут: API снова доступен (был недоступен с {})", openedAt);
+        state = State.CLOSED;
+        openedAt = null;
+        return true;
+    }
+
+    /**
+     * Telegram недоступен (сетевая ошибка или 5xx)
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                openedAt = LocalDateTime.now();
+                logger.warn("Предохранитель Telegram разомкнут после {} ошибок подряд, отправки отклоняются {} мс",
+                        consecutiveFailures, openNanos / 1_000_000L);
+            } else {
+                logger.warn("Пробный запрос к Telegram не прошёл, предохранитель снова разомкнут");
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Разомкнут и время ожидания истекло: следующий запрос станет пробным
+     */
+    public synchronized boolean isProbeDue() {
+        return state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized LocalDateTime getOpenedAt() {
+        return openedAt;
+    }
+}
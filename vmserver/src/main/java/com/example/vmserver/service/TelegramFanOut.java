@@ -0,0 +1,438 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.config.BotConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Отправка сообщений Telegram с учётом ограничений API: общий token bucket
+ * (около 30 сообщений в секунду на бота) и не чаще одного сообщения в секунду в один чат.
+ * Рассылка нескольким чатам идёт параллельно на ограниченном пуле потоков, поэтому
+ * её время определяется лимитами, а не суммой задержек сети. Неудачные отправки
+ * повторяются с экспоненциальной задержкой, ответ 429 - через указанное Telegram время.
+ * <p>
+ * При недоступности Telegram (сетевые ошибки, 5xx) подряд размыкается предохранитель
+ * {@link TelegramCircuitBreaker}: отправки сразу отклоняются, не дожидаясь таймаута HTTP.
+ * Одиночные сообщения на это время складываются в ограниченный буфер (при переполнении
+ * вытесняются самые старые, одинаковые сообщения в один чат схлопываются) и досылаются,
+ * когда пробная отправка проходит и предохранитель замыкается.
+ */
+@Component
+public class TelegramFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramFanOut.class);
+
+    // Записи чатов, следующий слот которых давно прошёл, удаляются при превышении этого размера
+    private static final int CHAT_SLOTS_CLEANUP_THRESHOLD = 10_000;
+
+    /**
+     * Отправка одного сообщения в чат
+     */
+    @FunctionalInterface
+    public interface ChatSender {
+        void send(Long chatId) throws TelegramApiException;
+    }
+
+    /**
+     * Итог рассылки
+     * @param unavailable сколько из failed не отправлено из-за недоступности Telegram или таймаута
+     *                    рассылки: повтор для них имеет смысл, в отличие от отказов самого чата
+     */
+    public record Result(int sent, int failed, int unavailable) {
+    }
+
+    /**
+     * Состояние предохранителя и буфера сообщений на время недоступности Telegram
+     */
+    public record OutageStats(TelegramCircuitBreaker.State circuitState, int consecutiveFailures,
+                              LocalDateTime openedAt, int buffered, int bufferCapacity,
+                              long dropped, long coalesced, long replayed) {
+    }
+
+    private enum Outcome { SENT, FAILED, UNAVAILABLE, TIMED_OUT }
+
+    private record Pending(Long chatId, String text, ChatSender chatSender) {
+    }
+
+    private final BotConfig botConfig;
+    private final ExecutorService sender;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    // Общий token bucket: ёмкость и скорость пополнения - messagesPerSecond
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    // Ближайший момент (System.nanoTime), когда в чат можно отправить следующее сообщение
+    private final Map<Long, Long> chatSlots = new ConcurrentHashMap<>();
+
+    private final TelegramCircuitBreaker circuit;
+
+    // Сообщения, не отправленные из-за недоступности Telegram; от старых к новым
+    private final Deque<Pending> outageBuffer = new ArrayDeque<>();
+    private final int bufferCapacity;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    public TelegramFanOut(BotConfig botConfig) {
+        this.botConfig = botConfig;
+        this.capacity = Math.max(1, botConfig.getMessagesPerSecond());
+        this.tokensPerNano = capacity / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.sender = Executors.newFixedThreadPool(Math.max(1, botConfig.getSenderThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "telegram-sender-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.circuit = new TelegramCircuitBreaker(botConfig.getCircuitFailureThreshold(), botConfig.getCircuitOpenMs());
+        this.bufferCapacity = Math.max(0, botConfig.getOutageBufferSize());
+    }
+
+    /**
+     * Отправить сообщение в текущем потоке с учётом лимитов и повторами.
+     * Если Telegram недоступен, сообщение остаётся в буфере и будет дослано позже
+     * @return true, если сообщение принято Telegram
+     */
+    public boolean send(Long chatId, String text, ChatSender chatSender) {
+        try {
+            Outcome outcome = sendWithRetry(chatId, chatSender);
+            if (outcome == Outcome.UNAVAILABLE) {
+                buffer(new Pending(chatId, text, chatSender));
+            }
+            return outcome == Outcome.SENT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Отправка сообщения в чат {} прервана", chatId);
+            return false;
+        }
+    }
+
+    /**
+     * Разослать сообщение в несколько чатов параллельно и дождаться результата
+     * (не дольше broadcastTimeoutMs; не успевшие отправки отменяются и считаются ошибками).
+     * В полуоткрытом состоянии предохранителя проходит одна пробная отправка, остальные чаты
+     * отклоняются без запроса; если проба замкнула предохранитель, им сообщение досылается
+     * в той же рассылке (при bufferOnOutage их дошлёт буфер)
+     * @param bufferOnOutage складывать в буфер сообщения, не отправленные из-за недоступности Telegram;
+     *                       false, если повтор обеспечивает вызывающий (outbox уведомлений)
+     */
+    public Result broadcast(Collection<Long> chatIds, String text, ChatSender chatSender, boolean bufferOnOutage) {
+        if (chatIds.isEmpty()) {
+            return new Result(0, 0, 0);
+        }
+        long startTime = System.currentTimeMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(botConfig.getBroadcastTimeoutMs());
+        List<Long> targets = List.copyOf(chatIds);
+
+        int sent = 0;
+        int failed = 0;
+        int unavailable = 0;
+        try {
+            List<Outcome> outcomes = sendAll(targets, text, chatSender, bufferOnOutage, deadline);
+            if (!bufferOnOutage && circuit.getState() == TelegramCircuitBreaker.State.CLOSED) {
+                List<Integer> rejected = new ArrayList<>();
+                for (int i = 0; i < outcomes.size(); i++) {
+                    if (outcomes.get(i) == Outcome.UNAVAILABLE) {
+                        rejected.add(i);
+                    }
+                }
+                if (!rejected.isEmpty()) {
+                    List<Outcome> resent = sendAll(rejected.stream().map(targets::get).toList(),
+                            text, chatSender, false, deadline);
+                    for (int i = 0; i < rejected.size(); i++) {
+                        outcomes.set(rejected.get(i), resent.get(i));
+                    }
+                }
+            }
+            for (Outcome outcome : outcomes) {
+                if (outcome == Outcome.SENT) {
+                    sent++;
+                } else {
+                    failed++;
+                    // Не дождались отправки: доставлено ли сообщение, неизвестно
+                    if (outcome == Outcome.UNAVAILABLE || outcome == Outcome.TIMED_OUT) {
+                        unavailable++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = chatIds.size() - sent;
+            unavailable = failed;
+            logger.warn("Рассылка в {} чатов прервана", chatIds.size());
+        }
+
+        logger.debug("Рассылка в {} чатов: {} успешно, {} с ошибками (Telegram недоступен - {}), за {} мс",
+                chatIds.size(), sent, failed, unavailable, System.currentTimeMillis() - startTime);
+        return new Result(sent, failed, unavailable);
+    }
+
+    /**
+     * Параллельная отправка в чаты до общего срока рассылки
+     * @return итог по каждому чату в том же порядке
+     */
+    private List<Outcome> sendAll(List<Long> chatIds, String text, ChatSender chatSender, boolean bufferOnOutage,
+                                  long deadline) throws InterruptedException {
+        List<Callable<Outcome>> tasks = new ArrayList<>(chatIds.size());
+        for (Long chatId : chatIds) {
+            tasks.add(() -> {
+                Outcome outcome = sendWithRetry(chatId, chatSender);
+                if (outcome == Outcome.UNAVAILABLE && bufferOnOutage) {
+                    buffer(new Pending(chatId, text, chatSender));
+                }
+                return outcome;
+            });
+        }
+
+        List<Future<Outcome>> results = sender.invokeAll(tasks, Math.max(0, deadline - System.nanoTime()),
+                TimeUnit.NANOSECONDS);
+        List<Outcome> outcomes = new ArrayList<>(results.size());
+        for (Future<Outcome> result : results) {
+            try {
+                outcomes.add(result.get());
+            } catch (CancellationException e) {
+                outcomes.add(Outcome.TIMED_OUT);
+            } catch (ExecutionException e) {
+                outcomes.add(Outcome.FAILED);
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Примет ли Telegram отправку с точки зрения предохранителя: разомкнутый отклоняет отправки,
+     * пока не подошло время пробного запроса
+     */
+    public boolean isAvailable() {
+        return circuit.getState() != TelegramCircuitBreaker.State.OPEN || circuit.isProbeDue();
+    }
+
+    public synchronized OutageStats getOutageStats() {
+        return new OutageStats(circuit.getState(), circuit.getConsecutiveFailures(), circuit.getOpenedAt(),
+                outageBuffer.size(), bufferCapacity, dropped.sum(), coalesced.sum(), replayed.sum());
+    }
+
+    /**
+     * Пробная отправка из буфера, когда истекло время размыкания и новых сообщений нет:
+     * без неё предохранитель оставался бы разомкнутым до следующей отправки
+     */
+    @Scheduled(fixedDelayString = "${telegram.bot.circuit-open-ms:30000}")
+    public void probeBuffered() {
+        if (circuit.isProbeDue() && hasBuffered()) {
+            replayBufferedAsync();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private Outcome sendWithRetry(Long chatId, ChatSender chatSender) throws InterruptedException {
+        int maxAttempts = Math.max(1, botConfig.getMaxSendAttempts());
+        for (int attempt = 1; ; attempt++) {
+            if (!circuit.tryAcquire()) {
+                logger.debug("Telegram недоступен, отправка в чат {} отклонена без запроса", chatId);
+                return Outcome.UNAVAILABLE;
+            }
+            sleepNanos(reserveChatSlot(chatId));
+            sleepNanos(reserveToken());
+            try {
+                chatSender.send(chatId);
+                onReachable();
+                return Outcome.SENT;
+            } catch (TelegramApiException e) {
+                boolean outage = isOutage(e);
+                if (outage) {
+                    circuit.onFailure();
+                } else {
+                    // Telegram ответил: ошибка касается запроса или чата, а не доступности API
+                    onReachable();
+                }
+                long retryDelayMs = retryDelayMs(e, attempt);
+                if (attempt >= maxAttempts || retryDelayMs < 0) {
+                    logger.error("Ошибка отправки сообщения в Telegram чат {} (попытка {}): {}",
+                            chatId, attempt, e.getMessage(), e);
+                    return outage ? Outcome.UNAVAILABLE : Outcome.FAILED;
+                }
+                logger.warn("Ошибка отправки сообщения в Telegram чат {} (попытка {}), повтор через {} мс: {}",
+                        chatId, attempt, retryDelayMs, e.getMessage());
+                Thread.sleep(retryDelayMs);
+            }
+        }
+    }
+
+    /**
+     * Сетевая ошибка или 5xx - признак недоступности Telegram (в отличие от 4xx и 429)
+     */
+    private static boolean isOutage(TelegramApiException e) {
+        return !(e instanceof TelegramApiRequestException requestException)
+                || requestException.getErrorCode() == null
+                || requestException.getErrorCode() >= 500;
+    }
+
+    private void onReachable() {
+        if (circuit.onSuccess() && hasBuffered()) {
+            replayBufferedAsync();
+        }
+    }
+
+    /**
+     * Положить сообщение в буфер: такое же сообщение в тот же чат не дублируется,
+     * при переполнении вытесняется самое старое
+     */
+    private synchronized void buffer(Pending pending) {
+        if (bufferCapacity == 0) {
+            dropped.increment();
+            return;
+        }
+        for (Pending queued : outageBuffer) {
+            if (queued.chatId().equals(pending.chatId()) && queued.text().equals(pending.text())) {
+                coalesced.increment();
+                return;
+            }
+        }
+        if (outageBuffer.size() >= bufferCapacity) {
+            Pending evicted = outageBuffer.pollFirst();
+            dropped.increment();
+            logger.warn("Буфер сообщений Telegram переполнен, вытеснено сообщение в чат {}", evicted.chatId());
+        }
+        outageBuffer.addLast(pending);
+    }
+
+    private synchronized boolean hasBuffered() {
+        return !outageBuffer.isEmpty();
+    }
+
+    private synchronized Pending pollBuffered() {
+        return outageBuffer.pollFirst();
+    }
+
+    private synchronized void returnBuffered(Pending pending) {
+        if (outageBuffer.size() >= bufferCapacity) {
+            dropped.increment();
+            return;
+        }
+        outageBuffer.addFirst(pending);
+    }
+
+    private void replayBufferedAsync() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(this::replayBuffered);
+        } catch (RejectedExecutionException e) {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * Досылка буфера по порядку; при новой недоступности сообщение возвращается в начало буфера
+     */
+    private void replayBuffered() {
+        int count = 0;
+        try {
+            Pending pending;
+            while ((pending = pollBuffered()) != null) {
+                Outcome outcome = sendWithRetry(pending.chatId(), pending.chatSender());
+                if (outcome == Outcome.UNAVAILABLE) {
+                    returnBuffered(pending);
+                    break;
+                }
+                if (outcome == Outcome.SENT) {
+                    replayed.increment();
+                    count++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replaying.set(false);
+        }
+        if (count > 0) {
+            logger.info("Дослано {} сообщений Telegram, накопленных за время недоступности", count);
+        }
+    }
+
+    /**
+     * Задержка перед повтором: retry_after для 429, экспоненциальная для сетевых ошибок и 5xx,
+     * -1 для остальных ошибок запроса (чат заблокирован, неверный запрос) - повтор бесполезен
+     */
+    private long retryDelayMs(TelegramApiException e, int attempt) {
+        long backoffMs = botConfig.getRetryBaseMs() << Math.min(attempt - 1, 20);
+        if (e instanceof TelegramApiRequestException requestException && requestException.getErrorCode() != null) {
+            int code = requestException.getErrorCode();
+            if (code == 429) {
+                Integer retryAfter = requestException.getParameters() != null
+                        ? requestException.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? TimeUnit.SECONDS.toMillis(retryAfter) : backoffMs;
+            }
+            if (code < 500) {
+                return -1;
+            }
+        }
+        return backoffMs;
+    }
+
+    /**
+     * Резервирует токен общего лимита
+     * @return сколько наносекунд ждать до отправки
+     */
+    private synchronized long reserveToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        // Отрицательный остаток - токен выдан в долг, его время ещё не наступило
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Резервирует слот отправки в чат
+     * @return сколько наносекунд ждать до отправки
+     */
+    private long reserveChatSlot(Long chatId) {
+        long now = System.nanoTime();
+        long interval = TimeUnit.MILLISECONDS.toNanos(botConfig.getPerChatIntervalMs());
+        if (chatSlots.size() > CHAT_SLOTS_CLEANUP_THRESHOLD) {
+            chatSlots.values().removeIf(slot -> slot - now < 0);
+        }
+        long slot = chatSlots.compute(chatId, (id, next) -> (next == null || next - now < 0 ? now : next) + interval) - interval;
+        return Math.max(0, slot - now);
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
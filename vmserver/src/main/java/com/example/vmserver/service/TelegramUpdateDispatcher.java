@@ -0,0 +1,147 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.config.BotConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер обработки входящих обновлений Telegram (long polling и webhook).
+ * Обновления распределяются по полосам (однопоточным исполнителям с ограниченной очередью)
+ * по ID чата: команды одного чата выполняются по порядку, разных чатов - параллельно.
+ * Повторно доставленные обновления (тот же update_id) отбрасываются.
+ */
+@Component
+public class TelegramUpdateDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramUpdateDispatcher.class);
+
+    // Сколько последних update_id помнить для отбрасывания повторов
+    private static final int RECENT_UPDATES = 10_000;
+
+    // Пауза между попытками поставить обновление в переполненную очередь
+    private static final long SUBMIT_RETRY_MS = 50;
+
+    private final TelegramBotServiceImpl telegramBotService;
+    private final ThreadPoolExecutor[] lanes;
+
+    private final Map<Integer, Boolean> recentUpdates = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+            return size() > RECENT_UPDATES;
+        }
+    };
+
+    // Бот зависит от конвейера (onUpdateReceived), поэтому ссылка на бот - ленивый прокси
+    public TelegramUpdateDispatcher(@Lazy TelegramBotServiceImpl telegramBotService, BotConfig botConfig) {
+        this.telegramBotService = telegramBotService;
+        int laneCount = Math.max(1, botConfig.getUpdateThreads());
+        int laneCapacity = Math.max(1, botConfig.getUpdateQueueCapacity() / laneCount);
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = "telegram-updates-" + (i + 1);
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(laneCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            lane.allowCoreThreadTimeOut(true);
+            lanes[i] = lane;
+        }
+    }
+
+    /**
+     * Поставить обновление в очередь обработки
+     * @return false, если очередь полосы переполнена (обновление не принято)
+     */
+    public boolean submit(Update update) {
+        return submit(update, 0);
+    }
+
+    /**
+     * Поставить обновление в очередь обработки, ожидая места в очереди полосы не дольше waitMs
+     * @return false, если место не освободилось (обновление не принято и может быть доставлено повторно)
+     */
+    public boolean submit(Update update, long waitMs) {
+        if (!markSeen(update.getUpdateId())) {
+            logger.debug("Повторное обновление Telegram {} отброшено", update.getUpdateId());
+            return true;
+        }
+
+        Long chatId = chatIdOf(update);
+        int key = chatId != null ? chatId.hashCode() : Objects.hashCode(update.getUpdateId());
+        ThreadPoolExecutor lane = lanes[Math.floorMod(key, lanes.length)];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        while (true) {
+            try {
+                lane.execute(() -> process(update));
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (lane.isShutdown() || System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+            }
+            try {
+                Thread.sleep(SUBMIT_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        forget(update.getUpdateId());
+        logger.warn("Очередь обновлений Telegram переполнена, обновление {} (чат {}) отклонено",
+                update.getUpdateId(), chatId);
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void process(Update update) {
+        try {
+            if (!telegramBotService.handleCachedCommand(update)) {
+                telegramBotService.handleUpdate(update);
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка обработки обновления Telegram {}: {}", update.getUpdateId(), e.getMessage(), e);
+        }
+    }
+
+    private synchronized boolean markSeen(Integer updateId) {
+        return updateId == null || recentUpdates.putIfAbsent(updateId, Boolean.TRUE) == null;
+    }
+
+    private synchronized void forget(Integer updateId) {
+        if (updateId != null) {
+            recentUpdates.remove(updateId);
+        }
+    }
+
+    private static Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,581 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.dto.UtilizationReportDTO;
+import com.example.vmserver.enums.UtilizationBucket;
+import com.example.vmserver.model.QueueHourlyRollup;
+import com.example.vmserver.repository.QueueHourlyRollupRepository;
+import com.example.vmserver.repository.VMQueueRepository;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.RollupDurationBucketView;
+import com.example.vmserver.repository.projection.RollupHourPeakView;
+import com.example.vmserver.repository.projection.RollupHourTotalsView;
+import com.example.vmserver.repository.projection.RollupStationTotalsView;
+import com.example.vmserver.repository.projection.SessionIntervalView;
+import com.example.vmserver.repository.projection.StationUserCountView;
+import com.example.vmserver.repository.projection.StationUserView;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Аналитика использования станций по истории очереди.
+ * Все показатели берутся из почасовых агрегатов (см. QueueRollupService): занятость, сессии,
+ * уникальные пользователи, гистограмма длительностей и пик одновременных сессий по часам.
+ * Сырые записи очереди читаются только для ещё не агрегированного хвоста (активные и
+ * освобождённые после отметки агрегации); пик хвоста считается заметающей прямой по часам
+ * и складывается с пиком агрегатов того же часа. Сумма точна, только если хвост в течение
+ * часа не меняется, поэтому часы, где сессия хвоста начинается или заканчивается внутри
+ * часа при ненулевом пике агрегатов, пересчитываются заметающей прямой по всем сессиям часа.
+ * Перцентили длительностей - оценка по гистограмме агрегатов.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+public class UtilizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UtilizationService.class);
+
+    // Ограничение размера разбивки (например, почти 14 месяцев по часам)
+    private static final int MAX_BUCKETS = 10_000;
+
+    private final VMQueueRepository queueRepository;
+    private final VMStationRepository stationRepository;
+    private final QueueHourlyRollupRepository rollupRepository;
+    private final QueueRollupService rollupService;
+
+    /**
+     * Отчёт об использовании станций за период [from, to), выровненный до целых часов
+     * @param from начало периода
+     * @param to конец периода
+     * @param bucket размер интервала разбивки
+     * @return DTO отчёта
+     */
+    public UtilizationReportDTO getUtilization(LocalDateTime from, LocalDateTime to, UtilizationBucket bucket) {
+        logger.info("Расчёт использования станций за период {} - {} с разбивкой {}", from, to, bucket);
+        LocalDateTime startTime = LocalDateTime.now();
+
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше его конца");
+        }
+
+        // Агрегаты почасовые, поэтому период выравнивается до целых часов
+        LocalDateTime periodStart = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime periodEnd = to.truncatedTo(ChronoUnit.HOURS);
+        if (periodEnd.isBefore(to)) {
+            periodEnd = periodEnd.plusHours(1);
+        }
+
+        LocalDateTime gridStart = bucket.truncate(periodStart);
+        long bucketSeconds = bucket.duration().getSeconds();
+        long bucketCount = (Duration.between(gridStart, periodEnd).getSeconds() + bucketSeconds - 1) / bucketSeconds;
+        if (bucketCount > MAX_BUCKETS) {
+            throw new IllegalArgumentException(String.format(
+                    "Слишком длинный период для разбивки %s: %d интервалов, допустимо не более %d",
+                    bucket, bucketCount, MAX_BUCKETS));
+        }
+
+        try {
+            LocalDateTime watermark = rollupService.getWatermark();
+            Accumulator accumulator = new Accumulator(gridStart, periodStart, periodEnd, bucketSeconds,
+                    (int) bucketCount, LocalDateTime.now());
+
+            if (watermark != null) {
+                rollupRepository.sumByStation(periodStart, periodEnd).forEach(accumulator::addRollupStation);
+                rollupRepository.sumByHour(periodStart, periodEnd).forEach(accumulator::addRollupHour);
+                rollupRepository.sumDurationHistogram(periodStart, periodEnd).forEach(accumulator::addRollupDurations);
+                rollupRepository.findPeaks(periodStart, periodEnd).forEach(accumulator::addRollupPeak);
+                rollupRepository.countDistinctUsersByStation(periodStart, periodEnd)
+                        .forEach(accumulator::addRollupDistinctUsers);
+                accumulator.addRollupFleetDistinctUsers(rollupRepository.countDistinctUsers(periodStart, periodEnd));
+            }
+
+            // Сессии, освобождённые до начала периода, его не пересекают
+            LocalDateTime rolledUpTo = watermark != null && watermark.isAfter(periodStart) ? watermark : periodStart;
+            try (Stream<SessionIntervalView> sessions =
+                         queueRepository.streamUnrolledSessions(periodStart, periodEnd, rolledUpTo)) {
+                sessions.forEach(accumulator::add);
+            }
+            for (int[] hours : accumulator.mixedHourRanges()) {
+                try (Stream<SessionIntervalView> sessions = queueRepository.streamSessions(
+                        accumulator.hourStart(hours[0]), accumulator.hourStart(hours[1]))) {
+                    accumulator.sweepExact(hours[0], hours[1], sessions);
+                }
+            }
+            accumulator.finish();
+
+            // Пользователи неагрегированных сессий могли уже встречаться в агрегатах периода
+            Set<Long> tailUsers = accumulator.tailUsers();
+            if (!tailUsers.isEmpty()) {
+                List<StationUserView> known = watermark != null
+                        ? rollupRepository.findStationUsers(periodStart, periodEnd, tailUsers)
+                        : List.of();
+                accumulator.mergeTailUsers(known);
+            }
+
+            UtilizationReportDTO report = accumulator.toReport(stationRepository.count(), bucket);
+
+            LocalDateTime endTime = LocalDateTime.now();
+            Duration duration = Duration.between(startTime, endTime);
+            logger.info("Использование станций рассчитано за {} мс: {} сессий, пик {} одновременных",
+                    duration.toMillis(), report.getFleet().getSessionCount(),
+                    report.getFleet().getPeakConcurrentSessions());
+
+            return report;
+        } catch (Exception e) {
+            logger.error("Ошибка при расчёте использования станций: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Однопроходный накопитель показателей. Время хранится в секундах
+     * от начала сетки интервалов, чтобы не создавать объекты на каждую сессию.
+     */
+    private static final class Accumulator {
+
+        private static final long HOUR_SECONDS = 3600;
+        private static final long[] DURATION_BOUNDS = QueueHourlyRollup.DURATION_BOUNDS_SECONDS;
+
+        private final LocalDateTime gridStart;
+        private final long periodStart;
+        private final long periodEnd;
+        private final long now;
+        private final long bucketSeconds;
+
+        private final long[] bucketBusy;
+        private final long[] bucketStarted;
+        private final int[] bucketPeak;
+
+        // Пики по часам периода: агрегаты и заметающая прямая по хвосту
+        private final int[] rollupPeak;
+        private final long[] rollupPeakAt;
+        private final ConcurrencySweep tailSweep;
+
+        // Часы, где сессия хвоста начинается или заканчивается внутри часа
+        private final boolean[] tailChanges;
+
+        // Точные пики часов, пересчитанных по всем сессиям
+        private final boolean[] exact;
+        private final int[] exactPeak;
+        private final long[] exactPeakAt;
+
+        private final Map<Long, StationTotals> stations = new HashMap<>();
+
+        // Пары станция - пользователь из сессий, которых ещё нет в агрегатах
+        private final Map<Long, Set<Long>> tailStationUsers = new HashMap<>();
+
+        // Гистограмма длительностей сессий, начатых в периоде
+        private final long[] durationHistogram = new long[DURATION_BOUNDS.length + 1];
+        private long durationCount;
+        private long durationTotal;
+        private long durationMax = -1;
+
+        private long sessionCount;
+        private long busyTotal;
+        private long distinctUsers;
+        private int peak;
+        private long peakAt = -1;
+
+        Accumulator(LocalDateTime gridStart, LocalDateTime from, LocalDateTime to,
+                    long bucketSeconds, int bucketCount, LocalDateTime now) {
+            this.gridStart = gridStart;
+            this.periodStart = offset(from);
+            this.periodEnd = offset(to);
+            this.now = offset(now);
+            this.bucketSeconds = bucketSeconds;
+            this.bucketBusy = new long[bucketCount];
+            this.bucketStarted = new long[bucketCount];
+            this.bucketPeak = new int[bucketCount];
+
+            int hourCount = (int) ((periodEnd - periodStart) / HOUR_SECONDS);
+            this.rollupPeak = new int[hourCount];
+            this.rollupPeakAt = new long[hourCount];
+            this.tailSweep = new ConcurrencySweep(HOUR_SECONDS, hourCount);
+            this.tailChanges = new boolean[hourCount];
+            this.exact = new boolean[hourCount];
+            this.exactPeak = new int[hourCount];
+            this.exactPeakAt = new long[hourCount];
+        }
+
+        private long offset(LocalDateTime time) {
+            return Duration.between(gridStart, time).getSeconds();
+        }
+
+        private int bucketOf(long offset) {
+            return (int) Math.min(offset / bucketSeconds, bucketBusy.length - 1);
+        }
+
+        private int hourOf(long offset) {
+            return (int) ((offset - periodStart) / HOUR_SECONDS);
+        }
+
+        LocalDateTime hourStart(int hour) {
+            return gridStart.plusSeconds(periodStart + hour * HOUR_SECONDS);
+        }
+
+        /**
+         * Конец сессии: время освобождения, текущий момент для активной или -1, если неизвестен
+         */
+        private long endOf(SessionIntervalView session) {
+            if (session.getReleasedAt() != null) {
+                return offset(session.getReleasedAt());
+            }
+            // Незавершённая сессия занимает станцию до текущего момента
+            return Boolean.TRUE.equals(session.getActive()) ? now : -1;
+        }
+
+        private StationTotals station(Long stationId, String ip) {
+            StationTotals totals = stations.computeIfAbsent(stationId, id -> new StationTotals());
+            if (totals.ip == null) {
+                totals.ip = ip;
+            }
+            return totals;
+        }
+
+        void addRollupStation(RollupStationTotalsView row) {
+            StationTotals totals = station(row.getStationId(), row.getStationIp());
+            totals.sessions += row.getSessions();
+            totals.busySeconds += row.getBusySeconds();
+            sessionCount += row.getSessions();
+            busyTotal += row.getBusySeconds();
+        }
+
+        void addRollupHour(RollupHourTotalsView row) {
+            int bucket = bucketOf(offset(row.getHourStart()));
+            bucketStarted[bucket] += row.getSessions();
+            bucketBusy[bucket] += row.getBusySeconds();
+            // Агрегаты, построенные до появления гистограмм, длительностей не содержат
+            if (row.getDurationSeconds() != null) {
+                durationTotal += row.getDurationSeconds();
+            }
+            if (row.getMaxDurationSeconds() != null) {
+                durationMax = Math.max(durationMax, row.getMaxDurationSeconds());
+            }
+        }
+
+        void addRollupDurations(RollupDurationBucketView row) {
+            if (row.getBucket() >= 0 && row.getBucket() < durationHistogram.length) {
+                durationHistogram[row.getBucket()] += row.getTotal();
+                durationCount += row.getTotal();
+            }
+        }
+
+        void addRollupPeak(RollupHourPeakView row) {
+            int hour = hourOf(offset(row.getHourStart()));
+            if (hour >= 0 && hour < rollupPeak.length) {
+                rollupPeak[hour] = row.getPeakSessions();
+                rollupPeakAt[hour] = offset(row.getPeakAt());
+            }
+        }
+
+        void addRollupDistinctUsers(StationUserCountView row) {
+            station(row.getStationId(), null).distinctUsers += row.getTotal();
+        }
+
+        void addRollupFleetDistinctUsers(long count) {
+            distinctUsers += count;
+        }
+
+        /**
+         * Учитывает одну ещё не агрегированную сессию; сессии должны приходить в порядке начала
+         */
+        void add(SessionIntervalView session) {
+            if (session.getStartedAt() == null) {
+                return;
+            }
+            long rawStart = offset(session.getStartedAt());
+            long rawEnd = endOf(session);
+            if (rawEnd < 0) {
+                // Неактивная запись без времени освобождения: длительность неизвестна
+                return;
+            }
+
+            long start = Math.max(rawStart, periodStart);
+            long end = Math.min(rawEnd, periodEnd);
+            if (end < start) {
+                return;
+            }
+
+            boolean startedInPeriod = rawStart >= periodStart;
+            if (startedInPeriod && session.getReleasedAt() != null) {
+                recordDuration(rawEnd - rawStart);
+            }
+            addTail(session, startedInPeriod, start, end);
+            tailSweep.add(start - periodStart, end - periodStart);
+            if (end > start) {
+                markTailChange(start);
+                markTailChange(end);
+            }
+        }
+
+        private void markTailChange(long offset) {
+            if (offset < periodEnd && (offset - periodStart) % HOUR_SECONDS != 0) {
+                tailChanges[hourOf(offset)] = true;
+            }
+        }
+
+        /**
+         * Непрерывные диапазоны часов [from, to), где пик агрегатов и пик хвоста складывать нельзя:
+         * в часе есть агрегированные сессии, а число сессий хвоста меняется внутри часа
+         */
+        List<int[]> mixedHourRanges() {
+            List<int[]> ranges = new ArrayList<>();
+            int hour = 0;
+            while (hour < rollupPeak.length) {
+                if (rollupPeak[hour] > 0 && tailChanges[hour]) {
+                    int from = hour;
+                    while (hour < rollupPeak.length && rollupPeak[hour] > 0 && tailChanges[hour]) {
+                        hour++;
+                    }
+                    ranges.add(new int[] {from, hour});
+                } else {
+                    hour++;
+                }
+            }
+            return ranges;
+        }
+
+        /**
+         * Точный пик часов [fromHour, toHour) по всем сессиям, пересекающим их; сессии должны
+         * приходить в порядке начала
+         */
+        void sweepExact(int fromHour, int toHour, Stream<SessionIntervalView> sessions) {
+            long base = periodStart + fromHour * HOUR_SECONDS;
+            long limit = periodStart + toHour * HOUR_SECONDS;
+            ConcurrencySweep sweep = new ConcurrencySweep(HOUR_SECONDS, toHour - fromHour);
+            sessions.forEach(session -> {
+                if (session.getStartedAt() == null) {
+                    return;
+                }
+                long rawEnd = endOf(session);
+                long start = Math.max(offset(session.getStartedAt()), base);
+                long end = Math.min(rawEnd, limit);
+                if (rawEnd >= 0 && end >= start) {
+                    sweep.add(start - base, end - base);
+                }
+            });
+            sweep.finish();
+            for (int hour = fromHour; hour < toHour; hour++) {
+                exact[hour] = true;
+                exactPeak[hour] = sweep.peak(hour - fromHour);
+                exactPeakAt[hour] = base + sweep.peakAt(hour - fromHour);
+            }
+        }
+
+        /**
+         * Занятость и сессии, которых ещё нет в агрегатах
+         */
+        private void addTail(SessionIntervalView session, boolean startedInPeriod, long start, long end) {
+            StationTotals totals = station(session.getStationId(), session.getStationIp());
+            totals.busySeconds += end - start;
+            busyTotal += end - start;
+            if (startedInPeriod) {
+                totals.sessions++;
+                sessionCount++;
+                bucketStarted[bucketOf(start)]++;
+            }
+            if (session.getUserId() != null) {
+                tailStationUsers.computeIfAbsent(session.getStationId(), id -> new HashSet<>())
+                        .add(session.getUserId());
+            }
+            distributeBusy(start, end);
+        }
+
+        /**
+         * Длительность в интервал гистограммы с теми же границами, что и в агрегатах
+         */
+        private void recordDuration(long seconds) {
+            long duration = Math.max(seconds, 0);
+            int bucket = 0;
+            while (bucket < DURATION_BOUNDS.length && duration >= DURATION_BOUNDS[bucket]) {
+                bucket++;
+            }
+            durationHistogram[bucket]++;
+            durationCount++;
+            durationTotal += duration;
+            durationMax = Math.max(durationMax, duration);
+        }
+
+        /**
+         * Раскладывает занятость [start, end) по интервалам
+         */
+        private void distributeBusy(long start, long end) {
+            for (int i = bucketOf(start); i < bucketBusy.length && (long) i * bucketSeconds < end; i++) {
+                long bucketStart = (long) i * bucketSeconds;
+                long overlap = Math.min(end, bucketStart + bucketSeconds) - Math.max(start, bucketStart);
+                if (overlap > 0) {
+                    bucketBusy[i] += overlap;
+                }
+            }
+        }
+
+        /**
+         * Сводит пики по часам. Если хвост в течение часа не меняется, к каждому моменту часа
+         * он добавляет одно и то же число сессий, и пики агрегатов и хвоста складываются точно;
+         * остальные часы уже пересчитаны по всем сессиям (sweepExact).
+         */
+        void finish() {
+            tailSweep.finish();
+            for (int hour = 0; hour < rollupPeak.length; hour++) {
+                int concurrent;
+                long at;
+                if (exact[hour]) {
+                    concurrent = exactPeak[hour];
+                    at = exactPeakAt[hour];
+                } else {
+                    int tail = tailSweep.peak(hour);
+                    concurrent = rollupPeak[hour] + tail;
+                    // При неизменном хвосте общий пик достигается в момент пика агрегатов
+                    at = rollupPeak[hour] > 0 ? rollupPeakAt[hour] : periodStart + tailSweep.peakAt(hour);
+                }
+                if (concurrent == 0) {
+                    continue;
+                }
+                int bucket = bucketOf(periodStart + hour * HOUR_SECONDS);
+                bucketPeak[bucket] = Math.max(bucketPeak[bucket], concurrent);
+                if (concurrent > peak) {
+                    peak = concurrent;
+                    peakAt = at;
+                }
+            }
+        }
+
+        Set<Long> tailUsers() {
+            Set<Long> users = new HashSet<>();
+            tailStationUsers.values().forEach(users::addAll);
+            return users;
+        }
+
+        /**
+         * Добавляет к уникальным пользователям тех, кто встречается только в неагрегированных сессиях
+         * @param known пары станция - пользователь, уже учтённые в агрегатах периода
+         */
+        void mergeTailUsers(List<StationUserView> known) {
+            Set<Long> knownUsers = new HashSet<>();
+            Map<Long, Set<Long>> knownByStation = new HashMap<>();
+            for (StationUserView pair : known) {
+                knownUsers.add(pair.getUserId());
+                knownByStation.computeIfAbsent(pair.getStationId(), id -> new HashSet<>()).add(pair.getUserId());
+            }
+
+            tailStationUsers.forEach((stationId, users) -> {
+                Set<Long> stationKnown = knownByStation.getOrDefault(stationId, Set.of());
+                long added = users.stream().filter(user -> !stationKnown.contains(user)).count();
+                stations.get(stationId).distinctUsers += added;
+            });
+            distinctUsers += tailUsers().stream().filter(user -> !knownUsers.contains(user)).count();
+        }
+
+        UtilizationReportDTO toReport(long stationCount, UtilizationBucket bucket) {
+            long periodSeconds = periodEnd - periodStart;
+
+            List<UtilizationReportDTO.StationUtilization> stationList = new ArrayList<>(stations.size());
+            stations.forEach((stationId, totals) -> stationList.add(UtilizationReportDTO.StationUtilization.builder()
+                    .stationId(stationId)
+                    .stationIp(totals.ip)
+                    .sessionCount(totals.sessions)
+                    .distinctUsers(totals.distinctUsers)
+                    .busySeconds(totals.busySeconds)
+                    .utilization(ratio(totals.busySeconds, periodSeconds))
+                    .build()));
+            stationList.sort(Comparator.comparing(UtilizationReportDTO.StationUtilization::getBusySeconds).reversed());
+
+            List<UtilizationReportDTO.BucketUtilization> bucketList = new ArrayList<>(bucketBusy.length);
+            for (int i = 0; i < bucketBusy.length; i++) {
+                long bucketStart = (long) i * bucketSeconds;
+                long coveredSeconds = Math.min(bucketStart + bucketSeconds, periodEnd) - Math.max(bucketStart, periodStart);
+                bucketList.add(UtilizationReportDTO.BucketUtilization.builder()
+                        .start(gridStart.plusSeconds(bucketStart))
+                        .sessionsStarted(bucketStarted[i])
+                        .busySeconds(bucketBusy[i])
+                        .peakConcurrentSessions(bucketPeak[i])
+                        .utilization(ratio(bucketBusy[i], stationCount * coveredSeconds))
+                        .build());
+            }
+
+            UtilizationReportDTO.FleetUtilization fleet = UtilizationReportDTO.FleetUtilization.builder()
+                    .stationCount(stationCount)
+                    .sessionCount(sessionCount)
+                    .distinctUsers(distinctUsers)
+                    .busySeconds(busyTotal)
+                    .utilization(ratio(busyTotal, stationCount * periodSeconds))
+                    .peakConcurrentSessions(peak)
+                    .peakAt(peakAt >= 0 ? gridStart.plusSeconds(peakAt) : null)
+                    .sessionDuration(durationStatistics())
+                    .build();
+
+            return UtilizationReportDTO.builder()
+                    .from(gridStart.plusSeconds(periodStart))
+                    .to(gridStart.plusSeconds(periodEnd))
+                    .bucket(bucket)
+                    .fleet(fleet)
+                    .stations(stationList)
+                    .buckets(bucketList)
+                    .build();
+        }
+
+        private UtilizationReportDTO.DurationStatistics durationStatistics() {
+            return UtilizationReportDTO.DurationStatistics.builder()
+                    .count(durationCount)
+                    .avgSeconds(durationCount > 0 ? durationTotal / durationCount : null)
+                    .p50Seconds(percentile(0.50))
+                    .p90Seconds(percentile(0.90))
+                    .p95Seconds(percentile(0.95))
+                    .p99Seconds(percentile(0.99))
+                    .maxSeconds(durationMax >= 0 ? durationMax : null)
+                    .build();
+        }
+
+        /**
+         * Перцентиль по гистограмме: интервал находится методом ближайшего ранга,
+         * значение - линейной интерполяцией внутри интервала, не больше максимума
+         */
+        private Long percentile(double p) {
+            if (durationCount == 0) {
+                return null;
+            }
+            long rank = Math.max((long) Math.ceil(p * durationCount), 1);
+            long seen = 0;
+            for (int i = 0; i < durationHistogram.length; i++) {
+                long count = durationHistogram[i];
+                if (count > 0 && seen + count >= rank) {
+                    long lower = i == 0 ? 0 : DURATION_BOUNDS[i - 1];
+                    long upper = i < DURATION_BOUNDS.length ? DURATION_BOUNDS[i] : Math.max(durationMax, lower);
+                    long value = lower + (upper - lower) * (rank - seen) / count;
+                    return durationMax >= 0 ? Math.min(value, durationMax) : value;
+                }
+                seen += count;
+            }
+            return durationMax >= 0 ? durationMax : null;
+        }
+
+        private static Double ratio(long busySeconds, long capacitySeconds) {
+            return capacitySeconds > 0 ? (double) busySeconds / capacitySeconds : null;
+        }
+    }
+
+    /**
+     * Накопленные показатели одной станции
+     */
+    private static final class StationTotals {
+        private String ip;
+        private long sessions;
+        private long busySeconds;
+        private long distinctUsers;
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.vmserver.service;
 
+import com.example.vmserver.dto.QueueCursor;
 import com.example.vmserver.dto.VMQueueDTO;
 import com.example.vmserver.model.VMQueue;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.web.multipart.MultipartFile;
 
@@ -15,8 +18,14 @@ public interface VMQueueService {
     // Освободить станцию
     VMQueueDTO releaseStation(Long queueId);
     
-    // Получить все неактивные записи
-    List<VMQueueDTO> getAllInactiveRecords();
+    // Получить страницу неактивных записей (новые сначала) после курсора, с фильтром по времени освобождения
+    List<VMQueueDTO> getInactiveRecords(LocalDateTime from, LocalDateTime to, QueueCursor cursor, int limit);
+    
+    // Передать все неактивные записи периода потребителю, читая их из БД курсором
+    long streamInactiveRecords(LocalDateTime from, LocalDateTime to, Consumer<VMQueueDTO> consumer);
+    
+    // Получить N последних записей очереди
+    List<VMQueueDTO> getRecentRecords(int limit);
     
     // Получить все активные станции для пользователя по логину
     List<VMQueueDTO> getActiveStationsByUsername(String username);
@@ -1,7 +1,9 @@
 package com.example.vmserver.service;
 
+import com.example.vmserver.dto.QueueCursor;
 import com.example.vmserver.dto.VMQueueDTO;
 import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
 import com.example.vmserver.exception.ResourceNotFoundException;
 import com.example.vmserver.mapper.VMQueueMapper;
 import com.example.vmserver.model.VMQueue;
@@ -10,17 +12,23 @@ import com.example.vmserver.model.VMUser;
 import com.example.vmserver.repository.VMQueueRepository;
 import com.example.vmserver.repository.VMStationRepository;
 import com.example.vmserver.repository.VMUserRepository;
+import com.example.vmserver.repository.projection.QueueHistoryView;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,10 +37,21 @@ public class VMQueueServiceImpl implements VMQueueService {
     
     private static final Logger logger = LoggerFactory.getLogger(VMQueueServiceImpl.class);
     
+    // Верхняя граница для выборки последних записей очереди
+    private static final int MAX_RECENT_RECORDS = 500;
+    
+    // Верхняя граница размера страницы истории
+    private static final int MAX_PAGE_SIZE = 1000;
+    
+    // Границы периода истории по умолчанию
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
     private final VMQueueRepository queueRepository;
     private final VMUserRepository userRepository;
     private final VMStationRepository stationRepository;
-    private final TelegramBotService telegramBotService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -89,26 +108,17 @@ public class VMQueueServiceImpl implements VMQueueService {
             logger.debug("Обновление статуса станции с FREE на WORK");
             station.setState(VMState.WORK);
             stationRepository.save(station);
+            eventPublisher.publishEvent(new StationStateChangedEvent(
+                    stationId, station.getIp(), VMState.FREE, VMState.WORK, user.getUsername(), user.getUsername()));
             
             // Сохранение записи в очереди
             logger.debug("Сохранение записи в очереди");
             VMQueue savedQueue = queueRepository.save(queue);
             logger.info("Запись в очереди создана с ID: {}", savedQueue.getId());
             
-            // Отправка уведомления в Telegram
-            logger.debug("Отправка уведомления в Telegram об изменении статуса станции");
-            try {
-                String changedBy = user.getUsername();
-                telegramBotService.sendVMStatusChangeNotification(
-                    stationId,
-                    VMState.FREE.toString(),
-                    VMState.WORK.toString(),
-                    changedBy
-                );
-                logger.info("Уведомление Telegram отправлено об изменении статуса станции {} на WORK", stationId);
-            } catch (Exception e) {
-                logger.error("Ошибка отправки уведомления в Telegram", e);
-            }
+            // Уведомление в Telegram доставляется после фиксации транзакции (outbox)
+            notificationOutboxService.enqueueStatusChange(
+                    stationId, station.getIp(), VMState.FREE, VMState.WORK, user.getUsername());
             
             VMQueueDTO result = VMQueueMapper.queueToQueueDTO(savedQueue);
             
@@ -158,28 +168,22 @@ public class VMQueueServiceImpl implements VMQueueService {
             // Обновление статуса станции на FREE
             logger.debug("Обновление статуса станции с WORK на FREE");
             VMStation station = queue.getVmStation();
+            VMState previousState = station.getState();
             station.setState(VMState.FREE);
             stationRepository.save(station);
+            eventPublisher.publishEvent(new StationStateChangedEvent(
+                    station.getId(), station.getIp(), previousState, VMState.FREE, null,
+                    queue.getCurrentUser().getUsername()));
             
             // Сохранение обновленной записи
             logger.debug("Сохранение обновленной записи в очереди");
             VMQueue updatedQueue = queueRepository.save(queue);
             logger.info("Запись в очереди {} обновлена: станция освобождена", queueId);
             
-            // Отправка уведомления в Telegram
-            logger.debug("Отправка уведомления в Telegram об освобождении станции");
-            try {
-                String changedBy = queue.getCurrentUser().getUsername();
-                telegramBotService.sendVMStatusChangeNotification(
-                    station.getId(),
-                    VMState.WORK.toString(),
-                    VMState.FREE.toString(),
-                    changedBy
-                );
-                logger.info("Уведомление Telegram отправлено об изменении статуса станции {} на FREE", station.getId());
-            } catch (Exception e) {
-                logger.error("Ошибка отправки уведомления в Telegram", e);
-            }
+            // Уведомление в Telegram доставляется после фиксации транзакции (outbox)
+            notificationOutboxService.enqueueStatusChange(
+                    station.getId(), station.getIp(), previousState, VMState.FREE,
+                    queue.getCurrentUser().getUsername());
             
             VMQueueDTO result = VMQueueMapper.queueToQueueDTO(updatedQueue);
             
@@ -195,22 +199,28 @@ public class VMQueueServiceImpl implements VMQueueService {
     }
     
     @Override
-    @Cacheable(value = "VMQueue", key = "'inactive'")
-    public List<VMQueueDTO> getAllInactiveRecords() {
-        logger.debug("Получение всех неактивных записей очереди");
+    public List<VMQueueDTO> getInactiveRecords(LocalDateTime from, LocalDateTime to, QueueCursor cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        logger.debug("Получение страницы неактивных записей: период {} - {}, курсор {}, размер {}", from, to, cursor, size);
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            List<VMQueue> inactiveRecords = queueRepository.findByActiveFalse();
-            logger.debug("Найдено {} неактивных записей", inactiveRecords.size());
+            // Верхняя граница ключа: курсор или конец периода (не включительно)
+            LocalDateTime beforeReleasedAt = to != null ? to : HISTORY_END;
+            long beforeId = Long.MIN_VALUE;
+            if (cursor != null && cursor.releasedAt().isBefore(beforeReleasedAt)) {
+                beforeReleasedAt = cursor.releasedAt();
+                beforeId = cursor.id();
+            }
             
-            List<VMQueueDTO> result = inactiveRecords.stream()
-                    .map(VMQueueMapper::queueToQueueDTO)
+            List<VMQueueDTO> result = queueRepository.findInactivePage(
+                            from != null ? from : HISTORY_START, beforeReleasedAt, beforeId, size).stream()
+                    .map(VMQueueMapper::historyToQueueDTO)
                     .toList();
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
-            logger.debug("Получение неактивных записей завершено за {} мс", duration.toMillis());
+            logger.debug("Получено {} неактивных записей за {} мс", result.size(), duration.toMillis());
             
             return result;
         } catch (Exception e) {
@@ -219,6 +229,53 @@ public class VMQueueServiceImpl implements VMQueueService {
         }
     }
     
+    @Override
+    public long streamInactiveRecords(LocalDateTime from, LocalDateTime to, Consumer<VMQueueDTO> consumer) {
+        logger.debug("Потоковая выгрузка неактивных записей за период {} - {}", from, to);
+        LocalDateTime startTime = LocalDateTime.now();
+        
+        try (Stream<QueueHistoryView> records = queueRepository.streamInactive(
+                from != null ? from : HISTORY_START, to != null ? to : HISTORY_END)) {
+            long count = 0;
+            Iterator<QueueHistoryView> iterator = records.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(VMQueueMapper.historyToQueueDTO(iterator.next()));
+                count++;
+            }
+            
+            LocalDateTime endTime = LocalDateTime.now();
+            Duration duration = Duration.between(startTime, endTime);
+            logger.debug("Выгружено {} неактивных записей за {} мс", count, duration.toMillis());
+            
+            return count;
+        } catch (Exception e) {
+            logger.error("Ошибка при потоковой выгрузке неактивных записей: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public List<VMQueueDTO> getRecentRecords(int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_RECENT_RECORDS));
+        logger.debug("Получение {} последних записей очереди", size);
+        LocalDateTime startTime = LocalDateTime.now();
+        
+        try {
+            List<VMQueueDTO> result = queueRepository.findRecentWithUserAndStation(Limit.of(size)).stream()
+                    .map(VMQueueMapper::queueToQueueDTO)
+                    .toList();
+            
+            LocalDateTime endTime = LocalDateTime.now();
+            Duration duration = Duration.between(startTime, endTime);
+            logger.debug("Получено {} последних записей очереди за {} мс", result.size(), duration.toMillis());
+            
+            return result;
+        } catch (Exception e) {
+            logger.error("Ошибка при получении последних записей очереди: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+    
     @Override
     @Cacheable(value = "VMQueue", key = "#username + '-active'")
     public List<VMQueueDTO> getActiveStationsByUsername(String username) {
@@ -237,11 +294,11 @@ public class VMQueueServiceImpl implements VMQueueService {
             
             // Получение активных записей для пользователя
             logger.debug("Получение активных записей для пользователя ID={}", user.getId());
-            List<VMQueue> activeRecords = queueRepository.findByCurrentUserIdAndActiveTrueOrderByCreatedAtDesc(user.getId());
+            List<QueueHistoryView> activeRecords = queueRepository.findActiveRecordsByUserId(user.getId());
             logger.debug("Найдено {} активных записей для пользователя {}", activeRecords.size(), username);
             
             List<VMQueueDTO> result = activeRecords.stream()
-                    .map(VMQueueMapper::queueToQueueDTO)
+                    .map(VMQueueMapper::historyToQueueDTO)
                     .toList();
             
             LocalDateTime endTime = LocalDateTime.now();
@@ -264,11 +321,11 @@ public class VMQueueServiceImpl implements VMQueueService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            List<VMQueue> activeRecords = queueRepository.findByActiveTrue();
+            List<QueueHistoryView> activeRecords = queueRepository.findActiveRecords();
             logger.debug("Найдено {} активных записей", activeRecords.size());
             
             List<VMQueueDTO> result = activeRecords.stream()
-                    .map(VMQueueMapper::queueToQueueDTO)
+                    .map(VMQueueMapper::historyToQueueDTO)
                     .toList();
             
             LocalDateTime endTime = LocalDateTime.now();
@@ -289,16 +346,17 @@ public class VMQueueServiceImpl implements VMQueueService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            VMQueue queue = queueRepository.findById(id)
+            // Старые завершённые записи перенесены в архив (см. QueueArchiveService)
+            VMQueueDTO result = queueRepository.findById(id)
+                    .map(VMQueueMapper::queueToQueueDTO)
+                    .or(() -> queueRepository.findArchivedById(id).map(VMQueueMapper::historyToQueueDTO))
                     .orElseThrow(() -> {
                         logger.error("Запись в очереди с ID {} не найдена", id);
                         return new ResourceNotFoundException("Запись в очереди с ID " + id + " не найдена");
                     });
             
             logger.debug("Запись найдена: ID={}, активна={}, пользователь={}", 
-                    id, queue.getActive(), queue.getCurrentUser().getUsername());
-            
-            VMQueueDTO result = VMQueueMapper.queueToQueueDTO(queue);
+                    id, result.getActive(), result.getUsername());
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -338,16 +396,17 @@ public class VMQueueServiceImpl implements VMQueueService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            VMQueue queue = queueRepository.findByCurrentUserIdAndActiveTrue(userId)
+            QueueHistoryView queue = queueRepository.findActiveRecordsByUserId(userId, Limit.of(1)).stream()
+                    .findFirst()
                     .orElseThrow(() -> {
                         logger.warn("Активная запись для пользователя с ID {} не найдена", userId);
                         return new ResourceNotFoundException("Активная запись для пользователя с ID " + userId + " не найдена");
                     });
             
             logger.debug("Активная запись найдена: ID записи={}, станция={}", 
-                    queue.getId(), queue.getVmStation().getId());
+                    queue.getId(), queue.getStationId());
             
-            VMQueueDTO result = VMQueueMapper.queueToQueueDTO(queue);
+            VMQueueDTO result = VMQueueMapper.historyToQueueDTO(queue);
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -371,9 +430,10 @@ public class VMQueueServiceImpl implements VMQueueService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            long totalRecords = queueRepository.count();
+            long archivedRecords = queueRepository.countArchived();
+            long totalRecords = queueRepository.count() + archivedRecords;
             long activeRecords = queueRepository.countByActiveTrue();
-            long inactiveRecords = queueRepository.countByActiveFalse();
+            long inactiveRecords = queueRepository.countByActiveFalse() + archivedRecords;
             
             QueueStatistics statistics = new QueueStatistics(
                 totalRecords, activeRecords, inactiveRecords
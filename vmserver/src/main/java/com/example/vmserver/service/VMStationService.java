@@ -1,5 +1,6 @@
 package com.example.vmserver.service;
 
+import com.example.vmserver.dto.StationFilterDTO;
 import com.example.vmserver.model.VMStation;
 import java.util.List;
 
@@ -23,7 +24,8 @@ public interface VMStationService {
     //Показать станцию по ID
     VMStation getStationById(Long id);
 
-    Page<VMStation> getByFilter(String login, Integer min, Integer max, Pageable pageable);
+    //Фильтрация станций по логину, портам, состояниям, IP и текущему пользователю
+    Page<VMStation> getByFilter(StationFilterDTO filter, Pageable pageable);
 
     //выгрузка данных
     String exportStationsToCsv();
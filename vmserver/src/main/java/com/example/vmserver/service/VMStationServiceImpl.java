@@ -1,6 +1,9 @@
 package com.example.vmserver.service;
 
+import com.example.vmserver.cache.StationStateCounters;
+import com.example.vmserver.dto.StationFilterDTO;
 import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
 import com.example.vmserver.model.VMStation;
 import com.example.vmserver.repository.VMStationRepository;
 import com.example.vmserver.specifications.VMStationSpecifications;
@@ -12,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -34,7 +38,9 @@ public class VMStationServiceImpl implements VMStationService {
     private static final Logger logger = LoggerFactory.getLogger(VMStationServiceImpl.class);
     
     private final VMStationRepository stationRepository;
-    private final TelegramBotService telegramBotService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final StationStateCounters stateCounters;
+    private final ApplicationEventPublisher eventPublisher;
 
     //Сохранение станции в БД
     @Transactional
@@ -53,6 +59,7 @@ public class VMStationServiceImpl implements VMStationService {
             }
             
             VMStation savedStation = stationRepository.save(station);
+            publishStateChange(savedStation, null, savedStation.getState());
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -86,6 +93,7 @@ public class VMStationServiceImpl implements VMStationService {
                     station.getIp(), station.getPort(), station.getState());
             
             stationRepository.delete(station);
+            publishStateChange(station, station.getState(), null);
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -141,19 +149,10 @@ public class VMStationServiceImpl implements VMStationService {
             // Отправляем уведомление о изменении статуса, если статус изменился
             if (!oldState.equals(newState)) {
                 logger.debug("Статус станции изменился: {} -> {}", oldState, newState);
-                try {
-                    String changedBy = SecurityContextHolder.getContext().getAuthentication().getName();
-                    telegramBotService.sendVMStatusChangeNotification(
-                        id,
-                        oldState.toString(),
-                        newState.toString(),
-                        changedBy
-                    );
-                    logger.info("Уведомление Telegram отправлено об изменении статуса станции {}: {} -> {}", 
-                            id, oldState, newState);
-                } catch (Exception e) {
-                    logger.error("Ошибка отправки уведомления в Telegram", e);
-                }
+                publishStateChange(updatedStation, oldState, newState);
+                // Уведомление в Telegram доставляется после фиксации транзакции (outbox)
+                String changedBy = SecurityContextHolder.getContext().getAuthentication().getName();
+                notificationOutboxService.enqueueStatusChange(id, updatedStation.getIp(), oldState, newState, changedBy);
             } else {
                 logger.debug("Статус станции не изменился: {}", oldState);
             }
@@ -219,14 +218,13 @@ public class VMStationServiceImpl implements VMStationService {
     }
     
     @Override
-    public Page<VMStation> getByFilter(String login, Integer min, Integer max, Pageable pageable) {
-        logger.debug("Фильтрация станций: login={}, min={}, max={}, pageable={}", 
-                login, min, max, pageable);
+    public Page<VMStation> getByFilter(StationFilterDTO filter, Pageable pageable) {
+        logger.debug("Фильтрация станций: filter={}, pageable={}", filter, pageable);
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
             Page<VMStation> result = stationRepository.findAll(
-                    VMStationSpecifications.filter(login, min, max), pageable);
+                    VMStationSpecifications.filter(filter), pageable);
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -234,6 +232,9 @@ public class VMStationServiceImpl implements VMStationService {
                     result.getTotalElements(), result.getTotalPages(), duration.toMillis());
             
             return result;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некорректный фильтр станций: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Ошибка при фильтрации станций: {}", e.getMessage(), e);
             throw e;
@@ -343,16 +344,21 @@ public class VMStationServiceImpl implements VMStationService {
                         VMStation existingStation = stationRepository.findByIp(station.getIp());
                         if (existingStation != null) {
                             // Обновляем существующую станцию
+                            VMState previousState = existingStation.getState();
                             existingStation.setPort(station.getPort());
                             existingStation.setState(station.getState());
                             existingStation.setLogin(station.getLogin());
                             existingStation.setHashPassword(station.getHashPassword());
                             stationRepository.save(existingStation);
+                            if (previousState != existingStation.getState()) {
+                                publishStateChange(existingStation, previousState, existingStation.getState());
+                            }
                             updatedCount++;
                             logger.debug("Станция с IP {} обновлена", station.getIp());
                         } else {
                             // Создаем новую станцию
                             stationRepository.save(station);
+                            publishStateChange(station, null, station.getState());
                             importedCount++;
                             logger.debug("Создана новая станция с IP {}", station.getIp());
                         }
@@ -390,6 +396,16 @@ public class VMStationServiceImpl implements VMStationService {
         }
     }
     
+    /**
+     * Публикует изменение состояния станции (счетчики, поток событий SSE)
+     */
+    private void publishStateChange(VMStation station, VMState oldState, VMState newState) {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        String changedBy = authentication != null ? authentication.getName() : null;
+        eventPublisher.publishEvent(new StationStateChangedEvent(
+                station.getId(), station.getIp(), oldState, newState, null, changedBy));
+    }
+    
     /**
      * Получить статистику по станциям
      * @return Статистика станций
@@ -399,13 +415,14 @@ public class VMStationServiceImpl implements VMStationService {
         LocalDateTime startTime = LocalDateTime.now();
         
         try {
-            long totalStations = stationRepository.count();
-            long freeStations = stationRepository.countByState(VMState.FREE);
-            long workStations = stationRepository.countByState(VMState.WORK);
-            long onStations = stationRepository.countByState(VMState.ON);
-            long offStations = stationRepository.countByState(VMState.OFF);
-            long repairStations = stationRepository.countByState(VMState.REPAIR);
-            long disconnectStations = stationRepository.countByState(VMState.DISCONNECT);
+            // Счетчики в памяти: запрос к БД не выполняется
+            long totalStations = stateCounters.total();
+            long freeStations = stateCounters.get(VMState.FREE);
+            long workStations = stateCounters.get(VMState.WORK);
+            long onStations = stateCounters.get(VMState.ON);
+            long offStations = stateCounters.get(VMState.OFF);
+            long repairStations = stateCounters.get(VMState.REPAIR);
+            long disconnectStations = stateCounters.get(VMState.DISCONNECT);
             
             StationStatistics statistics = new StationStatistics(
                 totalStations, freeStations, workStations, onStations, 
@@ -7,11 +7,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.vmserver.dto.VMUserDTO;
+import com.example.vmserver.events.TelegramRecipientsChangedEvent;
 import com.example.vmserver.exception.ResourceNotFoundException;
 import com.example.vmserver.mapper.VMUserMapper;
 import com.example.vmserver.model.Role;
@@ -35,6 +37,7 @@ public class VMUserService {
     private final VMUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final RoleRepository roleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Cacheable(value = "VMUser")
     public List<VMUserDTO> getVMUsers(){
@@ -234,6 +237,7 @@ public class VMUserService {
             }
             
             userRepository.delete(user);
+            eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("удаление пользователя " + user.getUsername()));
             
             LocalDateTime endTime = LocalDateTime.now();
             Duration duration = Duration.between(startTime, endTime);
@@ -307,6 +311,8 @@ public class VMUserService {
             VMUserDTO resultDto;
             if (changesMade) {
                 VMUser updatedUser = userRepository.save(existingUser);
+                // Логин и роль определяют, получает ли привязанный чат уведомления администраторов
+                eventPublisher.publishEvent(new TelegramRecipientsChangedEvent("изменение пользователя " + id));
                 resultDto = VMUserMapper.userToUserDTO(updatedUser);
                 logger.info("Пользователь с ID {} успешно обновлен", id);
             } else {
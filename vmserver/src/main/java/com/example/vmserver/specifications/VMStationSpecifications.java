@@ -1,25 +1,52 @@
 package com.example.vmserver.specifications;
 
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.data.jpa.domain.Specification;
+
+import com.example.vmserver.config.PostgresFunctionContributor;
+import com.example.vmserver.dto.StationFilterDTO;
+import com.example.vmserver.enums.LoginMatchMode;
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.model.VMQueue;
 import com.example.vmserver.model.VMStation;
+import com.example.vmserver.util.IpAddresses;
+
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 public class VMStationSpecifications {
 
+    private static final char LIKE_ESCAPE = '\\';
+
     public static Specification<VMStation> hasIp(String ip) {
     return (root, query, criteriaBuilder) -> 
         ip == null ? null : criteriaBuilder.equal(root.get("ip"), ip);
     }
 
     /*
-     * тут переделать под логин станции
+     * логин станции: сравнение идет по lower(login), под который построены
+     * индексы idx_vm_stations_login_trgm и idx_vm_stations_login_lower (db/indexes.sql)
      */
-    private static Specification<VMStation> titleLogin(String login){
+    private static Specification<VMStation> titleLogin(String login, LoginMatchMode mode){
         return (root, query, criteriaBilder) -> {
             if(login == null || login.trim().isEmpty()){
                 return null;
             }
-            return criteriaBilder.like(criteriaBilder.lower(root.get("login")), "%" + login.trim().toLowerCase() + "%");
+            String term = login.trim().toLowerCase();
+            var lowerLogin = criteriaBilder.lower(root.get("login"));
+            switch (mode == null ? LoginMatchMode.CONTAINS : mode) {
+                case EXACT:
+                    return criteriaBilder.equal(lowerLogin, term);
+                case PREFIX:
+                    return criteriaBilder.like(lowerLogin, escapeLike(term) + "%", LIKE_ESCAPE);
+                default:
+                    return criteriaBilder.like(lowerLogin, "%" + escapeLike(term) + "%", LIKE_ESCAPE);
+            }
         };
     }
 
@@ -47,11 +74,86 @@ public class VMStationSpecifications {
         };
     }
 
-    public static Specification<VMStation> filter(
-        String login,
-        Integer min,
-        Integer max)
+    /*
+     * состояние станции из набора
+     */
+    private static Specification<VMStation> stateIn(Set<VMState> states){
+        return (root, query, criteriaBilder) -> {
+            if(states == null || states.isEmpty()){
+                return null;
+            }
+            return root.get("state").in(states);
+        };
+    }
+
+    /*
+     * IP: подсеть CIDR сравнивается через inet (GiST индекс idx_vm_stations_station_inet),
+     * иначе значение считается текстовым префиксом (idx_vm_stations_ip_prefix).
+     * Подсеть проверяется при построении фильтра, до запроса: некорректное значение
+     * не доходит до PostgreSQL
+     */
+    private static Specification<VMStation> ipMatches(String ip){
+        if(ip == null || ip.trim().isEmpty()){
+            return (root, query, criteriaBilder) -> null;
+        }
+        String value = ip.trim();
+        if(value.contains("/")){
+            if(!IpAddresses.isValidCidr(value)){
+                throw new IllegalArgumentException("Некорректная подсеть: " + value);
+            }
+            return (root, query, criteriaBilder) -> criteriaBilder.isTrue(criteriaBilder.function(
+                    PostgresFunctionContributor.INET_CONTAINED_BY, Boolean.class,
+                    root.get("ip"), criteriaBilder.literal(value)));
+        }
+        return (root, query, criteriaBilder) ->
+                criteriaBilder.like(root.get("ip"), escapeLike(value) + "%", LIKE_ESCAPE);
+    }
+
+    /*
+     * текущий пользователь станции по активной записи очереди
+     * (частичный индекс idx_vmqueue_active_station)
+     */
+    private static Specification<VMStation> occupiedBy(String occupant, Boolean occupied){
+        return (root, query, criteriaBilder) -> {
+            boolean byUser = occupant != null && !occupant.trim().isEmpty();
+            if(!byUser && occupied == null){
+                return null;
+            }
+            Subquery<Long> activeQueue = query.subquery(Long.class);
+            Root<VMQueue> queue = activeQueue.from(VMQueue.class);
+            List<Predicate> conditions = new ArrayList<>();
+            conditions.add(criteriaBilder.equal(queue.get("vmStation"), root));
+            conditions.add(criteriaBilder.isTrue(queue.get("active")));
+            if(byUser){
+                conditions.add(criteriaBilder.equal(queue.get("currentUser").get("username"), occupant.trim()));
+            }
+            activeQueue.select(queue.get("id")).where(conditions.toArray(new Predicate[0]));
+
+            Predicate exists = criteriaBilder.exists(activeQueue);
+            return !byUser && Boolean.FALSE.equals(occupied) ? criteriaBilder.not(exists) : exists;
+        };
+    }
+
+    /*
+     * экранирование спецсимволов LIKE, чтобы '%' и '_' в запросе искались буквально
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    /*
+     * @throws IllegalArgumentException если подсеть в фильтре некорректна
+     */
+    public static Specification<VMStation> filter(StationFilterDTO filter)
     {
-        return Specification.allOf(titleLogin(login), portGreater(min), portLess(max));
+        return Specification.allOf(
+            titleLogin(filter.login(), filter.loginMatch()),
+            portGreater(filter.min()),
+            portLess(filter.max()),
+            stateIn(filter.states()),
+            ipMatches(filter.ip()),
+            occupiedBy(filter.occupant(), filter.occupied()));
     }
 }
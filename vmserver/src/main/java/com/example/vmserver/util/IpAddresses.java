@@ -0,0 +1,90 @@
+package com.example.vmserver.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Проверка IP-адресов и подсетей CIDR до передачи в PostgreSQL (приведение ::inet).
+ * Разбор без обращения к DNS: допускаются только литералы IPv4 (четыре октета) и IPv6.
+ */
+public final class IpAddresses {
+
+    private static final Pattern IPV4 = Pattern.compile(
+            "^(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)(\\.(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)){3}$");
+
+    private static final Pattern HEX_GROUP = Pattern.compile("^[0-9A-Fa-f]{1,4}$");
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Адрес IPv4 или IPv6 без маски
+     */
+    public static boolean isValidAddress(String value) {
+        return value != null && (isIpv4(value) || isIpv6(value));
+    }
+
+    /**
+     * Подсеть вида адрес/длина префикса: не больше 32 для IPv4 и 128 для IPv6
+     */
+    public static boolean isValidCidr(String value) {
+        if (value == null) {
+            return false;
+        }
+        int slash = value.indexOf('/');
+        if (slash < 0 || slash != value.lastIndexOf('/')) {
+            return false;
+        }
+        String address = value.substring(0, slash);
+        String prefix = value.substring(slash + 1);
+        if (prefix.isEmpty() || prefix.length() > 3 || !prefix.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int length = Integer.parseInt(prefix);
+        if (isIpv4(address)) {
+            return length <= 32;
+        }
+        return isIpv6(address) && length <= 128;
+    }
+
+    private static boolean isIpv4(String value) {
+        return IPV4.matcher(value).matches();
+    }
+
+    private static boolean isIpv6(String value) {
+        if (!value.contains(":")) {
+            return false;
+        }
+        int compressed = value.indexOf("::");
+        if (compressed >= 0 && compressed != value.lastIndexOf("::")) {
+            return false;
+        }
+
+        String[] groups = value.split(":", -1);
+        int count = 0;
+        for (int i = 0; i < groups.length; i++) {
+            String group = groups[i];
+            if (group.isEmpty()) {
+                // Пустые группы допустимы только в составе "::"
+                continue;
+            }
+            if (i == groups.length - 1 && group.contains(".")) {
+                // Встроенный IPv4 в конце (::ffff:10.0.0.1) занимает две группы
+                if (!isIpv4(group)) {
+                    return false;
+                }
+                count += 2;
+            } else if (HEX_GROUP.matcher(group).matches()) {
+                count++;
+            } else {
+                return false;
+            }
+        }
+
+        if (compressed < 0) {
+            return count == 8 && !value.startsWith(":") && !value.endsWith(":");
+        }
+        boolean badStart = value.startsWith(":") && !value.startsWith("::");
+        boolean badEnd = value.endsWith(":") && !value.endsWith("::");
+        return count <= 7 && !badStart && !badEnd;
+    }
+}
@@ -0,0 +1,21 @@
+-- Обязательные ограничения и функции схемы, которые Hibernate (ddl-auto=update) создать не умеет.
+-- Выполняется spring.sql.init после инициализации схемы JPA без continue-on-error:
+-- ошибка прерывает запуск. Скрипт должен оставаться идемпотентным.
+
+-- IP станции в фильтре по подсети и индексе idx_vm_stations_station_inet (indexes.sql):
+-- адрес, который не приводится к inet (например, имя хоста), даёт NULL вместо ошибки
+-- и просто не входит ни в одну подсеть. IMMUTABLE - разбор inet не зависит от окружения
+CREATE OR REPLACE FUNCTION vm_station_inet(ip text) RETURNS inet LANGUAGE plpgsql IMMUTABLE STRICT AS
+'BEGIN RETURN ip::inet; EXCEPTION WHEN invalid_text_representation THEN RETURN NULL; END';
+-- Проверка chk_vm_stations_ip_inet из предыдущих версий запрещала имена хостов - снимается
+ALTER TABLE vm_stations DROP CONSTRAINT IF EXISTS chk_vm_stations_ip_inet;
+-- Индекс по ip::inet из предыдущих версий тоже не давал сохранить станцию с именем хоста;
+-- его заменяет idx_vm_stations_station_inet. indexes.sql содержит только CREATE ... IF NOT EXISTS
+DROP INDEX IF EXISTS idx_vm_stations_ip_inet;
+
+-- Индекс outbox из предыдущих версий включал строки, исчерпавшие попытки; его заменяет
+-- idx_notification_outbox_pending (indexes.sql)
+DROP INDEX IF EXISTS idx_notification_outbox_due;
+
+-- Уникальный индекс активной очереди uq_vmqueue_active_station создаёт однократная миграция
+-- ActiveQueueUniqueIndexMigration: перед созданием она закрывает лишние активные записи и пишет их в журнал
@@ -0,0 +1,38 @@
+-- Необязательные индексы, которые Hibernate (ddl-auto=update) создать не умеет.
+-- Выполняется OptionalIndexesInitializer после инициализации схемы: ошибка отдельного
+-- оператора записывается в журнал и не прерывает запуск. Обязательные ограничения - в constraints.sql.
+-- Скрипт должен оставаться идемпотентным; один оператор - до точки с запятой в конце строки.
+
+-- Поиск станций по логину: lower(login) с триграммами покрывает LIKE '%x%',
+-- а text_pattern_ops - точное совпадение и LIKE 'x%'
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_vm_stations_login_trgm ON vm_stations USING gin (lower(login) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_vm_stations_login_lower ON vm_stations (lower(login) text_pattern_ops);
+
+-- Фильтр станций по состоянию (с сортировкой/диапазоном по порту)
+CREATE INDEX IF NOT EXISTS idx_vm_stations_state_port ON vm_stations (state, port);
+
+-- Фильтр по IP: текстовый префикс и вхождение в подсеть CIDR (vm_station_inet(ip) <<= cidr)
+CREATE INDEX IF NOT EXISTS idx_vm_stations_ip_prefix ON vm_stations (ip text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_vm_stations_station_inet ON vm_stations USING gist (vm_station_inet(ip) inet_ops);
+
+-- Активные записи очереди: поиск текущего пользователя станции и станции пользователя
+CREATE INDEX IF NOT EXISTS idx_vmqueue_active_station ON vmqueue (vm_station_id, current_user_id) WHERE active;
+CREATE INDEX IF NOT EXISTS idx_vmqueue_active_user ON vmqueue (current_user_id) WHERE active;
+
+-- Последние записи очереди (ORDER BY created_at DESC LIMIT n): чтение N строк с начала индекса
+CREATE INDEX IF NOT EXISTS idx_vmqueue_created_at ON vmqueue (created_at DESC);
+
+-- Инкрементальная агрегация (released_at > watermark) и сессии, пересекающие период отчёта
+CREATE INDEX IF NOT EXISTS idx_vmqueue_released_at ON vmqueue (released_at);
+
+-- Список активных записей (findActiveRecords): частичный индекс по небольшому активному набору
+CREATE INDEX IF NOT EXISTS idx_vmqueue_active_created_at ON vmqueue (created_at) WHERE active;
+
+-- Постраничная история завершённых записей: ключ (released_at, id) в обратном порядке
+CREATE INDEX IF NOT EXISTS idx_vmqueue_inactive_released ON vmqueue (released_at DESC, id DESC) WHERE active = false;
+
+-- Выборка готовых к доставке уведомлений outbox: только строки, ожидающие попытки
+-- (доставленные и исчерпавшие попытки в индекс не входят)
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_pending ON notification_outbox (next_attempt_at, id)
+    WHERE sent_at IS NULL AND next_attempt_at IS NOT NULL;
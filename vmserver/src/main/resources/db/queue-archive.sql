@@ -0,0 +1,30 @@
+-- Архив завершённых сессий очереди, секционированный по месяцам released_at.
+-- Месячные секции создаёт QueueArchiveService перед переносом строк; DEFAULT - страховка
+-- для строк, секцию для которых создать не удалось. Скрипт должен оставаться идемпотентным.
+CREATE TABLE IF NOT EXISTS vmqueue_archive (
+    id bigint NOT NULL,
+    current_user_id bigint,
+    vm_station_id bigint,
+    active boolean NOT NULL,
+    created_at timestamp(6),
+    released_at timestamp(6) NOT NULL,
+    archived_at timestamp(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, released_at)
+) PARTITION BY RANGE (released_at);
+
+CREATE TABLE IF NOT EXISTS vmqueue_archive_default PARTITION OF vmqueue_archive DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_vmqueue_archive_id ON vmqueue_archive (id);
+CREATE INDEX IF NOT EXISTS idx_vmqueue_archive_created_at ON vmqueue_archive (created_at);
+CREATE INDEX IF NOT EXISTS idx_vmqueue_archive_user ON vmqueue_archive (current_user_id, released_at);
+CREATE INDEX IF NOT EXISTS idx_vmqueue_archive_station ON vmqueue_archive (vm_station_id, released_at);
+CREATE INDEX IF NOT EXISTS idx_vmqueue_archive_released ON vmqueue_archive (released_at DESC, id DESC);
+
+-- Полная история очереди: оперативная таблица и архив.
+-- Представление держит перечисленные колонки vmqueue: Hibernate (ddl-auto=update) не сможет изменить
+-- их тип, пока оно существует. Перед такой миграцией его удаляют вручную (DROP VIEW IF EXISTS
+-- vmqueue_history) и меняют колонку в vmqueue_archive; при старте скрипт создаёт представление заново
+CREATE OR REPLACE VIEW vmqueue_history AS
+SELECT id, current_user_id, vm_station_id, active, created_at, released_at FROM vmqueue
+UNION ALL
+SELECT id, current_user_id, vm_station_id, active, created_at, released_at FROM vmqueue_archive;
@@ -0,0 +1,23 @@
+package com.example.vmserver;
+
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+/**
+ * Репозиторные тесты на настоящем PostgreSQL (inet, частичные индексы, планы запросов).
+ * Схема создаётся так же, как в приложении: Hibernate, затем скрипты spring.sql.init.
+ * Без Docker тесты пропускаются.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresTestBase {
+
+    @Container
+    @ServiceConnection
+    protected static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+}
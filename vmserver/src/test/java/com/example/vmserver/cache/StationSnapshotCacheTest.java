@@ -0,0 +1,167 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.StationDetailView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сверка снимка станций с БД и события, пришедшие во время чтения БД
+ */
+class StationSnapshotCacheTest {
+
+    private final VMStationRepository repository = mock(VMStationRepository.class);
+    private final StationSnapshotCache cache = new StationSnapshotCache(repository);
+
+    @BeforeEach
+    void seed() {
+        when(repository.findStationDetails()).thenReturn(List.of(
+                detail(1L, "10.0.0.1", VMState.FREE, null), detail(2L, "10.0.0.2", VMState.WORK, "user")));
+        cache.seed();
+    }
+
+    @Test
+    void seedFillsStationsByIdAndIp() {
+        assertThat(cache.get(1L).state()).isEqualTo(VMState.FREE);
+        assertThat(cache.getByIp("10.0.0.2").occupant()).isEqualTo("user");
+        assertThat(cache.get(3L)).isNull();
+    }
+
+    @Test
+    void eventCommittedAfterReadIsNotLost() {
+        // Прочитано состояние до изменения, слушатель выполнен до замены снимка
+        when(repository.findStationDetails()).thenAnswer(invocation -> {
+            List<StationDetailView> rows = List.of(
+                    detail(1L, "10.0.0.1", VMState.FREE, null), detail(2L, "10.0.0.2", VMState.WORK, "user"));
+            cache.onStationStateChanged(changed(1L, "10.0.0.1", VMState.FREE, VMState.REPAIR));
+            return rows;
+        });
+
+        cache.reconcile();
+
+        assertThat(cache.get(1L).state()).isEqualTo(VMState.REPAIR);
+        assertThat(cache.getByIp("10.0.0.1").state()).isEqualTo(VMState.REPAIR);
+    }
+
+    @Test
+    void ipChangeAndDeletionDuringReadAreKept() {
+        when(repository.findStationDetails()).thenAnswer(invocation -> {
+            List<StationDetailView> rows = List.of(
+                    detail(1L, "10.0.0.1", VMState.FREE, null), detail(2L, "10.0.0.2", VMState.WORK, "user"));
+            cache.onStationStateChanged(changed(1L, "10.0.1.1", VMState.FREE, VMState.FREE));
+            cache.onStationStateChanged(changed(2L, "10.0.0.2", VMState.WORK, null));
+            return rows;
+        });
+
+        cache.reconcile();
+
+        assertThat(cache.getByIp("10.0.1.1").id()).isEqualTo(1L);
+        assertThat(cache.getByIp("10.0.0.1")).isNull();
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.getByIp("10.0.0.2")).isNull();
+    }
+
+    @Test
+    void reconcileAppliesChangesBypassingService() {
+        when(repository.findStationDetails()).thenReturn(List.of(
+                detail(1L, "10.0.0.11", VMState.FREE, null), detail(3L, "10.0.0.3", VMState.OFF, null)));
+
+        cache.reconcile();
+
+        assertThat(cache.getByIp("10.0.0.11").id()).isEqualTo(1L);
+        assertThat(cache.getByIp("10.0.0.1")).isNull();
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(3L).state()).isEqualTo(VMState.OFF);
+    }
+
+    @Test
+    void failedReadKeepsPreviousSnapshot() {
+        when(repository.findStationDetails()).thenThrow(new IllegalStateException("БД недоступна"));
+
+        cache.reconcile();
+        cache.onStationStateChanged(changed(1L, "10.0.0.1", VMState.FREE, VMState.WORK));
+
+        assertThat(cache.get(1L).state()).isEqualTo(VMState.WORK);
+        assertThat(cache.get(2L).state()).isEqualTo(VMState.WORK);
+    }
+
+    @Test
+    void concurrentEventsAndReconcileConverge() throws InterruptedException {
+        List<StationDetailView> rows = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            rows.add(detail(id, "10.0.0." + id, VMState.FREE, null));
+        }
+        when(repository.findStationDetails()).thenReturn(rows);
+        cache.reconcile();
+
+        Thread events = new Thread(() -> {
+            for (long id = 1; id <= 100; id++) {
+                cache.onStationStateChanged(changed(id, "10.0.0." + id, VMState.FREE, VMState.WORK));
+                cache.onStationStateChanged(changed(id, "10.0.0." + id, VMState.WORK, VMState.FREE));
+            }
+        });
+        events.start();
+        for (int i = 0; i < 20; i++) {
+            cache.reconcile();
+        }
+        events.join();
+
+        for (long id = 1; id <= 100; id++) {
+            assertThat(cache.get(id).state()).isEqualTo(VMState.FREE);
+            assertThat(cache.getByIp("10.0.0." + id).id()).isEqualTo(id);
+        }
+    }
+
+    private static StationStateChangedEvent changed(Long stationId, String ip, VMState oldState, VMState newState) {
+        return new StationStateChangedEvent(stationId, ip, oldState, newState, "user", "admin");
+    }
+
+    private static StationDetailView detail(Long id, String ip, VMState state, String currentUser) {
+        return new StationDetailView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getIp() {
+                return ip;
+            }
+
+            @Override
+            public Integer getPort() {
+                return 3389;
+            }
+
+            @Override
+            public VMState getState() {
+                return state;
+            }
+
+            @Override
+            public String getLogin() {
+                return null;
+            }
+
+            @Override
+            public String getCurrentUser() {
+                return currentUser;
+            }
+
+            @Override
+            public LocalDateTime getAssignedAt() {
+                return currentUser != null ? LocalDateTime.of(2025, 3, 10, 10, 0) : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.vmserver.cache;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.events.StationStateChangedEvent;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.StationStateView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сверка счетчиков с БД и события, пришедшие во время чтения БД
+ */
+class StationStateCountersTest {
+
+    private final VMStationRepository repository = mock(VMStationRepository.class);
+    private final StationStateCounters counters = new StationStateCounters(repository);
+
+    @BeforeEach
+    void seed() {
+        when(repository.findAllStates()).thenReturn(List.of(
+                state(1L, VMState.FREE), state(2L, VMState.FREE), state(3L, VMState.WORK)));
+        counters.seed();
+    }
+
+    @Test
+    void seedCountsStationsByState() {
+        assertThat(counters.get(VMState.FREE)).isEqualTo(2);
+        assertThat(counters.get(VMState.WORK)).isEqualTo(1);
+        assertThat(counters.total()).isEqualTo(3);
+    }
+
+    @Test
+    void repeatedEventIsCountedOnce() {
+        StationStateChangedEvent event = changed(1L, VMState.FREE, VMState.WORK);
+
+        counters.onStationStateChanged(event);
+        counters.onStationStateChanged(event);
+
+        assertThat(counters.get(VMState.FREE)).isEqualTo(1);
+        assertThat(counters.get(VMState.WORK)).isEqualTo(2);
+    }
+
+    @Test
+    void eventCommittedBeforeReadIsNotCountedTwice() {
+        // Транзакция зафиксирована до чтения, а её слушатель выполняется во время сверки
+        when(repository.findAllStates()).thenAnswer(invocation -> {
+            List<StationStateView> rows = List.of(
+                    state(1L, VMState.WORK), state(2L, VMState.FREE), state(3L, VMState.WORK));
+            counters.onStationStateChanged(changed(1L, VMState.FREE, VMState.WORK));
+            return rows;
+        });
+
+        counters.reconcile();
+
+        assertThat(counters.get(VMState.FREE)).isEqualTo(1);
+        assertThat(counters.get(VMState.WORK)).isEqualTo(2);
+    }
+
+    @Test
+    void eventCommittedAfterReadIsNotLost() {
+        // Прочитано состояние до изменения, слушатель выполнен до применения результата сверки
+        when(repository.findAllStates()).thenAnswer(invocation -> {
+            List<StationStateView> rows = List.of(
+                    state(1L, VMState.FREE), state(2L, VMState.FREE), state(3L, VMState.WORK));
+            counters.onStationStateChanged(changed(2L, VMState.FREE, VMState.REPAIR));
+            return rows;
+        });
+
+        counters.reconcile();
+
+        assertThat(counters.get(VMState.FREE)).isEqualTo(1);
+        assertThat(counters.get(VMState.REPAIR)).isEqualTo(1);
+    }
+
+    @Test
+    void deletionDuringReadIsKept() {
+        when(repository.findAllStates()).thenAnswer(invocation -> {
+            List<StationStateView> rows = List.of(
+                    state(1L, VMState.FREE), state(2L, VMState.FREE), state(3L, VMState.WORK));
+            counters.onStationStateChanged(changed(3L, VMState.WORK, null));
+            return rows;
+        });
+
+        counters.reconcile();
+
+        assertThat(counters.get(VMState.WORK)).isZero();
+        assertThat(counters.total()).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileCorrectsDriftFromChangesBypassingService() {
+        when(repository.findAllStates()).thenReturn(List.of(
+                state(1L, VMState.OFF), state(2L, VMState.FREE), state(3L, VMState.WORK), state(4L, VMState.OFF)));
+
+        counters.reconcile();
+
+        assertThat(counters.snapshot()).containsEntry(VMState.OFF, 2L)
+                .containsEntry(VMState.FREE, 1L)
+                .containsEntry(VMState.WORK, 1L);
+        assertThat(counters.total()).isEqualTo(4);
+    }
+
+    @Test
+    void concurrentEventsAndReconcileConverge() throws InterruptedException {
+        List<StationStateView> rows = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            rows.add(state(id, VMState.FREE));
+        }
+        when(repository.findAllStates()).thenReturn(rows);
+        counters.reconcile();
+
+        Thread events = new Thread(() -> {
+            for (long id = 1; id <= 100; id++) {
+                counters.onStationStateChanged(changed(id, VMState.FREE, VMState.WORK));
+                counters.onStationStateChanged(changed(id, VMState.WORK, VMState.FREE));
+            }
+        });
+        events.start();
+        for (int i = 0; i < 20; i++) {
+            counters.reconcile();
+        }
+        events.join();
+        counters.reconcile();
+
+        assertThat(counters.get(VMState.FREE)).isEqualTo(100);
+        assertThat(counters.get(VMState.WORK)).isZero();
+    }
+
+    private static StationStateChangedEvent changed(Long stationId, VMState oldState, VMState newState) {
+        return new StationStateChangedEvent(stationId, "10.0.0." + stationId, oldState, newState, null, "admin");
+    }
+
+    private static StationStateView state(Long id, VMState state) {
+        return new StationStateView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public VMState getState() {
+                return state;
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.vmserver.config;
+
+import com.example.vmserver.PostgresTestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Однократная миграция уникального индекса активной очереди на данных с дубликатами
+ */
+class ActiveQueueUniqueIndexMigrationTest extends PostgresTestBase {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private ActiveQueueUniqueIndexMigration migration;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migration = new ActiveQueueUniqueIndexMigration(jdbcTemplate, new TransactionTemplate(transactionManager));
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + ActiveQueueUniqueIndexMigration.INDEX);
+        jdbcTemplate.update("INSERT INTO vm_stations (ip, port, state, login, hash_password) VALUES " +
+                "('10.2.0.1', 3389, 'FREE', 'dup1', 'x'), ('10.2.0.2', 3389, 'REPAIR', 'dup2', 'x'), " +
+                "('10.2.0.3', 3389, 'WORK', 'dup3', 'x')");
+        // Станции 1 и 2 - по три активные записи, станция 3 - одна
+        jdbcTemplate.update("INSERT INTO vmqueue (vm_station_id, active, created_at) " +
+                "SELECT s.id, true, now() - g * interval '1 minute' FROM vm_stations s, generate_series(1, 3) g " +
+                "WHERE s.login IN ('dup1', 'dup2')");
+        jdbcTemplate.update("INSERT INTO vmqueue (vm_station_id, active, created_at) " +
+                "SELECT id, true, now() FROM vm_stations WHERE login = 'dup3'");
+    }
+
+    @Test
+    void closesOlderDuplicatesAndCreatesIndex() {
+        Long newest = jdbcTemplate.queryForObject("SELECT max(q.id) FROM vmqueue q JOIN vm_stations s " +
+                "ON s.id = q.vm_station_id WHERE s.login = 'dup1'", Long.class);
+
+        migration.afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM (SELECT vm_station_id FROM vmqueue " +
+                "WHERE active GROUP BY vm_station_id HAVING count(*) > 1) d", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM vmqueue q JOIN vm_stations s " +
+                "ON s.id = q.vm_station_id WHERE s.login LIKE 'dup%' AND NOT q.active AND q.released_at IS NOT NULL",
+                Long.class)).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT q.id FROM vmqueue q JOIN vm_stations s " +
+                "ON s.id = q.vm_station_id WHERE s.login = 'dup1' AND q.active", Long.class)).isEqualTo(newest);
+        assertThat(migration.indexExists()).isTrue();
+    }
+
+    @Test
+    void freeStationWithRemainingSessionBecomesOccupied() {
+        migration.afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT state FROM vm_stations WHERE login = 'dup1'", String.class))
+                .isEqualTo("WORK");
+        // Состояние, выставленное администратором, не меняется
+        assertThat(jdbcTemplate.queryForObject("SELECT state FROM vm_stations WHERE login = 'dup2'", String.class))
+                .isEqualTo("REPAIR");
+    }
+
+    @Test
+    void secondRunDoesNothingAndIndexRejectsNewDuplicates() {
+        migration.afterSingletonsInstantiated();
+        Long closed = jdbcTemplate.queryForObject("SELECT count(*) FROM vmqueue WHERE NOT active", Long.class);
+
+        migration.afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM vmqueue WHERE NOT active", Long.class))
+                .isEqualTo(closed);
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO vmqueue (vm_station_id, active, created_at) " +
+                "SELECT id, true, now() FROM vm_stations WHERE login = 'dup3'"))
+                .hasMessageContaining(ActiveQueueUniqueIndexMigration.INDEX);
+    }
+}
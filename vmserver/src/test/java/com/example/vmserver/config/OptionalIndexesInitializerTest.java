@@ -0,0 +1,43 @@
+package com.example.vmserver.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OptionalIndexesInitializerTest {
+
+    @Test
+    void splitsStatementsAndSkipsComments() {
+        String script = """
+                -- комментарий; с точкой с запятой
+                CREATE INDEX a ON t (x);
+
+                CREATE INDEX b ON t
+                    USING gin (lower(y) gin_trgm_ops);
+                -- последний комментарий
+                """;
+
+        List<String> statements = OptionalIndexesInitializer.readStatements(
+                new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(statements).containsExactly(
+                "CREATE INDEX a ON t (x)",
+                "CREATE INDEX b ON t\nUSING gin (lower(y) gin_trgm_ops)");
+    }
+
+    @Test
+    void optionalScriptHoldsOnlyIdempotentIndexes() {
+        List<String> statements = OptionalIndexesInitializer.readStatements(
+                new ClassPathResource(OptionalIndexesInitializer.SCRIPT));
+
+        assertThat(statements).isNotEmpty().allSatisfy(statement -> {
+            assertThat(statement).containsPattern("^CREATE (UNIQUE )?(INDEX|EXTENSION) IF NOT EXISTS ");
+            assertThat(statement).doesNotContain(";");
+        });
+    }
+}
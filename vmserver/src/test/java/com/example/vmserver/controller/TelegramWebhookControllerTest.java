@@ -0,0 +1,71 @@
+package com.example.vmserver.controller;
+
+import com.example.vmserver.config.BotConfig;
+import com.example.vmserver.service.TelegramUpdateDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TelegramWebhookControllerTest {
+
+    private static final byte[] UPDATE = "{\"update_id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private BotConfig botConfig;
+    private TelegramUpdateDispatcher dispatcher;
+    private TelegramWebhookController controller;
+
+    @BeforeEach
+    void setUp() {
+        botConfig = new BotConfig();
+        botConfig.setWebhookEnabled(true);
+        botConfig.setWebhookSecret("s3cret_token-1");
+        dispatcher = mock(TelegramUpdateDispatcher.class);
+        when(dispatcher.submit(any())).thenReturn(true);
+        controller = new TelegramWebhookController(botConfig, dispatcher);
+    }
+
+    @Test
+    void acceptsUpdateWithMatchingSecret() {
+        assertThat(controller.receiveUpdate("s3cret_token-1", UPDATE).getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(dispatcher).submit(any());
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"wrong", "s3cret_token-"})
+    void rejectsMissingOrWrongSecret(String header) {
+        assertThat(controller.receiveUpdate(header, UPDATE).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(dispatcher, never()).submit(any());
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"has space", "кириллица"})
+    void closedWhenSecretNotConfigured(String configured) {
+        botConfig.setWebhookSecret(configured);
+
+        assertThat(controller.receiveUpdate(configured, UPDATE).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(controller.receiveUpdate(null, UPDATE).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        verify(dispatcher, never()).submit(any());
+    }
+
+    @Test
+    void secretFollowsTelegramRules() {
+        assertThat(BotConfig.isValidWebhookSecret("A-z_0")).isTrue();
+        assertThat(BotConfig.isValidWebhookSecret("a".repeat(256))).isTrue();
+        assertThat(BotConfig.isValidWebhookSecret("a".repeat(257))).isFalse();
+        assertThat(BotConfig.isValidWebhookSecret("a+b")).isFalse();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.vmserver.dto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueueCursorTest {
+
+    @Test
+    void roundTripsThroughOpaqueValue() {
+        QueueCursor cursor = new QueueCursor(LocalDateTime.of(2024, 1, 15, 10, 30, 5, 123_456_000), 42L);
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(QueueCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripsWholeMinuteAndLargeId() {
+        // LocalDateTime.toString() опускает нулевые секунды
+        QueueCursor cursor = new QueueCursor(LocalDateTime.of(2024, 2, 1, 0, 0), Long.MAX_VALUE);
+
+        assertThat(QueueCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void takesPositionOfLastRecord() {
+        VMQueueDTO record = new VMQueueDTO(7L, 5L, "user", 1L, "10.0.0.1", false,
+                LocalDateTime.of(2024, 3, 1, 11, 0), LocalDateTime.of(2024, 3, 1, 12, 0));
+
+        assertThat(QueueCursor.of(record)).isEqualTo(new QueueCursor(LocalDateTime.of(2024, 3, 1, 12, 0), 7L));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not base64!", "MjAyNC0wMS0xNVQxMDozMA", "eHx5", "MjAyNC0wMS0xNVQxMDozMHxhYmM"})
+    void rejectsMalformedValue(String value) {
+        assertThatThrownBy(() -> QueueCursor.decode(value))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Некорректный курсор");
+    }
+}
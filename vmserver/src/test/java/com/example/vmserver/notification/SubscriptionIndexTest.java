@@ -0,0 +1,154 @@
+package com.example.vmserver.notification;
+
+import com.example.vmserver.enums.VMState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Маршрутизация изменений статусов по правилам подписки
+ */
+class SubscriptionIndexTest {
+
+    @Test
+    void emptyIndexMatchesNothing() {
+        assertThat(SubscriptionIndex.empty().size()).isZero();
+        assertThat(SubscriptionIndex.empty().match(change(1L, "10.0.0.1", "FREE", "WORK"))).isEmpty();
+    }
+
+    @Test
+    void ruleWithoutConditionsMatchesEverything() {
+        SubscriptionIndex index = index(List.of(10L), "all");
+
+        assertThat(index.match(change(1L, "10.0.0.1", "FREE", "WORK"))).containsExactly(10L);
+        assertThat(index.match(change(null, null, null, "UNKNOWN"))).containsExactly(10L);
+    }
+
+    @Test
+    void stationIdRangesAreInclusive() {
+        SubscriptionIndex index = index(List.of(1L, 2L), "id=10-20,30", "id=20-25");
+
+        assertThat(index.match(change(9L, null, "FREE", "WORK"))).isEmpty();
+        assertThat(index.match(change(10L, null, "FREE", "WORK"))).containsExactly(1L);
+        assertThat(index.match(change(20L, null, "FREE", "WORK"))).containsExactly(1L, 2L);
+        assertThat(index.match(change(21L, null, "FREE", "WORK"))).containsExactly(2L);
+        assertThat(index.match(change(26L, null, "FREE", "WORK"))).isEmpty();
+        assertThat(index.match(change(30L, null, "FREE", "WORK"))).containsExactly(1L);
+        assertThat(index.match(change(31L, null, "FREE", "WORK"))).isEmpty();
+        assertThat(index.match(change(null, null, "FREE", "WORK"))).isEmpty();
+    }
+
+    @Test
+    void ipPrefixesMatchLongestAndShorterPrefixes() {
+        SubscriptionIndex index = index(List.of(1L, 2L, 3L), "ip=10.0.", "ip=10.0.1.", "ip=192.168.");
+
+        assertThat(index.match(change(1L, "10.0.1.5", "FREE", "WORK"))).containsExactly(1L, 2L);
+        assertThat(index.match(change(1L, "10.0.2.5", "FREE", "WORK"))).containsExactly(1L);
+        assertThat(index.match(change(1L, "192.168.0.1", "FREE", "WORK"))).containsExactly(3L);
+        assertThat(index.match(change(1L, "10.1.0.1", "FREE", "WORK"))).isEmpty();
+        assertThat(index.match(change(1L, null, "FREE", "WORK"))).isEmpty();
+    }
+
+    @Test
+    void transitionsMatchFromAndToStates() {
+        SubscriptionIndex index = index(List.of(1L, 2L, 3L), "to=REPAIR,DISCONNECT", "from=WORK", "from=WORK; to=FREE");
+
+        assertThat(index.match(change(1L, null, "WORK", "REPAIR"))).containsExactly(1L, 2L);
+        assertThat(index.match(change(1L, null, "WORK", "FREE"))).containsExactly(2L, 3L);
+        assertThat(index.match(change(1L, null, "FREE", "DISCONNECT"))).containsExactly(1L);
+        assertThat(index.match(change(1L, null, "FREE", "WORK"))).isEmpty();
+        // Неизвестный статус не совпадает с перечисленными
+        assertThat(index.match(change(1L, null, "BROKEN", "FREE"))).isEmpty();
+    }
+
+    @Test
+    void conditionsAreCombinedWithAnd() {
+        SubscriptionIndex index = index(List.of(7L), "id=1-100; ip=10.0.; to=REPAIR");
+
+        assertThat(index.match(change(50L, "10.0.0.1", "WORK", "REPAIR"))).containsExactly(7L);
+        assertThat(index.match(change(150L, "10.0.0.1", "WORK", "REPAIR"))).isEmpty();
+        assertThat(index.match(change(50L, "10.1.0.1", "WORK", "REPAIR"))).isEmpty();
+        assertThat(index.match(change(50L, "10.0.0.1", "WORK", "FREE"))).isEmpty();
+    }
+
+    @Test
+    void matchesBruteForceOnRandomRules() {
+        Random random = new Random(7);
+        VMState[] states = VMState.values();
+        List<Long> chatIds = new ArrayList<>();
+        List<SubscriptionRule> rules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            chatIds.add(1000L + i);
+            List<String> conditions = new ArrayList<>();
+            if (random.nextBoolean()) {
+                long from = random.nextInt(100);
+                conditions.add("id=" + from + "-" + (from + random.nextInt(30)) + "," + random.nextInt(100));
+            }
+            if (random.nextBoolean()) {
+                conditions.add("ip=10." + random.nextInt(3) + ".");
+            }
+            if (random.nextBoolean()) {
+                conditions.add("from=" + states[random.nextInt(states.length)]);
+            }
+            if (random.nextBoolean()) {
+                conditions.add("to=" + states[random.nextInt(states.length)] + "," + states[random.nextInt(states.length)]);
+            }
+            rules.add(SubscriptionRule.parse(String.join("; ", conditions)));
+        }
+        SubscriptionIndex index = new SubscriptionIndex(chatIds, rules);
+
+        for (int n = 0; n < 2000; n++) {
+            StatusChange change = change((long) random.nextInt(120),
+                    "10." + random.nextInt(4) + "." + random.nextInt(5) + ".1",
+                    states[random.nextInt(states.length)].name(),
+                    states[random.nextInt(states.length)].name());
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < rules.size(); i++) {
+                if (matches(rules.get(i), change)) {
+                    expected.add(chatIds.get(i));
+                }
+            }
+            assertThat(index.match(change)).as("изменение %s", change).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void parseRejectsMalformedRules() {
+        assertThatThrownBy(() -> SubscriptionRule.parse("id=5-1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SubscriptionRule.parse("to=SLEEP")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SubscriptionRule.parse("colour=red")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SubscriptionRule.parse("id")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void formatRoundTrips() {
+        SubscriptionRule rule = SubscriptionRule.parse("id=1-50,75; ip=10.0.1.; from=work; to=REPAIR");
+
+        assertThat(rule.format()).isEqualTo("id=1-50,75; ip=10.0.1.; from=WORK; to=REPAIR");
+        assertThat(SubscriptionRule.parse(rule.format()).format()).isEqualTo(rule.format());
+        assertThat(SubscriptionRule.parse(null).format()).isNull();
+    }
+
+    private static boolean matches(SubscriptionRule rule, StatusChange change) {
+        boolean id = rule.stationIds().isEmpty() || rule.stationIds().stream()
+                .anyMatch(range -> range[0] <= change.stationId() && change.stationId() <= range[1]);
+        boolean ip = rule.ipPrefixes().isEmpty() || rule.ipPrefixes().stream().anyMatch(change.stationIp()::startsWith);
+        boolean from = rule.fromStates().isEmpty() || rule.fromStates().contains(VMState.valueOf(change.oldStatus()));
+        boolean to = rule.toStates().isEmpty() || rule.toStates().contains(VMState.valueOf(change.newStatus()));
+        return id && ip && from && to;
+    }
+
+    private static SubscriptionIndex index(List<Long> chatIds, String... rules) {
+        return new SubscriptionIndex(chatIds, List.of(rules).stream().map(SubscriptionRule::parse).toList());
+    }
+
+    private static StatusChange change(Long stationId, String stationIp, String oldStatus, String newStatus) {
+        return new StatusChange(stationId, stationIp, oldStatus, newStatus, "admin", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.vmserver.repository;
+
+import com.example.vmserver.PostgresTestBase;
+import com.example.vmserver.repository.projection.QueueHistoryView;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Активные записи очереди читаются проекцией QUEUE_RECORD_COLUMNS: один SQL-запрос
+ * независимо от количества записей, без догрузки пользователей и станций.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ActiveQueueQueryCountTest extends PostgresTestBase {
+
+    private static final int SESSIONS = 25;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private VMQueueRepository queueRepository;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void seed() {
+        entityManager.createNativeQuery(
+                "INSERT INTO vmuser (username, password) " +
+                "SELECT 'count-user-' || g, 'x' FROM generate_series(1, " + SESSIONS + ") g").executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO vm_stations (ip, port, state, login, hash_password) " +
+                "SELECT '10.1.0.' || g, 3389, 'WORK', 'login' || g, 'x' FROM generate_series(1, " + SESSIONS + ") g")
+                .executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO vmqueue (current_user_id, vm_station_id, active, created_at) " +
+                "SELECT u.id, s.id, true, now() " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) rn FROM vm_stations) s " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) rn FROM vmuser WHERE username LIKE 'count-user-%') u " +
+                "ON u.rn = s.rn").executeUpdate();
+        userId = ((Number) entityManager.createNativeQuery(
+                "SELECT id FROM vmuser WHERE username = 'count-user-1'").getSingleResult()).longValue();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void allActiveRecordsInOneStatement() {
+        List<QueueHistoryView> records = queueRepository.findActiveRecords();
+
+        assertThat(records).hasSize(SESSIONS)
+                .allSatisfy(record -> {
+                    assertThat(record.getUsername()).startsWith("count-user-");
+                    assertThat(record.getStationIp()).startsWith("10.1.0.");
+                });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void activeRecordsOfUserInOneStatement() {
+        List<QueueHistoryView> records = queueRepository.findActiveRecordsByUserId(userId);
+
+        assertThat(records).singleElement().satisfies(record -> {
+            assertThat(record.getUsername()).isEqualTo("count-user-1");
+            assertThat(record.getStationIp()).isNotNull();
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void currentActiveRecordOfUserInOneStatement() {
+        List<QueueHistoryView> records = queueRepository.findActiveRecordsByUserId(userId, Limit.of(1));
+
+        assertThat(records).singleElement().satisfies(record -> {
+            assertThat(record.getUserId()).isEqualTo(userId);
+            assertThat(record.getStationId()).isNotNull();
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.vmserver.repository;
+
+import com.example.vmserver.PostgresTestBase;
+import com.example.vmserver.config.ActiveQueueUniqueIndexMigration;
+import com.example.vmserver.repository.projection.StationDetailView;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Детали станций для отчёта собираются одним соединением станций с активной очередью.
+ * Проверяется план: соединение хешем/слиянием или вложенный цикл с индексным доступом
+ * к внутренней таблице - то есть линейно (n log n), а не станции x активные сессии.
+ */
+class StationDetailsPlanTest extends PostgresTestBase {
+
+    private static final int STATIONS = 5000;
+    private static final int ACTIVE_SESSIONS = 4000;
+
+    // SQL, в который Hibernate переводит VMStationRepository.findStationDetails
+    private static final String STATION_DETAILS_SQL =
+            "SELECT s.id, s.ip, s.port, s.state, s.login, u.username, q.created_at " +
+            "FROM vm_stations s LEFT JOIN vmqueue q ON q.vm_station_id = s.id AND q.active = true " +
+            "LEFT JOIN vmuser u ON u.id = q.current_user_id ORDER BY s.id";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private VMStationRepository stationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void seed() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        entityManager.createNativeQuery(
+                "INSERT INTO vmuser (username, password) " +
+                "SELECT 'plan-user-' || g, 'x' FROM generate_series(1, " + ACTIVE_SESSIONS + ") g").executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO vm_stations (ip, port, state, login, hash_password) " +
+                "SELECT '10.' || (g / 65536) || '.' || ((g / 256) % 256) || '.' || (g % 256), 3389, 'FREE', " +
+                "'login' || g, 'x' FROM generate_series(1, " + STATIONS + ") g").executeUpdate();
+        // История: по четыре завершённые сессии на станцию
+        entityManager.createNativeQuery(
+                "INSERT INTO vmqueue (vm_station_id, active, created_at, released_at) " +
+                "SELECT s.id, false, now() - interval '2 hour', now() - interval '1 hour' " +
+                "FROM vm_stations s, generate_series(1, 4)").executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO vmqueue (current_user_id, vm_station_id, active, created_at) " +
+                "SELECT u.id, s.id, true, now() " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) rn FROM vm_stations) s " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) rn FROM vmuser WHERE username LIKE 'plan-user-%') u " +
+                "ON u.rn = s.rn").executeUpdate();
+        // Уникальный индекс активной очереди и необязательные индексы в приложении создают
+        // ActiveQueueUniqueIndexMigration и OptionalIndexesInitializer, которых нет в срезе JPA
+        new ActiveQueueUniqueIndexMigration(new JdbcTemplate(dataSource), transactionTemplate).afterSingletonsInstantiated();
+        ScriptUtils.executeSqlScript(DataSourceUtils.getConnection(dataSource), new ClassPathResource("db/indexes.sql"));
+        entityManager.createNativeQuery("ANALYZE vm_stations, vmqueue, vmuser").executeUpdate();
+    }
+
+    @Test
+    void stationDetailsJoinDoesNotScanQueuePerStation() throws SQLException {
+        JsonNode plan = explain(STATION_DETAILS_SQL);
+
+        List<String> violations = new ArrayList<>();
+        collectQuadraticJoins(plan, violations);
+        assertThat(violations).as("соединения без индекса на внутренней стороне:\n%s", plan).isEmpty();
+    }
+
+    @Test
+    void stationDetailsReturnOneRowPerStationWithOccupant() {
+        List<StationDetailView> details = stationRepository.findStationDetails();
+
+        assertThat(details).hasSize(STATIONS);
+        assertThat(details.stream().filter(detail -> detail.getCurrentUser() != null)).hasSize(ACTIVE_SESSIONS);
+    }
+
+    private JsonNode explain(String sql) throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            result.next();
+            return JsonMapper.builder().build().readTree(result.getString(1)).get(0).get("Plan");
+        }
+    }
+
+    /**
+     * Вложенный цикл допустим только с индексным доступом к внутренней стороне
+     */
+    private static void collectQuadraticJoins(JsonNode node, List<String> violations) {
+        JsonNode children = node.get("Plans");
+        if ("Nested Loop".equals(node.get("Node Type").asString()) && children != null && children.size() == 2) {
+            String inner = children.get(1).get("Node Type").asString();
+            if (!inner.contains("Index")) {
+                violations.add("Nested Loop -> " + inner);
+            }
+        }
+        if (children != null) {
+            for (JsonNode child : children) {
+                collectQuadraticJoins(child, violations);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.vmserver.repository;
+
+import com.example.vmserver.PostgresTestBase;
+import com.example.vmserver.dto.StationFilterDTO;
+import com.example.vmserver.enums.LoginMatchMode;
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.model.VMStation;
+import com.example.vmserver.specifications.VMStationSpecifications;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Фильтр по подсети на станциях, адрес которых - имя хоста: такие станции сохраняются
+ * (в том числе при созданном индексе idx_vm_stations_station_inet) и не входят ни в одну подсеть.
+ */
+class StationSubnetFilterTest extends PostgresTestBase {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private VMStationRepository stationRepository;
+
+    @BeforeEach
+    void seed() {
+        ScriptUtils.executeSqlScript(DataSourceUtils.getConnection(dataSource), new ClassPathResource("db/indexes.sql"));
+        stationRepository.save(station("10.0.0.5"));
+        stationRepository.save(station("192.168.1.7"));
+        stationRepository.save(station("build-host.local"));
+        stationRepository.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void subnetFilterSkipsHostnames() {
+        List<VMStation> stations = stationRepository.findAll(VMStationSpecifications.filter(
+                new StationFilterDTO(null, LoginMatchMode.CONTAINS, null, null, null, "10.0.0.0/8", null, null)));
+
+        assertThat(stations).extracting(VMStation::getIp).containsExactly("10.0.0.5");
+    }
+
+    @Test
+    void prefixFilterMatchesHostnames() {
+        List<VMStation> stations = stationRepository.findAll(VMStationSpecifications.filter(
+                new StationFilterDTO(null, LoginMatchMode.CONTAINS, null, null, null, "build-", null, null)));
+
+        assertThat(stations).extracting(VMStation::getIp).containsExactly("build-host.local");
+    }
+
+    private static VMStation station(String ip) {
+        VMStation station = new VMStation();
+        station.setIp(ip);
+        station.setPort(3389);
+        station.setState(VMState.FREE);
+        station.setLogin("login-" + ip);
+        station.setHashPassword("x");
+        return station;
+    }
+}
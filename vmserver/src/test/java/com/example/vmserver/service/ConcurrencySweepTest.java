@@ -0,0 +1,106 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.model.QueueHourlyRollup;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencySweepTest {
+
+    private static final long HOUR = 3600;
+
+    @Test
+    void overlappingIntervalsPeakAtLastStart() {
+        ConcurrencySweep sweep = new ConcurrencySweep(HOUR, 1);
+        sweep.add(0, 600);
+        sweep.add(100, 700);
+        sweep.add(200, 300);
+        sweep.add(650, 900);
+        sweep.finish();
+
+        assertThat(sweep.peak(0)).isEqualTo(3);
+        assertThat(sweep.peakAt(0)).isEqualTo(200);
+    }
+
+    @Test
+    void intervalEndingAtStartIsNotConcurrent() {
+        ConcurrencySweep sweep = new ConcurrencySweep(HOUR, 1);
+        sweep.add(0, 100);
+        sweep.add(100, 200);
+        sweep.finish();
+
+        assertThat(sweep.peak(0)).isEqualTo(1);
+    }
+
+    @Test
+    void carriedIntervalsCountAtSlotBoundary() {
+        ConcurrencySweep sweep = new ConcurrencySweep(HOUR, 4);
+        sweep.add(100, 3 * HOUR + 100);
+        sweep.add(200, HOUR + 10);
+        sweep.finish();
+
+        assertThat(sweep.peak(0)).isEqualTo(2);
+        assertThat(sweep.peak(1)).isEqualTo(2);
+        assertThat(sweep.peakAt(1)).isEqualTo(HOUR);
+        assertThat(sweep.peak(2)).isEqualTo(1);
+        assertThat(sweep.peak(3)).isEqualTo(1);
+    }
+
+    @Test
+    void emptySlotHasNoPeak() {
+        ConcurrencySweep sweep = new ConcurrencySweep(HOUR, 3);
+        sweep.add(2 * HOUR + 5, 2 * HOUR + 50);
+        sweep.finish();
+
+        assertThat(sweep.peak(0)).isZero();
+        assertThat(sweep.peakAt(0)).isEqualTo(-1);
+        assertThat(sweep.peak(1)).isZero();
+        assertThat(sweep.peak(2)).isEqualTo(1);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomIntervals() {
+        Random random = new Random(42);
+        int slots = 6;
+        long[][] intervals = new long[300][];
+        for (int i = 0; i < intervals.length; i++) {
+            long start = random.nextInt((int) (slots * HOUR));
+            intervals[i] = new long[]{start, start + random.nextInt(7200)};
+        }
+        Arrays.sort(intervals, (a, b) -> Long.compare(a[0], b[0]));
+
+        ConcurrencySweep sweep = new ConcurrencySweep(HOUR, slots);
+        for (long[] interval : intervals) {
+            sweep.add(interval[0], interval[1]);
+        }
+        sweep.finish();
+
+        for (int slot = 0; slot < slots; slot++) {
+            int expected = 0;
+            for (long t = slot * HOUR; t < (slot + 1) * HOUR; t++) {
+                int concurrent = 0;
+                for (long[] interval : intervals) {
+                    if (interval[0] <= t && t < interval[1]) {
+                        concurrent++;
+                    }
+                }
+                expected = Math.max(expected, concurrent);
+            }
+            assertThat(sweep.peak(slot)).as("слот %d", slot).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void durationBoundsMatchSqlArray() {
+        String sql = QueueHourlyRollup.DURATION_BOUNDS_SQL;
+        long[] parsed = Arrays.stream(sql.substring(sql.indexOf('[') + 1, sql.indexOf(']')).split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .toArray();
+
+        assertThat(parsed).containsExactly(QueueHourlyRollup.DURATION_BOUNDS_SECONDS);
+    }
+}
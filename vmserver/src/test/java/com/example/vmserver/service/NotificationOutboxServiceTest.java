@@ -0,0 +1,251 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.model.NotificationOutbox;
+import com.example.vmserver.notification.NotificationChannel;
+import com.example.vmserver.notification.NotificationChannels;
+import com.example.vmserver.notification.StatusChange;
+import com.example.vmserver.repository.NotificationOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Повтор доставки после ошибки одного канала не дублирует уведомления в остальных каналах
+ */
+class NotificationOutboxServiceTest {
+
+    private final RecordingChannel memory = new RecordingChannel("memory", 0);
+    private final RecordingChannel file = new RecordingChannel("file", 1);
+
+    private NotificationOutboxRepository repository;
+    private TransactionTemplate transactionTemplate;
+    private NotificationChannels channels;
+    private NotificationOutboxService service;
+    private List<NotificationOutbox> batch;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationOutboxRepository.class);
+        LocalDateTime changedAt = LocalDateTime.now().minusMinutes(1);
+        batch = List.of(
+                new NotificationOutbox(1L, "10.0.0.1", "FREE", "WORK", "admin", changedAt),
+                new NotificationOutbox(2L, "10.0.0.2", "WORK", "FREE", "admin", changedAt));
+        when(repository.existsReady(any(), any())).thenReturn(true);
+        when(repository.lockDue(any(), anyInt())).thenAnswer(invocation -> batch.stream()
+                .filter(notification -> notification.getSentAt() == null)
+                .toList());
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        channels = new NotificationChannels(List.of(memory, file), 10, 10);
+        service = new NotificationOutboxService(repository, channels, transactionTemplate,
+                500, 10, 120, 5000, 600000, 7, 0, 5000);
+    }
+
+    @AfterEach
+    void shutdown() {
+        channels.shutdown();
+    }
+
+    @Test
+    void retryDeliversOnlyToFailedChannel() {
+        service.dispatch();
+
+        assertThat(memory.received).hasSize(2);
+        assertThat(file.received).isEmpty();
+        assertThat(batch).allSatisfy(notification -> {
+            assertThat(notification.getSentAt()).isNull();
+            assertThat(notification.isSentTo("memory")).isTrue();
+            assertThat(notification.isSentTo("file")).isFalse();
+            assertThat(notification.getLastError()).startsWith("file: ");
+            assertThat(notification.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        });
+
+        service.dispatch();
+
+        assertThat(memory.received).hasSize(2);
+        assertThat(file.received).hasSize(2);
+        assertThat(batch).allSatisfy(notification -> {
+            assertThat(notification.getSentAt()).isNotNull();
+            assertThat(notification.getNextAttemptAt()).isNull();
+            assertThat(notification.getLastError()).isNull();
+        });
+    }
+
+    @Test
+    void notificationsDeliveredToAllChannelsAreNotRetried() {
+        file.failuresLeft.set(0);
+
+        service.dispatch();
+        service.dispatch();
+
+        assertThat(memory.received).hasSize(2);
+        assertThat(file.received).hasSize(2);
+        assertThat(batch).allSatisfy(notification ->
+                assertThat(notification.getSentChannels()).containsExactlyInAnyOrder("memory", "file"));
+    }
+
+    @Test
+    void notificationExhaustingAttemptsIsMarkedFailed() {
+        NotificationOutboxService singleAttempt = new NotificationOutboxService(repository, channels, transactionTemplate,
+                500, 1, 120, 5000, 600000, 7, 0, 5000);
+
+        singleAttempt.dispatch();
+
+        assertThat(batch).allSatisfy(notification -> {
+            assertThat(notification.getSentAt()).isNull();
+            assertThat(notification.getNextAttemptAt()).isNull();
+            assertThat(notification.getFailedAt()).isNotNull();
+            assertThat(notification.getLastError()).startsWith("file: ");
+        });
+    }
+
+    @Test
+    void deliveryNotStartedBeforeTimeoutIsCancelled() throws Exception {
+        BlockingChannel slow = new BlockingChannel();
+        NotificationChannels slowChannels = new NotificationChannels(List.of(slow), 10, 10);
+        try {
+            NotificationOutboxService timed = new NotificationOutboxService(repository, slowChannels,
+                    transactionTemplate, 500, 10, 120, 5000, 600000, 7, 0, 200);
+            // Канал занят предыдущей доставкой, пачка outbox ждёт в его очереди
+            StatusChange earlier = new StatusChange(9L, "10.0.0.9", "FREE", "WORK", "admin", LocalDateTime.now());
+            CompletableFuture<Void> busy = slowChannels.deliver("slow", List.of(earlier));
+            assertThat(slow.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            timed.dispatch();
+            slow.release.countDown();
+            busy.get(5, TimeUnit.SECONDS);
+
+            assertThat(batch).allSatisfy(notification -> {
+                assertThat(notification.isSentTo("slow")).isFalse();
+                assertThat(notification.getLastError()).startsWith("slow: ");
+            });
+            // Отменённая пачка не доставляется: повтор outbox не даст дубликата
+            Thread.sleep(200);
+            assertThat(slow.received).containsExactly(earlier);
+            assertThat(slowChannels.getStats().get(0).cancelled()).isEqualTo(2);
+        } finally {
+            slowChannels.shutdown();
+        }
+    }
+
+    @Test
+    void unavailableChannelDoesNotConsumeAttemptsAndIsRetriedOnRecovery() {
+        RecordingChannel telegram = new RecordingChannel("telegram", 0);
+        telegram.available.set(false);
+        NotificationChannels outageChannels = new NotificationChannels(List.of(memory, telegram), 10, 10);
+        try {
+            NotificationOutboxService singleAttempt = new NotificationOutboxService(repository, outageChannels,
+                    transactionTemplate, 500, 1, 120, 5000, 600000, 7, 0, 5000);
+
+            singleAttempt.dispatch();
+
+            assertThat(memory.received).hasSize(2);
+            assertThat(telegram.received).isEmpty();
+            assertThat(batch).allSatisfy(notification -> {
+                assertThat(notification.getAttempts()).isZero();
+                assertThat(notification.getFailedAt()).isNull();
+                assertThat(notification.getWaitingSince()).isNotNull();
+                assertThat(notification.getNextAttemptAt()).isAfter(LocalDateTime.now().plusMinutes(5));
+            });
+
+            telegram.available.set(true);
+            singleAttempt.dispatch();
+
+            verify(repository).wakeWaiting(any());
+            assertThat(memory.received).hasSize(2);
+            assertThat(telegram.received).hasSize(2);
+            assertThat(batch).allSatisfy(notification -> assertThat(notification.getSentAt()).isNotNull());
+        } finally {
+            outageChannels.shutdown();
+        }
+    }
+
+    @Test
+    void leaseMustOutlastDeliveryTimeout() {
+        assertThatThrownBy(() -> new NotificationOutboxService(repository, channels, transactionTemplate,
+                500, 10, 120, 5000, 600000, 7, 0, 120_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class BlockingChannel implements NotificationChannel {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<StatusChange> received = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String getName() {
+            return "slow";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void deliver(List<StatusChange> changes) throws Exception {
+            started.countDown();
+            release.await();
+            received.addAll(changes);
+        }
+    }
+
+    private static final class RecordingChannel implements NotificationChannel {
+        private final String name;
+        private final AtomicInteger failuresLeft;
+        private final AtomicBoolean available = new AtomicBoolean(true);
+        private final List<StatusChange> received = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingChannel(String name, int failures) {
+            this.name = name;
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available.get();
+        }
+
+        @Override
+        public void deliver(List<StatusChange> changes) throws Exception {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("канал " + name + " недоступен");
+            }
+            received.addAll(changes);
+        }
+    }
+}
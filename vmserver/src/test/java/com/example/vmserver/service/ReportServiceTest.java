@@ -0,0 +1,108 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.repository.VMQueueRepository;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.VMUserRepository;
+import com.example.vmserver.repository.projection.StationDetailView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Потоковый HTML отчёт: статистика читается до первой записи в поток
+ */
+class ReportServiceTest {
+
+    private final VMStationRepository stationRepository = mock(VMStationRepository.class);
+    private final VMUserRepository userRepository = mock(VMUserRepository.class);
+    private final VMQueueRepository queueRepository = mock(VMQueueRepository.class);
+    private final ReportService reportService = new ReportService(stationRepository, userRepository, queueRepository,
+            new ReportHtmlRenderer());
+
+    @BeforeEach
+    void setUp() {
+        when(stationRepository.countByStates()).thenCallRealMethod();
+        when(userRepository.countGroupedByRole()).thenReturn(List.of());
+        when(queueRepository.findRecentQueueRecords(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void databaseErrorBeforeStreamingWritesNothing() {
+        when(stationRepository.countGroupedByState()).thenThrow(new DataAccessResourceFailureException("БД недоступна"));
+        StringWriter out = new StringWriter();
+
+        assertThatThrownBy(() -> reportService.writeHtmlReport(out))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertThat(out.toString()).isEmpty();
+        verify(stationRepository, never()).streamStationDetails();
+    }
+
+    @Test
+    void writesStatisticsAndStationRows() throws Exception {
+        when(stationRepository.countGroupedByState()).thenReturn(List.of());
+        when(stationRepository.streamStationDetails()).thenReturn(Stream.of(
+                station(1L, "10.0.0.1", VMState.FREE, null),
+                station(2L, "10.0.0.2", VMState.WORK, "ivan")));
+        StringWriter out = new StringWriter();
+
+        reportService.writeHtmlReport(out);
+
+        assertThat(out.toString()).startsWith("<!DOCTYPE html>")
+                .contains("10.0.0.1").contains("10.0.0.2").contains("ivan")
+                .endsWith("</html>");
+    }
+
+    private static StationDetailView station(Long id, String ip, VMState state, String user) {
+        return new StationDetailView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getIp() {
+                return ip;
+            }
+
+            @Override
+            public Integer getPort() {
+                return 3389;
+            }
+
+            @Override
+            public VMState getState() {
+                return state;
+            }
+
+            @Override
+            public String getLogin() {
+                return "login" + id;
+            }
+
+            @Override
+            public String getCurrentUser() {
+                return user;
+            }
+
+            @Override
+            public LocalDateTime getAssignedAt() {
+                return user != null ? LocalDateTime.now() : null;
+            }
+        };
+    }
+}
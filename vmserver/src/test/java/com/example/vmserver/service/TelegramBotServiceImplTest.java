@@ -0,0 +1,173 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.cache.AdminRecipientRegistry;
+import com.example.vmserver.cache.StationSnapshotCache;
+import com.example.vmserver.cache.StationStateCounters;
+import com.example.vmserver.config.BotConfig;
+import com.example.vmserver.enums.VMState;
+import com.example.vmserver.model.UserTelegramChat;
+import com.example.vmserver.notification.StatusChange;
+import com.example.vmserver.repository.UserTelegramChatRepository;
+import com.example.vmserver.repository.VMUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Команды, отвечающие из снимка станций в памяти
+ */
+class TelegramBotServiceImplTest {
+
+    private static final long ADMIN_CHAT = 42L;
+
+    private final TelegramFanOut telegramFanOut = mock(TelegramFanOut.class);
+    private final AdminRecipientRegistry adminRecipientRegistry = mock(AdminRecipientRegistry.class);
+    private final StationSnapshotCache stationSnapshotCache = mock(StationSnapshotCache.class);
+    private final UserTelegramChatRepository userTelegramChatRepository = mock(UserTelegramChatRepository.class);
+    private TelegramBotServiceImpl bot;
+
+    @BeforeEach
+    void setUp() {
+        when(adminRecipientRegistry.getChatIds()).thenReturn(List.of(ADMIN_CHAT));
+        when(telegramFanOut.send(anyLong(), anyString(), any())).thenReturn(true);
+        bot = new TelegramBotServiceImpl(new BotConfig(), userTelegramChatRepository,
+                mock(VMUserRepository.class), telegramFanOut, adminRecipientRegistry,
+                mock(ApplicationEventPublisher.class), mock(TelegramUpdateDispatcher.class),
+                mock(StationStateCounters.class), stationSnapshotCache);
+    }
+
+    @Test
+    void stationIdOverflowingLongIsNotFound() {
+        assertThat(bot.handleCachedCommand(update("/station 99999999999999999999999"))).isTrue();
+
+        assertThat(sentText()).contains("Станция не найдена").contains("99999999999999999999999");
+        verify(stationSnapshotCache, never()).get(any());
+    }
+
+    @Test
+    void stationIsFoundById() {
+        when(stationSnapshotCache.get(7L)).thenReturn(
+                new StationSnapshotCache.StationSnapshot(7L, "10.0.0.7", VMState.FREE, null, null));
+
+        assertThat(bot.handleCachedCommand(update("/station 7"))).isTrue();
+
+        assertThat(sentText()).contains("Станция 7").contains("10.0.0.7").contains("FREE");
+    }
+
+    @Test
+    void otherCommandsAreLeftToHandleUpdate() {
+        assertThat(bot.handleCachedCommand(update("/status"))).isFalse();
+
+        verify(telegramFanOut, never()).send(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void partialBroadcastWithUnavailableTelegramIsRetried() {
+        StatusChange change = new StatusChange(7L, "10.0.0.7", "FREE", "WORK", "admin", LocalDateTime.now());
+        when(adminRecipientRegistry.getChatIds(change)).thenReturn(List.of(1L, 2L));
+        when(telegramFanOut.broadcast(any(), anyString(), any(), anyBoolean()))
+                .thenReturn(new TelegramFanOut.Result(1, 1, 1));
+
+        // Outbox повторит уведомление: второй чат не получил его из-за недоступности Telegram
+        assertThatThrownBy(() -> bot.sendVMStatusChangeNotification(change))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bot.sendVMStatusDigestNotification(List.of(change, change)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void partialBroadcastRejectedByChatIsDelivered() {
+        StatusChange change = new StatusChange(7L, "10.0.0.7", "FREE", "WORK", "admin", LocalDateTime.now());
+        when(adminRecipientRegistry.getChatIds(change)).thenReturn(List.of(1L, 2L));
+        when(telegramFanOut.broadcast(any(), anyString(), any(), anyBoolean()))
+                .thenReturn(new TelegramFanOut.Result(1, 1, 0));
+
+        // Чат заблокировал бота: повтор ничего не изменит
+        assertThatCode(() -> bot.sendVMStatusChangeNotification(change)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void subscriptionLongerThanColumnIsRejected() {
+        UserTelegramChat registration = registration();
+        String prefixes = IntStream.range(0, 60).mapToObj(i -> "10.0." + i + ".")
+                .collect(Collectors.joining(","));
+
+        bot.handleUpdate(update("/subscribe ip=" + prefixes));
+
+        assertThat(sentText()).contains("Неверные правила подписки").contains("500");
+        assertThat(registration.getSubscription()).isNull();
+        verify(userTelegramChatRepository, never()).save(any());
+    }
+
+    @Test
+    void subscriptionIsConfirmedOnlyAfterCommit() {
+        UserTelegramChat registration = registration();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bot.handleUpdate(update("/subscribe to=REPAIR"));
+
+            assertThat(registration.getSubscription()).isEqualTo("to=REPAIR");
+            verify(telegramFanOut, never()).send(anyLong(), anyString(), any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(sentText()).contains("Подписка сохранена").contains("to=REPAIR");
+    }
+
+    private UserTelegramChat registration() {
+        UserTelegramChat registration = new UserTelegramChat();
+        registration.setUsername("admin");
+        registration.setTelegramChatId(ADMIN_CHAT);
+        when(userTelegramChatRepository.findByTelegramChatId(ADMIN_CHAT)).thenReturn(Optional.of(registration));
+        return registration;
+    }
+
+    private String sentText() {
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(telegramFanOut).send(eq(ADMIN_CHAT), text.capture(), any());
+        return text.getValue();
+    }
+
+    private static Update update(String text) {
+        Chat chat = new Chat();
+        chat.setId(ADMIN_CHAT);
+        chat.setType("private");
+        Message message = new Message();
+        message.setChat(chat);
+        message.setFrom(new User(ADMIN_CHAT, "Admin", false));
+        message.setText(text);
+        Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(message);
+        return update;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.vmserver.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Переходы предохранителя Telegram: CLOSED -> OPEN -> HALF_OPEN -> CLOSED/OPEN
+ */
+class TelegramCircuitBreakerTest {
+
+    private static final long OPEN_MS = 100;
+
+    @Test
+    void opensAfterThresholdConsecutiveFailures() {
+        TelegramCircuitBreaker breaker = new TelegramCircuitBreaker(3, 60_000);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.OPEN);
+        assertThat(breaker.getOpenedAt()).isNotNull();
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.isProbeDue()).isFalse();
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        TelegramCircuitBreaker breaker = new TelegramCircuitBreaker(3, 60_000);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.onSuccess()).isFalse();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getConsecutiveFailures()).isEqualTo(2);
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void singleProbeAfterOpenInterval() throws InterruptedException {
+        TelegramCircuitBreaker breaker = opened();
+
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(breaker.isProbeDue()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.HALF_OPEN);
+        // Пока пробный запрос не завершён, остальные отклоняются
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.isProbeDue()).isFalse();
+    }
+
+    @Test
+    void successfulProbeClosesBreaker() throws InterruptedException {
+        TelegramCircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        assertThat(breaker.onSuccess()).isTrue();
+
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getConsecutiveFailures()).isZero();
+        assertThat(breaker.getOpenedAt()).isNull();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedProbeReopensBreaker() throws InterruptedException {
+        TelegramCircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void stuckProbeIsReplacedAfterOpenInterval() throws InterruptedException {
+        TelegramCircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        Thread.sleep(OPEN_MS + 20);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.HALF_OPEN);
+    }
+
+    private static TelegramCircuitBreaker opened() {
+        TelegramCircuitBreaker breaker = new TelegramCircuitBreaker(1, OPEN_MS);
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(TelegramCircuitBreaker.State.OPEN);
+        return breaker;
+    }
+}
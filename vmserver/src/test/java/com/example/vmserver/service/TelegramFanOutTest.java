@@ -0,0 +1,158 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.config.BotConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Лимиты отправки Telegram: общий token bucket, интервал между сообщениями в один чат и повторы
+ */
+class TelegramFanOutTest {
+
+    private TelegramFanOut fanOut;
+
+    @AfterEach
+    void shutdown() {
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    private TelegramFanOut fanOut(int messagesPerSecond, long perChatIntervalMs) {
+        BotConfig config = new BotConfig();
+        config.setSenderThreads(8);
+        config.setMessagesPerSecond(messagesPerSecond);
+        config.setPerChatIntervalMs(perChatIntervalMs);
+        config.setMaxSendAttempts(3);
+        config.setRetryBaseMs(10);
+        config.setBroadcastTimeoutMs(10_000);
+        fanOut = new TelegramFanOut(config);
+        return fanOut;
+    }
+
+    @Test
+    void broadcastBurstsUpToBucketCapacityThenKeepsRate() {
+        TelegramFanOut fanOut = fanOut(20, 0);
+        List<Long> sentAt = Collections.synchronizedList(new ArrayList<>());
+        List<Long> chatIds = LongStream.rangeClosed(1, 50).boxed().toList();
+
+        long start = System.nanoTime();
+        TelegramFanOut.Result result = fanOut.broadcast(chatIds, "text",
+                chatId -> sentAt.add(System.nanoTime() - start), false);
+
+        assertThat(result).isEqualTo(new TelegramFanOut.Result(50, 0, 0));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 20 сообщений сразу, остальные 30 - со скоростью 20 в секунду
+        assertThat(elapsedMs).isBetween(1400L, 4000L);
+        long firstBurst = sentAt.stream().filter(at -> at < TimeUnit.MILLISECONDS.toNanos(300)).count();
+        assertThat(firstBurst).isBetween(20L, 27L);
+    }
+
+    @Test
+    void messagesToOneChatAreSpacedByInterval() {
+        TelegramFanOut fanOut = fanOut(100, 200);
+        List<Long> sentAt = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(fanOut.send(1L, "text " + i, chatId -> sentAt.add(System.nanoTime()))).isTrue();
+        }
+
+        for (int i = 1; i < sentAt.size(); i++) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(sentAt.get(i) - sentAt.get(i - 1))).isGreaterThanOrEqualTo(195);
+        }
+    }
+
+    @Test
+    void differentChatsAreNotDelayedByPerChatInterval() {
+        TelegramFanOut fanOut = fanOut(100, 1000);
+
+        long start = System.nanoTime();
+        TelegramFanOut.Result result = fanOut.broadcast(List.of(1L, 2L, 3L, 4L), "text", chatId -> { }, false);
+
+        assertThat(result.sent()).isEqualTo(4);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+    }
+
+    @Test
+    void serverErrorIsRetriedAndClientErrorIsNot() throws Exception {
+        TelegramFanOut fanOut = fanOut(100, 0);
+        AtomicInteger serverErrorAttempts = new AtomicInteger();
+        AtomicInteger clientErrorAttempts = new AtomicInteger();
+
+        boolean recovered = fanOut.send(1L, "text", chatId -> {
+            if (serverErrorAttempts.incrementAndGet() < 3) {
+                throw requestException(502);
+            }
+        });
+        boolean rejected = fanOut.send(2L, "text", chatId -> {
+            clientErrorAttempts.incrementAndGet();
+            throw requestException(403);
+        });
+
+        assertThat(recovered).isTrue();
+        assertThat(serverErrorAttempts).hasValue(3);
+        assertThat(rejected).isFalse();
+        assertThat(clientErrorAttempts).hasValue(1);
+    }
+
+    @Test
+    void chatsRejectedDuringProbeAreResentOnceBreakerCloses() throws Exception {
+        BotConfig config = new BotConfig();
+        config.setSenderThreads(8);
+        config.setMessagesPerSecond(100);
+        config.setPerChatIntervalMs(0);
+        config.setMaxSendAttempts(1);
+        config.setCircuitFailureThreshold(1);
+        config.setCircuitOpenMs(100);
+        config.setOutageBufferSize(0);
+        fanOut = new TelegramFanOut(config);
+        // Один сбой размыкает предохранитель на 100 мс
+        fanOut.send(0L, "text", chatId -> {
+            throw requestException(502);
+        });
+        assertThat(fanOut.isAvailable()).isFalse();
+        Thread.sleep(150);
+        assertThat(fanOut.isAvailable()).isTrue();
+
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        TelegramFanOut.Result result = fanOut.broadcast(List.of(1L, 2L, 3L, 4L), "text", chatId -> {
+            sleep(50);
+            received.add(chatId);
+        }, false);
+
+        // Пробная отправка прошла одна, остальные чаты дошли после замыкания предохранителя
+        assertThat(result).isEqualTo(new TelegramFanOut.Result(4, 0, 0));
+        assertThat(received).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static TelegramApiRequestException requestException(int errorCode) {
+        try {
+            ApiResponse<?> response = new ObjectMapper().readValue(
+                    "{\"ok\":false,\"error_code\":" + errorCode + ",\"description\":\"error " + errorCode + "\"}",
+                    ApiResponse.class);
+            return new TelegramApiRequestException("error " + errorCode, response);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
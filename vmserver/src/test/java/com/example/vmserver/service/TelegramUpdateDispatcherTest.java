@@ -0,0 +1,156 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.config.BotConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Конвейер обновлений: порядок внутри чата, отбрасывание повторов и переполнение очереди
+ */
+class TelegramUpdateDispatcherTest {
+
+    private final TelegramBotServiceImpl bot = mock(TelegramBotServiceImpl.class);
+    private TelegramUpdateDispatcher dispatcher;
+
+    @AfterEach
+    void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    private TelegramUpdateDispatcher dispatcher(int threads, int capacity) {
+        BotConfig config = new BotConfig();
+        config.setUpdateThreads(threads);
+        config.setUpdateQueueCapacity(capacity);
+        when(bot.handleCachedCommand(any())).thenReturn(false);
+        dispatcher = new TelegramUpdateDispatcher(bot, config);
+        return dispatcher;
+    }
+
+    private static Update update(int updateId, long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setType("private");
+        Message message = new Message();
+        message.setChat(chat);
+        message.setText("/status");
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+    @Test
+    void updatesOfOneChatAreHandledInOrder() throws InterruptedException {
+        TelegramUpdateDispatcher dispatcher = dispatcher(4, 1000);
+        Map<Long, List<Integer>> handled = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(300);
+        doAnswer(invocation -> {
+            Update update = invocation.getArgument(0);
+            handled.computeIfAbsent(update.getMessage().getChatId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(update.getUpdateId());
+            done.countDown();
+            return null;
+        }).when(bot).handleUpdate(any());
+
+        for (int i = 0; i < 100; i++) {
+            for (long chatId = 1; chatId <= 3; chatId++) {
+                assertThat(dispatcher.submit(update((int) (i * 3 + chatId), chatId))).isTrue();
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        for (long chatId = 1; chatId <= 3; chatId++) {
+            assertThat(handled.get(chatId)).hasSize(100).isSorted();
+        }
+    }
+
+    @Test
+    void redeliveredUpdateIsHandledOnce() throws InterruptedException {
+        TelegramUpdateDispatcher dispatcher = dispatcher(2, 100);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            handled.add(((Update) invocation.getArgument(0)).getUpdateId());
+            done.countDown();
+            return null;
+        }).when(bot).handleUpdate(any());
+
+        assertThat(dispatcher.submit(update(1, 10))).isTrue();
+        assertThat(dispatcher.submit(update(1, 10))).isTrue();
+        assertThat(dispatcher.submit(update(2, 10))).isTrue();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(handled).containsExactly(1, 2);
+    }
+
+    @Test
+    void fullLaneRejectsAndForgetsUpdateSoItCanBeRedelivered() throws InterruptedException {
+        TelegramUpdateDispatcher dispatcher = dispatcher(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(bot).handleUpdate(any());
+
+        assertThat(dispatcher.submit(update(1, 10))).isTrue();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.submit(update(2, 10))).isTrue();
+        assertThat(dispatcher.submit(update(3, 10))).isFalse();
+
+        release.countDown();
+        // Отклонённое обновление не считается обработанным: повторная доставка принимается
+        assertThat(dispatcher.submit(update(3, 10), 5000)).isTrue();
+    }
+
+    @Test
+    void submitWaitsForSpaceUpToTimeout() throws InterruptedException {
+        TelegramUpdateDispatcher dispatcher = dispatcher(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(bot).handleUpdate(any());
+
+        dispatcher.submit(update(1, 10));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.submit(update(2, 10));
+
+        long start = System.nanoTime();
+        assertThat(dispatcher.submit(update(3, 10), 200)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+        assertThat(dispatcher.submit(update(4, 10), 5000)).isTrue();
+    }
+}
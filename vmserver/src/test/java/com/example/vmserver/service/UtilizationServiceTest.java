@@ -0,0 +1,203 @@
+package com.example.vmserver.service;
+
+import com.example.vmserver.dto.UtilizationReportDTO;
+import com.example.vmserver.enums.UtilizationBucket;
+import com.example.vmserver.repository.QueueHourlyRollupRepository;
+import com.example.vmserver.repository.VMQueueRepository;
+import com.example.vmserver.repository.VMStationRepository;
+import com.example.vmserver.repository.projection.RollupHourPeakView;
+import com.example.vmserver.repository.projection.SessionIntervalView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Отчёт об использовании станций по ещё не агрегированным сессиям: пик одновременных
+ * сессий, занятость по станциям и интервалам, длительности
+ */
+class UtilizationServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 10, 0, 0);
+
+    private final VMQueueRepository queueRepository = mock(VMQueueRepository.class);
+    private final VMStationRepository stationRepository = mock(VMStationRepository.class);
+    private final QueueHourlyRollupRepository rollupRepository = mock(QueueHourlyRollupRepository.class);
+    private final QueueRollupService rollupService = mock(QueueRollupService.class);
+    private UtilizationService service;
+
+    @BeforeEach
+    void setUp() {
+        when(rollupService.getWatermark()).thenReturn(null);
+        when(stationRepository.count()).thenReturn(3L);
+        service = new UtilizationService(queueRepository, stationRepository, rollupRepository, rollupService);
+    }
+
+    @Test
+    void peakCountsOnlyOverlappingSessions() {
+        sessions(
+                session(1L, 1L, at(10, 0), at(10, 30)),
+                session(2L, 2L, at(10, 15), at(11, 10)),
+                session(3L, 1L, at(10, 20), at(10, 25)),
+                // Начало в момент окончания предыдущей сессии станции не даёт одновременности
+                session(1L, 2L, at(10, 30), at(11, 0)));
+
+        UtilizationReportDTO report = service.getUtilization(at(10, 0), at(12, 0), UtilizationBucket.HOUR);
+
+        UtilizationReportDTO.FleetUtilization fleet = report.getFleet();
+        assertThat(fleet.getPeakConcurrentSessions()).isEqualTo(3);
+        assertThat(fleet.getPeakAt()).isEqualTo(at(10, 20));
+        assertThat(fleet.getSessionCount()).isEqualTo(4);
+        assertThat(fleet.getDistinctUsers()).isEqualTo(2);
+        assertThat(fleet.getBusySeconds()).isEqualTo(7200);
+        assertThat(fleet.getUtilization()).isEqualTo(7200.0 / (3 * 7200));
+
+        assertThat(report.getBuckets()).hasSize(2);
+        assertThat(report.getBuckets().get(0).getPeakConcurrentSessions()).isEqualTo(3);
+        assertThat(report.getBuckets().get(0).getBusySeconds()).isEqualTo(6600);
+        assertThat(report.getBuckets().get(0).getSessionsStarted()).isEqualTo(4);
+        // В 11:00 сессия станции 1 уже завершилась, переходит только сессия станции 2
+        assertThat(report.getBuckets().get(1).getPeakConcurrentSessions()).isEqualTo(1);
+        assertThat(report.getBuckets().get(1).getBusySeconds()).isEqualTo(600);
+
+        UtilizationReportDTO.StationUtilization first = report.getStations().get(0);
+        assertThat(first.getStationId()).isEqualTo(1L);
+        assertThat(first.getBusySeconds()).isEqualTo(3600);
+        assertThat(first.getDistinctUsers()).isEqualTo(2);
+
+        UtilizationReportDTO.DurationStatistics durations = fleet.getSessionDuration();
+        assertThat(durations.getCount()).isEqualTo(4);
+        assertThat(durations.getMaxSeconds()).isEqualTo(3300);
+        assertThat(durations.getAvgSeconds()).isEqualTo(1800);
+    }
+
+    @Test
+    void sessionsAreClippedToPeriodAlignedToHours() {
+        sessions(
+                session(1L, 1L, at(9, 30), at(10, 30)),
+                session(2L, 2L, at(11, 45), at(12, 30)));
+
+        UtilizationReportDTO report = service.getUtilization(at(10, 10), at(11, 50), UtilizationBucket.HOUR);
+
+        assertThat(report.getFrom()).isEqualTo(at(10, 0));
+        assertThat(report.getTo()).isEqualTo(at(12, 0));
+        assertThat(report.getFleet().getBusySeconds()).isEqualTo(1800 + 900);
+        // Сессия, начатая до периода, занимает станцию, но в периоде не начиналась
+        assertThat(report.getFleet().getSessionCount()).isEqualTo(1);
+        assertThat(report.getFleet().getSessionDuration().getCount()).isEqualTo(1);
+        assertThat(report.getFleet().getPeakConcurrentSessions()).isEqualTo(1);
+    }
+
+    @Test
+    void hourWhereTailChangesIsRecomputedFromAllSessions() {
+        // Агрегированы сессии 10:00-10:20 и 10:10-10:30 (пик 2 в 10:10), в хвосте - 10:40-10:50
+        SessionIntervalView tail = session(3L, 3L, at(10, 40), at(10, 50));
+        when(rollupService.getWatermark()).thenReturn(at(10, 35));
+        when(rollupRepository.findPeaks(any(), any())).thenReturn(List.of(new HourPeak(at(10, 0), 2, at(10, 10))));
+        sessions(tail);
+        when(queueRepository.streamSessions(at(10, 0), at(11, 0))).thenAnswer(invocation -> List.of(
+                session(1L, 1L, at(10, 0), at(10, 20)),
+                session(2L, 2L, at(10, 10), at(10, 30)),
+                tail).stream());
+
+        UtilizationReportDTO report = service.getUtilization(at(10, 0), at(11, 0), UtilizationBucket.HOUR);
+
+        // Сумма пиков дала бы 3, но сессия хвоста ни с одной агрегированной не пересекается
+        assertThat(report.getFleet().getPeakConcurrentSessions()).isEqualTo(2);
+        assertThat(report.getFleet().getPeakAt()).isEqualTo(at(10, 10));
+        assertThat(report.getBuckets().get(0).getPeakConcurrentSessions()).isEqualTo(2);
+    }
+
+    @Test
+    void tailCoveringWholeHourAddsToRollupPeak() {
+        when(rollupService.getWatermark()).thenReturn(at(11, 5));
+        when(rollupRepository.findPeaks(any(), any())).thenReturn(List.of(new HourPeak(at(10, 0), 2, at(10, 10))));
+        sessions(session(3L, 3L, at(9, 0), at(11, 30)));
+
+        UtilizationReportDTO report = service.getUtilization(at(10, 0), at(11, 0), UtilizationBucket.HOUR);
+
+        assertThat(report.getFleet().getPeakConcurrentSessions()).isEqualTo(3);
+        assertThat(report.getFleet().getPeakAt()).isEqualTo(at(10, 10));
+        verify(queueRepository, never()).streamSessions(any(), any());
+    }
+
+    @Test
+    void emptyPeriodIsRejected() {
+        assertThatThrownBy(() -> service.getUtilization(at(10, 0), at(10, 0), UtilizationBucket.HOUR))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void sessions(SessionIntervalView... sessions) {
+        when(queueRepository.streamUnrolledSessions(any(), any(), any()))
+                .thenAnswer(invocation -> List.of(sessions).stream());
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return DAY.withHour(hour).withMinute(minute);
+    }
+
+    private static SessionIntervalView session(Long stationId, Long userId,
+                                               LocalDateTime startedAt, LocalDateTime releasedAt) {
+        return new Session(stationId, "10.0.0." + stationId, userId, startedAt, releasedAt, false);
+    }
+
+    private record HourPeak(LocalDateTime hourStart, Integer peakSessions, LocalDateTime peakAt)
+            implements RollupHourPeakView {
+        @Override
+        public LocalDateTime getHourStart() {
+            return hourStart;
+        }
+
+        @Override
+        public Integer getPeakSessions() {
+            return peakSessions;
+        }
+
+        @Override
+        public LocalDateTime getPeakAt() {
+            return peakAt;
+        }
+    }
+
+    private record Session(Long stationId, String stationIp, Long userId, LocalDateTime startedAt,
+                           LocalDateTime releasedAt, Boolean active) implements SessionIntervalView {
+        @Override
+        public Long getStationId() {
+            return stationId;
+        }
+
+        @Override
+        public String getStationIp() {
+            return stationIp;
+        }
+
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        @Override
+        public LocalDateTime getReleasedAt() {
+            return releasedAt;
+        }
+
+        @Override
+        public Boolean getActive() {
+            return active;
+        }
+    }
+}
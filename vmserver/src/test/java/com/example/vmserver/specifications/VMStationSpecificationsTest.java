@@ -0,0 +1,30 @@
+package com.example.vmserver.specifications;
+
+import com.example.vmserver.dto.StationFilterDTO;
+import com.example.vmserver.enums.LoginMatchMode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VMStationSpecificationsTest {
+
+    @Test
+    void filterRejectsInvalidSubnetBeforeQuery() {
+        StationFilterDTO filter = ipFilter("10.0.0.0/99");
+
+        assertThatThrownBy(() -> VMStationSpecifications.filter(filter))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("10.0.0.0/99");
+    }
+
+    @Test
+    void ipPrefixIsNotValidatedAsAddress() {
+        assertThatCode(() -> VMStationSpecifications.filter(ipFilter("build-host"))).doesNotThrowAnyException();
+        assertThatCode(() -> VMStationSpecifications.filter(ipFilter("10.0."))).doesNotThrowAnyException();
+    }
+
+    private static StationFilterDTO ipFilter(String ip) {
+        return new StationFilterDTO(null, LoginMatchMode.CONTAINS, null, null, null, ip, null, null);
+    }
+}
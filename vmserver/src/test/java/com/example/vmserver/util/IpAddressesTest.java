@@ -0,0 +1,35 @@
+package com.example.vmserver.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressesTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10.0.0.0/8", "192.168.1.5/24", "0.0.0.0/0", "10.1.2.3/32",
+            "2001:db8::/32", "::1/128", "::ffff:10.0.0.1/96", "fe80::1:2:3:4/64"})
+    void acceptsValidCidr(String value) {
+        assertThat(IpAddresses.isValidCidr(value)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10.0.0.0/99", "10.0.0.0/33", "2001:db8::/129", "10.0.0/24", "10.0.0.256/24",
+            "10.0.0.1/", "/24", "10.0.0.1/2/3", "1:2:3:4:5:6:7:8:9/64", "1::2::3/64", ":::/64", "host/24", "10.0.0.1/-1"})
+    void rejectsInvalidCidr(String value) {
+        assertThat(IpAddresses.isValidCidr(value)).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"192.168.1.100", "255.255.255.255", "::", "1:2:3:4:5:6:7:8", "2001:db8::ff00:42:8329"})
+    void acceptsValidAddress(String value) {
+        assertThat(IpAddresses.isValidAddress(value)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "localhost", "192.168.1", "192.168.1.01", "1.2.3.4.5", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:", "12345::1"})
+    void rejectsInvalidAddress(String value) {
+        assertThat(IpAddresses.isValidAddress(value)).isFalse();
+    }
+}